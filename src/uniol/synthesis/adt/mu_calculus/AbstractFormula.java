@@ -23,9 +23,11 @@ import uniol.synthesis.util.PrintFormula;
 
 public abstract class AbstractFormula implements Formula {
 	private final FormulaCreator creator;
+	private final FormulaKind kind;
 
-	protected AbstractFormula(FormulaCreator creator) {
+	protected AbstractFormula(FormulaCreator creator, FormulaKind kind) {
 		this.creator = creator;
+		this.kind = kind;
 	}
 
 	@Override
@@ -33,11 +35,17 @@ public abstract class AbstractFormula implements Formula {
 		return creator;
 	}
 
+	@Override
+	final public FormulaKind getKind() {
+		return kind;
+	}
+
+	// toString() is used implicitly in exception messages and debug output, so limit its length
+	static private final int TO_STRING_MAX_LENGTH = 100000;
+
 	@Override
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		PrintFormula.printFormula(sb, this);
-		return sb.toString();
+		return PrintFormula.printFormula(this, TO_STRING_MAX_LENGTH);
 	}
 }
 
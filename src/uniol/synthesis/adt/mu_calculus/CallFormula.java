@@ -28,7 +28,7 @@ public class CallFormula extends AbstractFormula {
 	final private List<Formula> arguments;
 
 	protected CallFormula(FormulaCreator creator, String function, List<Formula> arguments) {
-		super(creator);
+		super(creator, FormulaKind.CALL);
 		this.function = function;
 		this.arguments = Collections.unmodifiableList(new ArrayList<Formula>(arguments));
 	}
@@ -23,7 +23,7 @@ public class ConstantFormula extends AbstractFormula {
 	private final boolean value;
 
 	protected ConstantFormula(FormulaCreator creator, boolean value) {
-		super(creator);
+		super(creator, FormulaKind.CONSTANT);
 		this.value = value;
 	}
 
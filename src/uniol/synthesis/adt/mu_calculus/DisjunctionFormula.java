@@ -26,22 +26,48 @@ import java.util.List;
 
 public class DisjunctionFormula extends AbstractFormula {
 	final private Formula[] formulas;
+	// Created on first use. Racing threads might create more than one instance, which is harmless.
+	private List<Formula> formulaList = null;
 
 	protected DisjunctionFormula(FormulaCreator creator, Formula[] formulas) {
-		super(creator);
+		super(creator, FormulaKind.DISJUNCTION);
 		this.formulas = formulas;
 	}
 
 	public List<Formula> getFormulas() {
-		return Collections.unmodifiableList(Arrays.asList(formulas));
+		List<Formula> result = formulaList;
+		if (result == null) {
+			result = Collections.unmodifiableList(Arrays.asList(formulas));
+			formulaList = result;
+		}
+		return result;
+	}
+
+	public int size() {
+		return formulas.length;
+	}
+
+	public Formula get(int index) {
+		return formulas[index];
+	}
+
+	private boolean hasFormulas(List<Formula> children) {
+		if (formulas.length != children.size())
+			return false;
+		for (int i = 0; i < formulas.length; i++)
+			if (!formulas[i].equals(children.get(i)))
+				return false;
+		return true;
 	}
 
 	static DisjunctionFormula disjunction(FormulaCreator creator, List<Formula> children) {
 		List<Formula> flattened = new ArrayList<>();
 		for (Formula formula : children) {
-			if (formula instanceof DisjunctionFormula)
-				flattened.addAll(((DisjunctionFormula) formula).getFormulas());
-			else
+			if (formula instanceof DisjunctionFormula) {
+				DisjunctionFormula inner = (DisjunctionFormula) formula;
+				for (int i = 0; i < inner.size(); i++)
+					flattened.add(inner.get(i));
+			} else
 				flattened.add(formula);
 		}
 		return disjunctionInternal(creator, flattened);
@@ -52,7 +78,7 @@ public class DisjunctionFormula extends AbstractFormula {
 		for (Formula formula : creator.getFormulasWithHashCode(hashCode)) {
 			if (formula instanceof DisjunctionFormula) {
 				DisjunctionFormula result = (DisjunctionFormula) formula;
-				if (result.getFormulas().equals(children))
+				if (result.hasFormulas(children))
 					return result;
 			}
 		}
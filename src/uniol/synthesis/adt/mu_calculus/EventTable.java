@@ -0,0 +1,92 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the events of a {@link FormulaCreator} to dense integer ids. Ids are assigned in the order in which events are
+ * first seen and are never reused, so sets of events can be represented as {@link BitSet}s.
+ * @see FormulaCreator#getEventTable
+ */
+public class EventTable {
+	final private Map<String, Integer> ids = new HashMap<>();
+	final private List<String> events = new ArrayList<>();
+
+	EventTable() {
+	}
+
+	/**
+	 * Get the id of an event. The event gets a new id if it was not seen before.
+	 * @param event The event.
+	 * @return The id of the event.
+	 */
+	synchronized public int getId(String event) {
+		Integer id = ids.get(event);
+		if (id == null) {
+			id = events.size();
+			ids.put(event, id);
+			events.add(event);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the event with the given id.
+	 * @param id The id of the event.
+	 * @return The event.
+	 * @throws IndexOutOfBoundsException If no event with this id exists.
+	 */
+	synchronized public String getEvent(int id) {
+		return events.get(id);
+	}
+
+	synchronized public int size() {
+		return events.size();
+	}
+
+	public BitSet toBitSet(Collection<String> events) {
+		BitSet result = new BitSet();
+		for (String event : events)
+			result.set(getId(event));
+		return result;
+	}
+
+	/**
+	 * Get the events in a set of ids. The result is ordered by id.
+	 * @param ids The ids of the events.
+	 * @return The events.
+	 */
+	public Set<String> toEvents(BitSet ids) {
+		Set<String> result = new LinkedHashSet<>();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			result.add(getEvent(id));
+		return result;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
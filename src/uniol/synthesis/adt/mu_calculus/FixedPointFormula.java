@@ -26,7 +26,7 @@ public class FixedPointFormula extends AbstractFormula {
 
 	protected FixedPointFormula(FormulaCreator creator, FixedPoint fixedPoint, VariableFormula variable,
 			Formula formula) {
-		super(creator);
+		super(creator, FormulaKind.FIXED_POINT);
 		this.fixedPoint = fixedPoint;
 		this.variable = variable;
 		this.formula = formula;
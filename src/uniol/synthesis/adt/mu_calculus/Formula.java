@@ -21,6 +21,12 @@ package uniol.synthesis.adt.mu_calculus;
 
 public interface Formula {
 	FormulaCreator getCreator();
+
+	/**
+	 * Get the kind of this formula. The result is always the same for all instances of a class.
+	 * @return The kind of this formula.
+	 */
+	FormulaKind getKind();
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
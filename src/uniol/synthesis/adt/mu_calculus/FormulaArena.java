@@ -0,0 +1,133 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Strongly references all formulas of a {@link FormulaCreator} in an open-addressing hash table keyed by the
+ * formulas' hash codes. Formulas are never removed, they are freed together with the creator.
+ */
+class FormulaArena {
+	static final private int INITIAL_CAPACITY = 1024;
+
+	private int[] hashCodes = new int[INITIAL_CAPACITY];
+	private Formula[] formulas = new Formula[INITIAL_CAPACITY];
+	private int size = 0;
+
+	static private int slot(int hashCode, int mask) {
+		int h = hashCode * 0x9e3779b9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return formulas.length;
+	}
+
+	// Get the formula in the given slot of the table, or null if the slot is empty
+	public Formula getFormula(int slot) {
+		return formulas[slot];
+	}
+
+	public int getHashCode(int slot) {
+		return hashCodes[slot];
+	}
+
+	public void add(int hashCode, Formula formula) {
+		// Keep the table at most half full so that probe sequences stay short
+		if (2 * (size + 1) > formulas.length)
+			grow();
+		insert(hashCodes, formulas, hashCode, formula);
+		size++;
+	}
+
+	static private void insert(int[] hashCodes, Formula[] formulas, int hashCode, Formula formula) {
+		int mask = formulas.length - 1;
+		int index = slot(hashCode, mask);
+		while (formulas[index] != null)
+			index = (index + 1) & mask;
+		hashCodes[index] = hashCode;
+		formulas[index] = formula;
+	}
+
+	private void grow() {
+		int[] newHashCodes = new int[2 * formulas.length];
+		Formula[] newFormulas = new Formula[2 * formulas.length];
+		for (int i = 0; i < formulas.length; i++)
+			if (formulas[i] != null)
+				insert(newHashCodes, newFormulas, hashCodes[i], formulas[i]);
+		hashCodes = newHashCodes;
+		formulas = newFormulas;
+	}
+
+	public Iterable<Formula> get(final int hashCode) {
+		return new Iterable<Formula>() {
+			@Override
+			public Iterator<Formula> iterator() {
+				return new ProbeIterator(hashCode);
+			}
+		};
+	}
+
+	// Iterates over the formulas with the given hash code. The table must not be modified during the iteration.
+	private class ProbeIterator implements Iterator<Formula> {
+		final private int hashCode;
+		final private int mask = formulas.length - 1;
+		private int index;
+
+		private ProbeIterator(int hashCode) {
+			this.hashCode = hashCode;
+			this.index = slot(hashCode, mask);
+			skip();
+		}
+
+		private void skip() {
+			while (formulas[index] != null && hashCodes[index] != hashCode)
+				index = (index + 1) & mask;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return formulas[index] != null;
+		}
+
+		@Override
+		public Formula next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Formula result = formulas[index];
+			index = (index + 1) & mask;
+			skip();
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -22,7 +22,10 @@ package uniol.synthesis.adt.mu_calculus;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,8 +38,75 @@ import java.util.Set;
 public class FormulaCreator {
 	final private ReferenceQueue<Formula> queue = new ReferenceQueue<>();
 	final private Map<Integer, Set<MyWeakReference>> objects = new HashMap<>();
+	// Only used by arenas, where formulas are referenced strongly instead of via objects. Guarded by objects.
+	private FormulaArena arena;
+	final private Map<String, MemoTable<?>> memoTables = new HashMap<>();
+	final private EventTable events = new EventTable();
+	// Indices of garbage collected variables are reused, so that they stay as small as the number of live variables
+	final private ReferenceQueue<VariableFormula> variableQueue = new ReferenceQueue<>();
+	final private List<VariableReference> variables = new ArrayList<>();
+	final private BitSet freeVariableIndices = new BitSet();
+	// Only used by arenas instead of variables, since their variables are never garbage collected
+	final private List<VariableFormula> arenaVariables = new ArrayList<>();
 	private int freshVariableCounter = 0;
 
+	/**
+	 * Create a new formula creator. Formulas are referenced weakly and are garbage collected when they are no
+	 * longer used.
+	 */
+	public FormulaCreator() {
+		this(false);
+	}
+
+	private FormulaCreator(boolean useArena) {
+		this.arena = useArena ? new FormulaArena() : null;
+	}
+
+	/**
+	 * Create a new formula creator whose formulas are kept alive until the creator itself is garbage collected.
+	 * This avoids the overhead of weak references, which pays off when many short-lived formulas are created
+	 * during a single run, but no formula is freed before the run ends and everything becomes unreachable. The
+	 * results in the creator's memo tables are referenced strongly as well.
+	 * @return A new formula creator.
+	 * @see #releaseArena()
+	 */
+	static public FormulaCreator createArena() {
+		return new FormulaCreator(true);
+	}
+
+	public boolean isArena() {
+		synchronized (objects) {
+			return arena != null;
+		}
+	}
+
+	/**
+	 * Stop keeping all formulas of an arena alive, for example at the end of a module run whose result is still
+	 * needed. Afterwards, this creator behaves like one created with {@link #FormulaCreator()}: Formulas that are
+	 * still used stay shared and all others can be garbage collected. This does nothing if this creator is not
+	 * an arena.
+	 */
+	public void releaseArena() {
+		synchronized (objects) {
+			if (arena == null)
+				return;
+			FormulaArena released = arena;
+			synchronized (memoTables) {
+				arena = null;
+				for (MemoTable<?> table : memoTables.values())
+					table.releaseStrongReferences();
+			}
+			for (int slot = 0; slot < released.getCapacity(); slot++) {
+				Formula formula = released.getFormula(slot);
+				if (formula != null)
+					addFormulaInternal(released.getHashCode(slot), formula);
+			}
+			for (VariableFormula variable : arenaVariables)
+				addVariableInternal(variable);
+			arenaVariables.clear();
+		}
+	}
+
 	public ConstantFormula constant(boolean value) {
 		synchronized (objects) {
 			return ConstantFormula.constant(this, value);
@@ -69,12 +139,121 @@ public class FormulaCreator {
 		}
 	}
 
+	/**
+	 * Get a builder for a conjunction with many children. This is cheaper than building the conjunction with
+	 * repeated calls to {@link #conjunction(Formula...)}, since each of these calls would copy all children
+	 * collected so far.
+	 * @return A new builder.
+	 */
+	public NaryBuilder conjunctionBuilder() {
+		return new NaryBuilder(this, true);
+	}
+
+	/**
+	 * Get a builder for a disjunction with many children.
+	 * @return A new builder.
+	 * @see #conjunctionBuilder()
+	 */
+	public NaryBuilder disjunctionBuilder() {
+		return new NaryBuilder(this, false);
+	}
+
+	static public class NaryBuilder {
+		final private FormulaCreator creator;
+		final private boolean conjunction;
+		final private List<Formula> children = new ArrayList<>();
+
+		private NaryBuilder(FormulaCreator creator, boolean conjunction) {
+			this.creator = creator;
+			this.conjunction = conjunction;
+		}
+
+		public NaryBuilder add(Formula formula) {
+			children.add(formula);
+			return this;
+		}
+
+		public boolean isEmpty() {
+			return children.isEmpty();
+		}
+
+		/**
+		 * Create the formula. Without any children, this is the neutral element (true for conjunctions and
+		 * false for disjunctions). With one child, this is just the child. Otherwise a conjunction or
+		 * disjunction of all children is created.
+		 * @return The formula.
+		 */
+		public Formula build() {
+			switch (children.size()) {
+				case 0:
+					return creator.constant(conjunction);
+				case 1:
+					return children.get(0);
+				default:
+					if (conjunction)
+						return creator.conjunction(children);
+					return creator.disjunction(children);
+			}
+		}
+	}
+
+	/**
+	 * Get the memo table with the given name. All users of the same name must store the same type of results.
+	 * @param name The name of the memo table.
+	 * @param <V> The type of results in the memo table.
+	 * @return The memo table, which is created if it does not exist yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> MemoTable<V> getMemoTable(String name) {
+		synchronized (memoTables) {
+			MemoTable<V> result = (MemoTable<V>) memoTables.get(name);
+			if (result == null) {
+				result = new MemoTable<>(name, arena != null);
+				memoTables.put(name, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Get all memo tables, for example to report how often they were used.
+	 * @return The memo tables of this creator.
+	 */
+	public Collection<MemoTable<?>> getMemoTables() {
+		synchronized (memoTables) {
+			return new ArrayList<MemoTable<?>>(memoTables.values());
+		}
+	}
+
+	/**
+	 * Get the table that maps the events of the modalities of this creator to integer ids.
+	 * @return The event table.
+	 */
+	public EventTable getEventTable() {
+		return events;
+	}
+
 	public VariableFormula variable(String var) {
 		synchronized (objects) {
 			return VariableFormula.variable(this, var, false);
 		}
 	}
 
+	/**
+	 * Get the variable with the given index.
+	 * @param index The index of the variable.
+	 * @return The variable or null if no live variable has this index.
+	 * @see VariableFormula#getIndex
+	 */
+	public VariableFormula getVariable(int index) {
+		synchronized (objects) {
+			if (arena != null)
+				return arenaVariables.get(index);
+			VariableReference reference = variables.get(index);
+			return reference == null ? null : reference.get();
+		}
+	}
+
 	public VariableFormula freshVariable(String prefix) {
 		synchronized (objects) {
 			while (true) {
@@ -94,7 +273,13 @@ public class FormulaCreator {
 
 	public ModalityFormula modality(Modality modality, String event, Formula formula) {
 		synchronized (objects) {
-			return ModalityFormula.modality(this, modality, event, formula);
+			return ModalityFormula.modality(this, modality, events.getId(event), formula);
+		}
+	}
+
+	public ModalityFormula modality(Modality modality, int eventId, Formula formula) {
+		synchronized (objects) {
+			return ModalityFormula.modality(this, modality, eventId, formula);
 		}
 	}
 
@@ -115,6 +300,8 @@ public class FormulaCreator {
 	}
 
 	Iterable<Formula> getFormulasWithHashCode(int hashCode) {
+		if (arena != null)
+			return arena.get(hashCode);
 		cleanup();
 		final Set<MyWeakReference> set = objects.get(hashCode);
 		if (set == null)
@@ -128,6 +315,10 @@ public class FormulaCreator {
 	}
 
 	void addFormulaInternal(int hashCode, Formula formula) {
+		if (arena != null) {
+			arena.add(hashCode, formula);
+			return;
+		}
 		cleanup();
 		Set<MyWeakReference> objs = objects.get(hashCode);
 		if (objs == null) {
@@ -137,7 +328,42 @@ public class FormulaCreator {
 		objs.add(new MyWeakReference(hashCode, formula, queue));
 	}
 
+	int nextVariableIndexInternal() {
+		if (arena != null)
+			return arenaVariables.size();
+		cleanup();
+		int index = freeVariableIndices.nextSetBit(0);
+		return index < 0 ? variables.size() : index;
+	}
+
+	void addVariableInternal(VariableFormula variable) {
+		int index = variable.getIndex();
+		if (arena != null) {
+			assert index == arenaVariables.size();
+			arenaVariables.add(variable);
+			return;
+		}
+		VariableReference reference = new VariableReference(variable, variableQueue);
+		if (index == variables.size()) {
+			variables.add(reference);
+		} else {
+			assert freeVariableIndices.get(index);
+			freeVariableIndices.clear(index);
+			variables.set(index, reference);
+		}
+	}
+
 	private void cleanup() {
+		while (true) {
+			Reference<? extends VariableFormula> ref = variableQueue.poll();
+			if (ref == null)
+				break;
+
+			int index = ((VariableReference) ref).getIndex();
+			assert variables.get(index) == ref;
+			variables.set(index, null);
+			freeVariableIndices.set(index);
+		}
 		while (true) {
 			Reference<? extends Formula> ref = queue.poll();
 			if (ref == null)
@@ -186,6 +412,19 @@ public class FormulaCreator {
 		}
 	}
 
+	static private class VariableReference extends WeakReference<VariableFormula> {
+		final private int index;
+
+		public VariableReference(VariableFormula variable, ReferenceQueue<VariableFormula> queue) {
+			super(variable, queue);
+			this.index = variable.getIndex();
+		}
+
+		public int getIndex() {
+			return index;
+		}
+	}
+
 	static private class MyWeakReference extends WeakReference<Formula> {
 		final private int hashCode;
 
@@ -0,0 +1,38 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+/**
+ * The different kinds of formulas. Each implementation of {@link Formula} has exactly one kind, so code that has to
+ * handle every kind of formula can switch over it instead of checking the class of the formula.
+ */
+public enum FormulaKind {
+	CONSTANT,
+	CONJUNCTION,
+	DISJUNCTION,
+	NEGATION,
+	VARIABLE,
+	MODALITY,
+	FIXED_POINT,
+	LET,
+	CALL;
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -25,7 +25,7 @@ public class LetFormula extends AbstractFormula {
 	final private Formula formula;
 
 	protected LetFormula(FormulaCreator creator, VariableFormula variable, Formula expansion, Formula formula) {
-		super(creator);
+		super(creator, FormulaKind.LET);
 		this.variable = variable;
 		this.expansion = expansion;
 		this.formula = formula;
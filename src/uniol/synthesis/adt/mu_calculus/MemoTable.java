@@ -0,0 +1,110 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the results of a computation on formulas of one {@link FormulaCreator}. Formulas are referenced weakly,
+ * so remembering a result does not keep its formula alive. Results that are formulas are referenced weakly as well,
+ * since they might be or contain the formula itself; they are remembered for as long as they are used elsewhere.
+ * Other results are referenced softly and must not refer to the formula. In an arena, where formulas are never
+ * garbage collected, formulas and results are referenced strongly instead.
+ * @param <V> The type of results.
+ * @see FormulaCreator#getMemoTable
+ */
+public class MemoTable<V> {
+	final private String name;
+	// Exactly one of these is used, depending on whether the formula creator is an arena
+	private Map<Formula, Reference<V>> results;
+	private Map<Formula, V> strongResults;
+	private long hits = 0;
+	private long misses = 0;
+
+	MemoTable(String name, boolean strong) {
+		this.name = name;
+		this.results = strong ? null : new WeakHashMap<Formula, Reference<V>>();
+		this.strongResults = strong ? new HashMap<Formula, V>() : null;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the remembered result for a formula.
+	 * @param formula The formula to look up.
+	 * @return The result or null if there is none.
+	 */
+	synchronized public V get(Formula formula) {
+		V result;
+		if (strongResults != null) {
+			result = strongResults.get(formula);
+		} else {
+			Reference<V> reference = results.get(formula);
+			result = reference == null ? null : reference.get();
+		}
+		if (result == null)
+			misses++;
+		else
+			hits++;
+		return result;
+	}
+
+	synchronized public void put(Formula formula, V result) {
+		if (strongResults != null)
+			strongResults.put(formula, result);
+		else if (result instanceof Formula)
+			results.put(formula, new WeakReference<>(result));
+		else
+			results.put(formula, new SoftReference<>(result));
+	}
+
+	// Reference formulas and results like in a creator that is not an arena
+	synchronized void releaseStrongReferences() {
+		if (strongResults == null)
+			return;
+		Map<Formula, V> released = strongResults;
+		strongResults = null;
+		results = new WeakHashMap<>();
+		for (Map.Entry<Formula, V> entry : released.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+
+	synchronized public long getHits() {
+		return hits;
+	}
+
+	synchronized public long getMisses() {
+		return misses;
+	}
+
+	@Override
+	synchronized public String toString() {
+		return name + ": " + hits + " hits, " + misses + " misses";
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -22,12 +22,14 @@ package uniol.synthesis.adt.mu_calculus;
 public class ModalityFormula extends AbstractFormula {
 	final private Modality modality;
 	final private String event;
+	final private int eventId;
 	final private Formula formula;
 
-	protected ModalityFormula(FormulaCreator creator, Modality modality, String event, Formula formula) {
-		super(creator);
+	protected ModalityFormula(FormulaCreator creator, Modality modality, int eventId, Formula formula) {
+		super(creator, FormulaKind.MODALITY);
 		this.modality = modality;
-		this.event = event;
+		this.event = creator.getEventTable().getEvent(eventId);
+		this.eventId = eventId;
 		this.formula = formula;
 	}
 
@@ -39,21 +41,29 @@ public class ModalityFormula extends AbstractFormula {
 		return event;
 	}
 
+	/**
+	 * Get the id of the event in the {@link EventTable} of this formula's creator.
+	 * @return The id of the event.
+	 */
+	public int getEventId() {
+		return eventId;
+	}
+
 	public Formula getFormula() {
 		return formula;
 	}
 
-	static ModalityFormula modality(FormulaCreator creator, Modality modality, String event, Formula innerFormula) {
-		int hashCode = modality.hashCode() ^ event.hashCode() ^ innerFormula.hashCode();
+	static ModalityFormula modality(FormulaCreator creator, Modality modality, int eventId, Formula innerFormula) {
+		int hashCode = modality.hashCode() ^ (31 * eventId) ^ innerFormula.hashCode();
 		for (Formula formula : creator.getFormulasWithHashCode(hashCode)) {
 			if (formula instanceof ModalityFormula) {
 				ModalityFormula result = (ModalityFormula) formula;
-				if (result.getModality().equals(modality) && result.getEvent().equals(event)
+				if (result.getModality().equals(modality) && result.getEventId() == eventId
 						&& result.getFormula().equals(innerFormula))
 					return result;
 			}
 		}
-		ModalityFormula result = new ModalityFormula(creator, modality, event, innerFormula);
+		ModalityFormula result = new ModalityFormula(creator, modality, eventId, innerFormula);
 		creator.addFormulaInternal(hashCode, result);
 		return result;
 	}
@@ -23,7 +23,7 @@ public class NegationFormula extends AbstractFormula {
 	final private Formula formula;
 
 	protected NegationFormula(FormulaCreator creator, Formula formula) {
-		super(creator);
+		super(creator, FormulaKind.NEGATION);
 		this.formula = formula;
 	}
 
@@ -21,16 +21,28 @@ package uniol.synthesis.adt.mu_calculus;
 
 public class VariableFormula extends AbstractFormula {
 	private final String var;
+	private final int index;
 
-	protected VariableFormula(FormulaCreator creator, String var) {
-		super(creator);
+	protected VariableFormula(FormulaCreator creator, String var, int index) {
+		super(creator, FormulaKind.VARIABLE);
 		this.var = var;
+		this.index = index;
 	}
 
 	public String getVariable() {
 		return var;
 	}
 
+	/**
+	 * Get the index of this variable. The live variables of a {@link FormulaCreator} are numbered densely; the
+	 * index of a variable that was garbage collected is reused for the next new variable.
+	 * @return The index of this variable.
+	 * @see FormulaCreator#getVariable
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	static VariableFormula variable(FormulaCreator creator, String var, boolean onlyIfNew) {
 		int hashCode = var.hashCode();
 		for (Formula formula : creator.getFormulasWithHashCode(hashCode)) {
@@ -40,8 +52,9 @@ public class VariableFormula extends AbstractFormula {
 					return onlyIfNew ? null : result;
 			}
 		}
-		VariableFormula result = new VariableFormula(creator, var);
+		VariableFormula result = new VariableFormula(creator, var, creator.nextVariableIndexInternal());
 		creator.addFormulaInternal(hashCode, result);
+		creator.addVariableInternal(result);
 		return result;
 	}
 }
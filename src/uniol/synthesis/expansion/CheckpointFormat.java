@@ -0,0 +1,319 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uniol.apt.adt.ts.Arc;
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+import uniol.apt.util.Pair;
+
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+import uniol.synthesis.tableau.StateFollowArcs;
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.tableau.TableauNode;
+import uniol.synthesis.util.FormulaReader;
+import uniol.synthesis.util.FormulaWriter;
+
+/**
+ * The on-disk format of search checkpoints. A checkpoint consists of the string and formula tables written by {@link
+ * FormulaWriter}, a table of transition systems and finally the search states. Thus, each formula and each
+ * transition system that is shared between search states is only written once.
+ */
+class CheckpointFormat {
+	static final int MAGIC = 0x52464350;
+	static final int VERSION = 2;
+
+	private CheckpointFormat() {
+	}
+
+	/**
+	 * The content of a checkpoint.
+	 */
+	static class Content {
+		private final Formula formula;
+		private final int results;
+		private final List<Pair<TransitionSystem, Tableau<State>>> states;
+
+		Content(Formula formula, int results, List<Pair<TransitionSystem, Tableau<State>>> states) {
+			this.formula = formula;
+			this.results = results;
+			this.states = states;
+		}
+
+		Formula getFormula() {
+			return formula;
+		}
+
+		int getResults() {
+			return results;
+		}
+
+		List<Pair<TransitionSystem, Tableau<State>>> getStates() {
+			return states;
+		}
+	}
+
+	static void write(DataOutputStream out, Formula formula, int results, Collection<SearchState> states)
+			throws IOException {
+		new Writer().write(out, formula, results, states);
+	}
+
+	static Content read(DataInputStream in, FormulaCreator creator) throws IOException {
+		return new Reader(in, creator).read();
+	}
+
+	static private class Writer {
+		// The body refers to strings and formulas by index, but the tables have to come first in the file.
+		// Thus, the tables are collected while the body is written to a buffer.
+		private final FormulaWriter formulas = new FormulaWriter();
+
+		private int string(String str) {
+			return formulas.addString(str);
+		}
+
+		private int formula(Formula formula) {
+			return formulas.addFormula(formula);
+		}
+
+		private void write(DataOutputStream out, Formula root, int results, Collection<SearchState> states)
+				throws IOException {
+			ByteArrayOutputStream bodyBuffer = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(bodyBuffer);
+
+			body.writeInt(formula(root));
+			body.writeInt(results);
+
+			// Transition systems are shared between search states, so write each of them only once
+			Map<TransitionSystem, Integer> systems = new IdentityHashMap<>();
+			List<Map<State, Integer>> stateIndices = new ArrayList<>();
+			ByteArrayOutputStream tsBuffer = new ByteArrayOutputStream();
+			DataOutputStream tsTable = new DataOutputStream(tsBuffer);
+			for (SearchState state : states) {
+				TransitionSystem ts = state.getTransitionSystem();
+				if (systems.containsKey(ts))
+					continue;
+				systems.put(ts, systems.size());
+				stateIndices.add(writeTransitionSystem(tsTable, ts));
+			}
+
+			body.writeInt(states.size());
+			for (SearchState state : states) {
+				int tsIndex = systems.get(state.getTransitionSystem());
+				body.writeInt(tsIndex);
+				writeTableau(body, stateIndices.get(tsIndex), state.getTableau());
+			}
+			body.flush();
+			tsTable.flush();
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			formulas.writeTables(out);
+			out.writeInt(systems.size());
+			tsBuffer.writeTo(out);
+			bodyBuffer.writeTo(out);
+			out.flush();
+		}
+
+		private Map<State, Integer> writeTransitionSystem(DataOutputStream out, TransitionSystem ts)
+				throws IOException {
+			Map<State, Integer> indices = new HashMap<>();
+			out.writeInt(ts.getNodes().size());
+			for (State state : ts.getNodes()) {
+				indices.put(state, indices.size());
+				out.writeInt(string(state.getId()));
+			}
+			out.writeInt(indices.get(ts.getInitialState()));
+			out.writeInt(ts.getEdges().size());
+			for (Arc arc : ts.getEdges()) {
+				out.writeInt(indices.get(arc.getSource()));
+				out.writeInt(indices.get(arc.getTarget()));
+				out.writeInt(string(arc.getLabel()));
+			}
+			return indices;
+		}
+
+		private void writeTableau(DataOutputStream out, Map<State, Integer> stateIndices,
+				Tableau<State> tableau) throws IOException {
+			out.writeInt(tableau.getLeaves().size());
+			for (TableauNode<State> node : tableau.getLeaves()) {
+				out.writeInt(stateIndices.get(node.getState()));
+				out.writeInt(formula(node.getFormula()));
+
+				Map<VariableFormula, FixedPointFormula> definitions = node.getConstantDefinitions();
+				out.writeInt(definitions.size());
+				for (Map.Entry<VariableFormula, FixedPointFormula> entry : definitions.entrySet()) {
+					out.writeInt(formula(entry.getKey()));
+					out.writeInt(formula(entry.getValue()));
+				}
+
+				Set<Pair<State, VariableFormula>> expansions = node.getExpansionsAbove();
+				out.writeInt(expansions.size());
+				for (Pair<State, VariableFormula> pair : expansions) {
+					out.writeInt(stateIndices.get(pair.getFirst()));
+					out.writeInt(formula(pair.getSecond()));
+				}
+			}
+
+			Map<State, Set<Formula>> handled = tableau.getHandled();
+			out.writeInt(handled.size());
+			for (Map.Entry<State, Set<Formula>> entry : handled.entrySet()) {
+				out.writeInt(stateIndices.get(entry.getKey()));
+				out.writeInt(entry.getValue().size());
+				for (Formula formula : entry.getValue())
+					out.writeInt(formula(formula));
+			}
+		}
+	}
+
+	static private class Reader {
+		private final DataInputStream in;
+		private final FormulaReader formulas;
+
+		private Reader(DataInputStream in, FormulaCreator creator) {
+			this.in = in;
+			this.formulas = new FormulaReader(creator);
+		}
+
+		private int readIndex(int limit) throws IOException {
+			return FormulaReader.readIndex(in, limit);
+		}
+
+		private int readCount() throws IOException {
+			return FormulaReader.readCount(in);
+		}
+
+		private String readString() throws IOException {
+			return formulas.readString(in);
+		}
+
+		private Formula readFormula() throws IOException {
+			return formulas.readFormula(in);
+		}
+
+		private <T extends Formula> T readFormula(Class<T> type) throws IOException {
+			return formulas.readFormula(in, type);
+		}
+
+		private Content read() throws IOException {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a checkpoint file");
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported checkpoint version " + version);
+
+			formulas.readTables(in);
+
+			List<TransitionSystem> systems = new ArrayList<>();
+			List<State[]> systemStates = new ArrayList<>();
+			int tsCount = readCount();
+			for (int i = 0; i < tsCount; i++) {
+				TransitionSystem ts = new TransitionSystem();
+				systems.add(ts);
+				systemStates.add(readTransitionSystem(ts));
+			}
+
+			Formula formula = readFormula();
+			int results = readCount();
+
+			int stateCount = readCount();
+			List<Pair<TransitionSystem, Tableau<State>>> states = new ArrayList<>(stateCount);
+			for (int i = 0; i < stateCount; i++) {
+				int tsIndex = readIndex(systems.size());
+				Tableau<State> tableau = readTableau(systemStates.get(tsIndex));
+				states.add(new Pair<>(systems.get(tsIndex), tableau));
+			}
+
+			if (in.read() != -1)
+				throw new IOException("Unexpected data at the end of checkpoint");
+			return new Content(formula, results, states);
+		}
+
+		private State[] readTransitionSystem(TransitionSystem ts) throws IOException {
+			State[] states = new State[readCount()];
+			for (int i = 0; i < states.length; i++)
+				states[i] = ts.createState(readString());
+			ts.setInitialState(states[readIndex(states.length)]);
+			int arcCount = readCount();
+			for (int i = 0; i < arcCount; i++) {
+				State source = states[readIndex(states.length)];
+				State target = states[readIndex(states.length)];
+				ts.createArc(source, target, readString());
+			}
+			return states;
+		}
+
+		private Tableau<State> readTableau(State[] states) throws IOException {
+			StateFollowArcs followArcs = new StateFollowArcs();
+			int leafCount = readCount();
+			List<TableauNode<State>> leaves = new ArrayList<>(leafCount);
+			for (int i = 0; i < leafCount; i++) {
+				State state = states[readIndex(states.length)];
+				Formula formula = readFormula();
+
+				Map<VariableFormula, FixedPointFormula> definitions = new HashMap<>();
+				int definitionCount = readCount();
+				for (int j = 0; j < definitionCount; j++) {
+					VariableFormula var = readFormula(VariableFormula.class);
+					definitions.put(var, readFormula(FixedPointFormula.class));
+				}
+
+				Set<Pair<State, VariableFormula>> expansions = new HashSet<>();
+				int expansionCount = readCount();
+				for (int j = 0; j < expansionCount; j++) {
+					State expansionState = states[readIndex(states.length)];
+					expansions.add(new Pair<>(expansionState, readFormula(VariableFormula.class)));
+				}
+
+				leaves.add(TableauNode.createNode(followArcs, state, formula, definitions, expansions));
+			}
+
+			Map<State, Set<Formula>> handled = new HashMap<>();
+			int handledCount = readCount();
+			for (int i = 0; i < handledCount; i++) {
+				State state = states[readIndex(states.length)];
+				int formulaCount = readCount();
+				Set<Formula> set = new HashSet<>();
+				for (int j = 0; j < formulaCount; j++)
+					set.add(readFormula());
+				handled.put(state, set);
+			}
+
+			return Tableau.createTableau(leaves, handled);
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
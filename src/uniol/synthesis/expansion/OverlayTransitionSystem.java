@@ -0,0 +1,151 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uniol.apt.adt.exception.NoSuchNodeException;
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+
+import uniol.synthesis.tableau.FollowArcs;
+
+/**
+ * A transition system that consists of a base transition system and some added states and arcs. The base is shared
+ * and never modified, so creating many variants of the same transition system is cheap. States are identified by
+ * their id. A real {@link TransitionSystem} is only created when {@link #toTransitionSystem()} is called.
+ */
+public class OverlayTransitionSystem implements FollowArcs<String> {
+	private final TransitionSystem base;
+	private final Set<String> addedStates = new HashSet<>();
+	private final Map<String, Map<String, Set<String>>> addedArcs = new HashMap<>();
+	private final List<String[]> addedArcList = new ArrayList<>();
+	private int nextStateNumber;
+	private TransitionSystem materialised = null;
+
+	public OverlayTransitionSystem(TransitionSystem base) {
+		this.base = base;
+		// States created via TransitionSystem#createState() are numbered like this, so the first id that is
+		// tried is usually free
+		this.nextStateNumber = base.getNodes().size();
+	}
+
+	public TransitionSystem getBase() {
+		return base;
+	}
+
+	public boolean hasChanges() {
+		return !addedStates.isEmpty() || !addedArcList.isEmpty();
+	}
+
+	public int getStateCount() {
+		return base.getNodes().size() + addedStates.size();
+	}
+
+	public boolean containsState(String id) {
+		if (addedStates.contains(id))
+			return true;
+		try {
+			base.getNode(id);
+			return true;
+		} catch (NoSuchNodeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Add a new state.
+	 * @return The id of the new state.
+	 */
+	public String createState() {
+		String id;
+		do {
+			id = "s" + nextStateNumber++;
+		} while (containsState(id));
+		addedStates.add(id);
+		materialised = null;
+		return id;
+	}
+
+	public void createArc(String source, String target, String label) {
+		if (!containsState(source))
+			throw new IllegalArgumentException("Unknown state " + source);
+		if (!containsState(target))
+			throw new IllegalArgumentException("Unknown state " + target);
+
+		Map<String, Set<String>> arcs = addedArcs.get(source);
+		if (arcs == null) {
+			arcs = new HashMap<>();
+			addedArcs.put(source, arcs);
+		}
+		Set<String> targets = arcs.get(label);
+		if (targets == null) {
+			targets = new HashSet<>();
+			arcs.put(label, targets);
+		}
+		if (targets.add(target)) {
+			addedArcList.add(new String[] { source, target, label });
+			materialised = null;
+		}
+	}
+
+	@Override
+	public Set<String> followArcs(String node, String label) {
+		Set<String> result = new HashSet<>();
+		if (!addedStates.contains(node))
+			for (State state : base.getNode(node).getPostsetNodesByLabel(label))
+				result.add(state.getId());
+		Map<String, Set<String>> arcs = addedArcs.get(node);
+		if (arcs != null) {
+			Set<String> targets = arcs.get(label);
+			if (targets != null)
+				result.addAll(targets);
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Get this transition system as a real transition system. Without any changes, the base is returned and
+	 * must not be modified. Otherwise, a new transition system is created once and returned by all following
+	 * calls until this overlay is modified again.
+	 * @return The transition system.
+	 */
+	public TransitionSystem toTransitionSystem() {
+		if (!hasChanges())
+			return base;
+		if (materialised == null) {
+			TransitionSystem ts = new TransitionSystem(base);
+			for (String state : addedStates)
+				ts.createState(state);
+			for (String[] arc : addedArcList)
+				ts.createArc(arc[0], arc[1], arc[2]);
+			materialised = ts;
+		}
+		return materialised;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
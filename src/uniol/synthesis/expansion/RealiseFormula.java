@@ -19,8 +19,10 @@
 
 package uniol.synthesis.expansion;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.apache.commons.collections4.Transformer;
 
@@ -110,22 +112,42 @@ public class RealiseFormula {
 	private final ContinueTableauFactory continueTableauFactory;
 	private final OverapproximateTS overapproximateTS;
 	private final int maxStepsWithoutApproximations;
+	private final SearchStrategy searchStrategy;
 
 	public RealiseFormula(PNProperties properties, RealisationCallback realisationCallback) {
-		this(properties, realisationCallback, properties.isKBounded() ? 2 * properties.getKForKBounded() : 2);
+		this(properties, realisationCallback, SearchStrategy.DEPTH_FIRST);
+	}
+
+	public RealiseFormula(PNProperties properties, RealisationCallback realisationCallback,
+			SearchStrategy searchStrategy) {
+		this(properties, realisationCallback,
+				properties.isKBounded() ? 2 * properties.getKForKBounded() : 2, searchStrategy);
 	}
 
 	public RealiseFormula(PNProperties properties, RealisationCallback realisationCallback,
 			int maxStepsWithoutApproximations) {
+		this(properties, realisationCallback, maxStepsWithoutApproximations, SearchStrategy.DEPTH_FIRST);
+	}
+
+	public RealiseFormula(PNProperties properties, RealisationCallback realisationCallback,
+			int maxStepsWithoutApproximations, SearchStrategy searchStrategy) {
 		this(realisationCallback, new MissingArcsFinder<State>(), new DefaultReachingWordTransformerFactory(),
 				new DefaultContinueTableauFactory(), new DefaultOverapproximateTS(properties),
-				maxStepsWithoutApproximations);
+				maxStepsWithoutApproximations, searchStrategy);
 	}
 
 	RealiseFormula(RealisationCallback realisationCallback, MissingArcsFinder<State> missingArcsFinder,
 			ReachingWordTransformerFactory reachingWordTransformerFactory,
 			ContinueTableauFactory continueTableauFactory, OverapproximateTS overapproximateTS,
 			int maxStepsWithoutApproximations) {
+		this(realisationCallback, missingArcsFinder, reachingWordTransformerFactory, continueTableauFactory,
+				overapproximateTS, maxStepsWithoutApproximations, SearchStrategy.DEPTH_FIRST);
+	}
+
+	RealiseFormula(RealisationCallback realisationCallback, MissingArcsFinder<State> missingArcsFinder,
+			ReachingWordTransformerFactory reachingWordTransformerFactory,
+			ContinueTableauFactory continueTableauFactory, OverapproximateTS overapproximateTS,
+			int maxStepsWithoutApproximations, SearchStrategy searchStrategy) {
 		assert maxStepsWithoutApproximations > 0;
 		this.realisationCallback = realisationCallback;
 		this.missingArcsFinder = missingArcsFinder;
@@ -133,33 +155,96 @@ public class RealiseFormula {
 		this.continueTableauFactory = continueTableauFactory;
 		this.overapproximateTS = overapproximateTS;
 		this.maxStepsWithoutApproximations = maxStepsWithoutApproximations;
+		this.searchStrategy = searchStrategy;
 	}
 
-	static class Worker implements NonRecursive.Walker {
+	static class Worker implements SearchState {
 		private final RealiseFormula rf;
 		private final TransitionSystem ts;
 		private final Tableau<State> tableau;
+		private final SearchLimit limit;
+		private final SearchCheckpoint checkpoint;
 
 		public Worker(RealiseFormula rf, TransitionSystem ts, Tableau<State> tableau) {
+			this(rf, ts, tableau, SearchLimit.unlimited());
+		}
+
+		public Worker(RealiseFormula rf, TransitionSystem ts, Tableau<State> tableau, SearchLimit limit) {
+			this(rf, ts, tableau, limit, null);
+		}
+
+		public Worker(RealiseFormula rf, TransitionSystem ts, Tableau<State> tableau, SearchLimit limit,
+				SearchCheckpoint checkpoint) {
 			this.rf = rf;
 			this.ts = ts;
 			this.tableau = tableau;
+			this.limit = limit;
+			this.checkpoint = checkpoint;
 		}
 
 		TransitionSystem getTsForTest() {
 			return ts;
 		}
 
+		@Override
+		public TransitionSystem getTransitionSystem() {
+			return ts;
+		}
+
+		@Override
+		public Tableau<State> getTableau() {
+			return tableau;
+		}
+
+		@Override
+		public int getStateCount() {
+			return ts.getNodes().size();
+		}
+
+		@Override
+		public int getPendingObligations() {
+			return tableau.countUnsuccessfulLeaves();
+		}
+
+		private boolean stopIfReached(NonRecursive engine) {
+			// Save what is left before the engine is stopped so that the search can be continued later
+			if (checkpoint != null && limit.isReached())
+				checkpoint.write(engine, this, limit);
+			return limit.stopIfReached(engine);
+		}
+
 		@Override
 		public void walk(NonRecursive engine) {
+			if (stopIfReached(engine))
+				return;
+			if (checkpoint != null)
+				checkpoint.writeIfDue(engine, this, limit);
+
 			// Overapproximate the current ts and transform the tableau to the overapproximated ts
 			TransitionSystem overapproxTS = rf.overapproximateTS.overapproximate(ts);
 			Tableau<State> transformedTableau =
 				tableau.transform(rf.reachingWordTransformerFactory.create(overapproxTS));
 
 			// For each possible way to continue the tableau, expand the ts
-			for (Tableau<State> currentTableau :
-					rf.continueTableauFactory.continueTableau(transformedTableau)) {
+			List<Tableau<State>> continuations =
+				new ArrayList<>(rf.continueTableauFactory.continueTableau(transformedTableau));
+			for (int index = 0; index < continuations.size(); index++) {
+				if (limit.isReached()) {
+					// The continuations that were not handled yet become search states of their
+					// own. Overapproximating overapproxTS again does not change it.
+					if (checkpoint != null) {
+						List<SearchState> remaining = new ArrayList<>();
+						for (int j = continuations.size() - 1; j >= index; j--)
+							remaining.add(new Worker(rf, overapproxTS, continuations.get(j),
+										limit, checkpoint));
+						checkpoint.write(engine, remaining, limit);
+					}
+					limit.stopIfReached(engine);
+					return;
+				}
+
+				Tableau<State> currentTableau = continuations.get(index);
+
 				if (currentTableau.isSuccessful()) {
 					rf.realisationCallback.foundRealisation(overapproxTS, currentTableau);
 					continue;
@@ -218,7 +303,7 @@ public class RealiseFormula {
 
 				// Create child instances for continuing where needed
 				for (Tableau<State> newTableau : nextTableaus)
-					engine.enqueue(new Worker(rf, currentTs, newTableau));
+					engine.enqueue(new Worker(rf, currentTs, newTableau, limit, checkpoint));
 			}
 		}
 	}
@@ -230,14 +315,54 @@ public class RealiseFormula {
 	}
 
 	public void realise(Formula formula) {
+		realise(formula, SearchLimit.unlimited());
+	}
+
+	public void realise(Formula formula, SearchLimit limit) {
+		realise(formula, limit, null);
+	}
+
+	public void realise(Formula formula, SearchLimit limit, SearchCheckpoint checkpoint) {
 		TransitionSystem ts = getEmptyTS();
 		formula = positiveForm(unLet(formula));
 		realise(ts, Tableau.<State>createInitialTableau(
-					new StateFollowArcs(), ts.getInitialState(), formula));
+					new StateFollowArcs(), ts.getInitialState(), formula), limit, checkpoint);
 	}
 
 	public void realise(TransitionSystem ts, Tableau<State> tableau) {
-		new NonRecursive().run(new Worker(this, ts, tableau));
+		realise(ts, tableau, SearchLimit.unlimited());
+	}
+
+	public void realise(TransitionSystem ts, Tableau<State> tableau, SearchLimit limit) {
+		realise(ts, tableau, limit, null);
+	}
+
+	public void realise(TransitionSystem ts, Tableau<State> tableau, SearchLimit limit,
+			SearchCheckpoint checkpoint) {
+		NonRecursive engine = searchStrategy.createEngine();
+		engine.enqueue(new Worker(this, ts, tableau, limit, checkpoint));
+		run(engine, limit, checkpoint);
+	}
+
+	/**
+	 * Continue a search that was saved in a checkpoint.
+	 * @param resumed The search states that were read from the checkpoint.
+	 * @param limit The limit for the continued search. The results that were found before the checkpoint was
+	 * written are added to it.
+	 * @param checkpoint Where to write new checkpoints to or null to not write any checkpoints.
+	 */
+	public void resume(SearchCheckpoint.Resumed resumed, SearchLimit limit, SearchCheckpoint checkpoint) {
+		limit.foundResults(resumed.getResults());
+		NonRecursive engine = searchStrategy.createEngine();
+		for (Pair<TransitionSystem, Tableau<State>> state : resumed.getStates())
+			engine.enqueue(new Worker(this, state.getFirst(), state.getSecond(), limit, checkpoint));
+		run(engine, limit, checkpoint);
+	}
+
+	private void run(NonRecursive engine, SearchLimit limit, SearchCheckpoint checkpoint) {
+		engine.run();
+		if (checkpoint != null && !limit.wasTruncated())
+			checkpoint.writeFinished(limit);
 	}
 }
 
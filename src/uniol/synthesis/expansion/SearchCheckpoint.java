@@ -0,0 +1,169 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+import uniol.apt.util.Pair;
+
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.util.NonRecursive;
+
+/**
+ * Periodically save the frontier of a search for realisations to a file, so that the search can later be resumed
+ * with {@link RealiseFormula#resume}. A checkpoint contains all search states that still have to be explored and
+ * the number of results found so far. Checkpoints are written before a search state is explored, so resuming
+ * continues exactly where the checkpoint was written. When the {@link SearchLimit} is reached while a search state
+ * is explored, the parts of it that were not explored yet are saved as search states of their own.
+ */
+public class SearchCheckpoint {
+	private final File file;
+	private final long intervalNanos;
+	private final Formula formula;
+	private long lastWrite;
+
+	/**
+	 * Create a new checkpoint.
+	 * @param file The file that the checkpoint is written to. An existing file is replaced.
+	 * @param intervalMillis The number of milliseconds between two checkpoints.
+	 * @param formula The formula that is realised. When resuming, the formula must be the same.
+	 */
+	public SearchCheckpoint(File file, long intervalMillis, Formula formula) {
+		if (intervalMillis <= 0)
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		this.file = file;
+		this.intervalNanos = intervalMillis * 1000 * 1000;
+		this.formula = formula;
+		this.lastWrite = System.nanoTime();
+	}
+
+	/**
+	 * A search that was read back from a checkpoint.
+	 */
+	static public class Resumed {
+		private final int results;
+		private final List<Pair<TransitionSystem, Tableau<State>>> states;
+
+		private Resumed(int results, List<Pair<TransitionSystem, Tableau<State>>> states) {
+			this.results = results;
+			this.states = states;
+		}
+
+		public int getResults() {
+			return results;
+		}
+
+		public List<Pair<TransitionSystem, Tableau<State>>> getStates() {
+			return states;
+		}
+	}
+
+	// Write a checkpoint if the interval elapsed since the last one. The current search state was already
+	// removed from the engine and must be passed separately.
+	void writeIfDue(NonRecursive engine, SearchState current, SearchLimit limit) {
+		if (System.nanoTime() - lastWrite >= intervalNanos)
+			write(engine, current, limit);
+	}
+
+	void write(NonRecursive engine, SearchState current, SearchLimit limit) {
+		List<SearchState> states = Collections.emptyList();
+		if (current != null)
+			states = Collections.singletonList(current);
+		write(engine, states, limit);
+	}
+
+	// Write a checkpoint with the given states in addition to the states that are still queued in the engine
+	void write(NonRecursive engine, List<SearchState> current, SearchLimit limit) {
+		List<SearchState> states = new ArrayList<>();
+		for (NonRecursive.Walker walker : engine.getQueued())
+			if (walker instanceof SearchState)
+				states.add((SearchState) walker);
+		// The current states were most recently taken out of the engine; by adding them last, the last one
+		// will be explored first after resuming with a depth first search.
+		states.addAll(current);
+		write(states, limit);
+	}
+
+	// Record that the search finished and there is nothing left to resume
+	void writeFinished(SearchLimit limit) {
+		write(Collections.<SearchState>emptyList(), limit);
+	}
+
+	private void write(List<SearchState> states, SearchLimit limit) {
+		File directory = file.getAbsoluteFile().getParentFile();
+		try {
+			// Write to a temporary file first so that an interrupted write does not destroy the last
+			// checkpoint.
+			File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+			try {
+				try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp))) {
+					CheckpointFormat.write(new DataOutputStream(os), formula, limit.getResults(),
+							states);
+				}
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp.toPath());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		lastWrite = System.nanoTime();
+	}
+
+	/**
+	 * Read a checkpoint.
+	 * @param file The file containing the checkpoint.
+	 * @param formula The formula that is realised. This must be the formula that the checkpoint was created
+	 * for.
+	 * @return The search states and the number of results that were found before the checkpoint was written.
+	 * @throws IOException If the file cannot be read, is not a valid checkpoint or belongs to another formula.
+	 */
+	static public Resumed read(File file, Formula formula) throws IOException {
+		CheckpointFormat.Content content;
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+			content = CheckpointFormat.read(new DataInputStream(is), formula.getCreator());
+		}
+		// Formulas are hash-consed, so identity tells us if this is the same formula
+		if (content.getFormula() != formula)
+			throw new IOException("Checkpoint " + file + " was created for another formula: "
+					+ content.getFormula());
+		return new Resumed(content.getResults(), content.getStates());
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,104 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import uniol.synthesis.util.NonRecursive;
+
+/**
+ * Limits for a search for realisations. A search can be limited in the number of results it produces and in the
+ * time it may take. When the limit is reached, the search is stopped by discarding all of the remaining work of
+ * its {@link NonRecursive} engine.
+ */
+public class SearchLimit {
+	private final int maxResults;
+	private final long timeoutNanos;
+	private final long startTime;
+	private int results = 0;
+	private boolean truncated = false;
+
+	/**
+	 * Create a new limit.
+	 * @param maxResults The number of results after which the search stops, or zero for no limit.
+	 * @param timeoutMillis The number of milliseconds after which the search stops, or zero for no limit.
+	 */
+	public SearchLimit(int maxResults, long timeoutMillis) {
+		if (maxResults < 0)
+			throw new IllegalArgumentException("Maximum number of results cannot be negative");
+		if (timeoutMillis < 0)
+			throw new IllegalArgumentException("Timeout cannot be negative");
+		this.maxResults = maxResults;
+		this.timeoutNanos = timeoutMillis * 1000 * 1000;
+		this.startTime = System.nanoTime();
+	}
+
+	static public SearchLimit unlimited() {
+		return new SearchLimit(0, 0);
+	}
+
+	public void foundResult() {
+		results++;
+	}
+
+	// Account for results that were found earlier, e.g. before a search was resumed from a checkpoint
+	public void foundResults(int count) {
+		if (count < 0)
+			throw new IllegalArgumentException("Number of results cannot be negative");
+		results += count;
+	}
+
+	public int getResults() {
+		return results;
+	}
+
+	public boolean hasEnoughResults() {
+		return maxResults > 0 && results >= maxResults;
+	}
+
+	public boolean hasTimedOut() {
+		return timeoutNanos > 0 && System.nanoTime() - startTime >= timeoutNanos;
+	}
+
+	public boolean isReached() {
+		return hasEnoughResults() || hasTimedOut();
+	}
+
+	/**
+	 * Stop the given engine if the limit was reached. This should be called before doing more work.
+	 * @param engine The engine that should be stopped.
+	 * @return true if the engine was stopped and the caller should not do any more work.
+	 */
+	public boolean stopIfReached(NonRecursive engine) {
+		if (!isReached())
+			return false;
+		truncated = true;
+		engine.reset();
+		return true;
+	}
+
+	/**
+	 * Check if the search was stopped while there was still work to do.
+	 * @return true if some part of the search space was not explored due to the limit.
+	 */
+	public boolean wasTruncated() {
+		return truncated;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,43 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.util.NonRecursive;
+
+/**
+ * A unit of work of a realisation search. It describes a transition system together with a tableau that still
+ * has to be continued. {@link SearchStrategy} uses this information to decide which unit of work is handled next.
+ */
+public interface SearchState extends NonRecursive.Walker {
+	TransitionSystem getTransitionSystem();
+	Tableau<State> getTableau();
+
+	// Same as getTransitionSystem().getNodes().size(), but might be cheaper
+	int getStateCount();
+
+	// Same as counting the unsuccessful leaves of getTableau(), but might be cheaper
+	int getPendingObligations();
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
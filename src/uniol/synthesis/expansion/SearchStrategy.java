@@ -0,0 +1,224 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import uniol.synthesis.util.NonRecursive;
+
+/**
+ * The order in which the search for realisations explores its search space. Each strategy creates a {@link
+ * NonRecursive} engine which decides on the order in which enqueued {@link SearchState}s are handled. All other
+ * walkers are still handled last-in-first-out and before any search state.
+ */
+public enum SearchStrategy {
+	/**
+	 * Explore the most recently created search state first. This is the order of a plain {@link NonRecursive}.
+	 */
+	DEPTH_FIRST {
+		@Override
+		public NonRecursive createEngine() {
+			return new NonRecursive();
+		}
+	},
+	/**
+	 * Explore the search state with the smallest transition system first.
+	 */
+	SMALLEST_TS {
+		@Override
+		public NonRecursive createEngine() {
+			return new PriorityEngine(SearchStrategy.STATE_COUNT);
+		}
+	},
+	/**
+	 * Explore the search state with the fewest unsuccessful leaves in its tableau first.
+	 */
+	FEWEST_OBLIGATIONS {
+		@Override
+		public NonRecursive createEngine() {
+			return new PriorityEngine(SearchStrategy.PENDING_OBLIGATIONS);
+		}
+	},
+	/**
+	 * Explore depth-first, but only search states whose transition system has at most some bound of states.
+	 * Larger search states are put aside. When no other states are left, the bound is raised to the smallest
+	 * transition system that was put aside and these states are explored. Unlike iterative deepening, the
+	 * search does not restart from the initial state, so nothing is explored twice, but all search states
+	 * that were put aside are kept in memory.
+	 */
+	SIZE_BOUNDED {
+		@Override
+		public NonRecursive createEngine() {
+			return new SizeBoundedEngine();
+		}
+	};
+
+	abstract public NonRecursive createEngine();
+
+	private interface Measure {
+		int measure(SearchState state);
+	}
+
+	static private final Measure STATE_COUNT = new Measure() {
+		@Override
+		public int measure(SearchState state) {
+			return state.getStateCount();
+		}
+	};
+
+	static private final Measure PENDING_OBLIGATIONS = new Measure() {
+		@Override
+		public int measure(SearchState state) {
+			return state.getPendingObligations();
+		}
+	};
+
+	static private class PriorityEngine extends NonRecursive {
+		private final Measure measure;
+		private final PriorityQueue<Entry> frontier = new PriorityQueue<>();
+		private long counter = 0;
+
+		private PriorityEngine(Measure measure) {
+			this.measure = measure;
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			frontier.clear();
+		}
+
+		@Override
+		public void enqueue(NonRecursive.Walker walker) {
+			if (walker instanceof SearchState) {
+				SearchState state = (SearchState) walker;
+				frontier.add(new Entry(state, measure.measure(state), counter++));
+			} else
+				super.enqueue(walker);
+		}
+
+		@Override
+		protected NonRecursive.Walker dequeue() {
+			NonRecursive.Walker result = super.dequeue();
+			if (result != null)
+				return result;
+			Entry entry = frontier.poll();
+			if (entry == null)
+				return null;
+			return entry.state;
+		}
+
+		@Override
+		public List<NonRecursive.Walker> getQueued() {
+			List<Entry> entries = new ArrayList<>(frontier);
+			Collections.sort(entries, new Comparator<Entry>() {
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					return Long.compare(e1.sequence, e2.sequence);
+				}
+			});
+			List<NonRecursive.Walker> result = new ArrayList<>();
+			for (Entry entry : entries)
+				result.add(entry.state);
+			result.addAll(super.getQueued());
+			return result;
+		}
+	}
+
+	static private class Entry implements Comparable<Entry> {
+		private final SearchState state;
+		private final int priority;
+		private final long sequence;
+
+		private Entry(SearchState state, int priority, long sequence) {
+			this.state = state;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (priority != other.priority)
+				return priority < other.priority ? -1 : 1;
+			// Among equally good states, prefer the most recent one, just like depth-first search does
+			if (sequence != other.sequence)
+				return sequence > other.sequence ? -1 : 1;
+			return 0;
+		}
+	}
+
+	static private class SizeBoundedEngine extends NonRecursive {
+		private final List<SearchState> deferred = new ArrayList<>();
+		private int bound = 1;
+		private int nextBound = Integer.MAX_VALUE;
+
+		@Override
+		public void reset() {
+			super.reset();
+			deferred.clear();
+			bound = 1;
+			nextBound = Integer.MAX_VALUE;
+		}
+
+		@Override
+		public void enqueue(NonRecursive.Walker walker) {
+			if (walker instanceof SearchState) {
+				SearchState state = (SearchState) walker;
+				int size = state.getStateCount();
+				if (size > bound) {
+					deferred.add(state);
+					nextBound = Math.min(nextBound, size);
+					return;
+				}
+			}
+			super.enqueue(walker);
+		}
+
+		@Override
+		protected NonRecursive.Walker dequeue() {
+			NonRecursive.Walker result = super.dequeue();
+			while (result == null && !deferred.isEmpty()) {
+				// Everything within the current bound was explored; raise the bound as little as
+				// possible and continue with the states that were skipped so far.
+				List<SearchState> states = new ArrayList<>(deferred);
+				deferred.clear();
+				bound = nextBound;
+				nextBound = Integer.MAX_VALUE;
+				for (SearchState state : states)
+					enqueue(state);
+				result = super.dequeue();
+			}
+			return result;
+		}
+
+		@Override
+		public List<NonRecursive.Walker> getQueued() {
+			List<NonRecursive.Walker> result = new ArrayList<NonRecursive.Walker>(deferred);
+			result.addAll(super.getQueued());
+			return result;
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -19,7 +19,9 @@
 
 package uniol.synthesis.modules;
 
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import uniol.apt.module.AbstractModule;
@@ -35,6 +37,7 @@ import uniol.synthesis.adt.mu_calculus.CallFormula;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.Modality;
 import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
@@ -42,6 +45,7 @@ import uniol.synthesis.util.AlphabetFinder;
 import uniol.synthesis.util.FormulaFormulaTransformer;
 import uniol.synthesis.util.NonRecursive;
 
+import static uniol.apt.util.DebugUtil.debug;
 import static uniol.synthesis.util.UnLetTransformer.unLet;
 
 @AptModule
@@ -108,6 +112,8 @@ public class CallExpansionModule extends AbstractModule implements Module {
 	@Override
 	public void require(ModuleInputSpec inputSpec) {
 		inputSpec.addParameter("formula", Formula.class, "The formula that should be modified");
+		inputSpec.addOptionalParameterWithDefault("binary_output", String.class, "", "",
+				FormulaParameterTransformation.BINARY_OUTPUT_DESCRIPTION);
 	}
 
 	@Override
@@ -118,13 +124,18 @@ public class CallExpansionModule extends AbstractModule implements Module {
 	@Override
 	public void run(ModuleInput input, ModuleOutput output) throws ModuleException {
 		Formula formula = input.getParameter("formula", Formula.class);
-		output.setReturnValue("formula", Formula.class, handleCalls(formula));
+		Formula result = handleCalls(formula);
+		for (MemoTable<?> table : formula.getCreator().getMemoTables())
+			debug(table);
+		FormulaParameterTransformation.writeBinaryOutput(input.getParameter("binary_output", String.class),
+				result);
+		output.setReturnValue("formula", Formula.class, result);
 	}
 
 	// Get the alphabet and use CallFindingTransformer to find & transform all supported invocations
 	public static Formula handleCalls(Formula formula) {
 		formula = unLet(formula);
-		Set<String> alphabet = AlphabetFinder.getAlphabet(formula);
+		BitSet alphabet = AlphabetFinder.getAlphabetIds(formula);
 		CallFindingTransformer hide = new CallFindingTransformer(alphabet);
 		NonRecursive engine = new NonRecursive();
 		hide.transform(engine, formula);
@@ -133,12 +144,28 @@ public class CallExpansionModule extends AbstractModule implements Module {
 	}
 
 	private static class CallFindingTransformer extends FormulaFormulaTransformer {
-		private final Set<String> fullAlphabet;
+		private final BitSet fullAlphabet;
+		// Hide calls with the same remaining alphabet share their transformer and thus its cache
+		private final Map<BitSet, HidingExpandModalityTransformer> hiders = new HashMap<>();
 
-		public CallFindingTransformer(Set<String> fullAlphabet) {
+		public CallFindingTransformer(BitSet fullAlphabet) {
 			this.fullAlphabet = fullAlphabet;
 		}
 
+		private Formula expandHide(Formula formula) {
+			// AlphabetFinder remembers the alphabets of subformulas, so nested hide calls do not visit the
+			// same subformulas again
+			BitSet remainingAlphabet = (BitSet) fullAlphabet.clone();
+			remainingAlphabet.andNot(AlphabetFinder.getAlphabetIds(formula));
+
+			HidingExpandModalityTransformer hide = hiders.get(remainingAlphabet);
+			if (hide == null) {
+				hide = new HidingExpandModalityTransformer(remainingAlphabet);
+				hiders.put(remainingAlphabet, hide);
+			}
+			return hide.expand(formula);
+		}
+
 		@Override
 		protected void enqueueWalker(NonRecursive engine, Formula formula) {
 			engine.enqueue(new Worker(formula));
@@ -167,7 +194,7 @@ public class CallExpansionModule extends AbstractModule implements Module {
 				Formula replacement;
 				switch (formula.getFunction()) {
 					case "hide":
-						replacement = expandOneHide(argument, fullAlphabet);
+						replacement = expandHide(argument);
 						break;
 					case "global":
 						replacement = expandOneGlobal(argument, fullAlphabet);
@@ -186,60 +213,69 @@ public class CallExpansionModule extends AbstractModule implements Module {
 
 	// Expand the formula inside of a global application.
 	public static Formula expandOneGlobal(Formula formula, Set<String> fullAlphabet) {
+		return expandOneGlobal(formula, formula.getCreator().getEventTable().toBitSet(fullAlphabet));
+	}
+
+	public static Formula expandOneGlobal(Formula formula, BitSet fullAlphabet) {
 		FormulaCreator creator = formula.getCreator();
 		VariableFormula var = creator.freshVariable("g");
-		for (String event : fullAlphabet) {
-			formula = creator.conjunction(formula,
-					creator.modality(Modality.UNIVERSAL, event, var));
+		FormulaCreator.NaryBuilder conjunction = creator.conjunctionBuilder().add(formula);
+		for (int event = fullAlphabet.nextSetBit(0); event >= 0; event = fullAlphabet.nextSetBit(event + 1)) {
+			conjunction.add(creator.modality(Modality.UNIVERSAL, event, var));
 		}
-		return creator.fixedPoint(FixedPoint.GREATEST, var, formula);
+		return creator.fixedPoint(FixedPoint.GREATEST, var, conjunction.build());
 	}
 
 	public static Formula expandOneEventually(Formula formula, Set<String> fullAlphabet) {
+		return expandOneEventually(formula, formula.getCreator().getEventTable().toBitSet(fullAlphabet));
+	}
+
+	public static Formula expandOneEventually(Formula formula, BitSet fullAlphabet) {
 		if (!(formula instanceof VariableFormula))
 			throw new RuntimeException("Eventually needs a variable as its argument that is then "
 					+ "interpreted as an event, but got: " + formula);
 		FormulaCreator creator = formula.getCreator();
 		VariableFormula var = creator.freshVariable("e");
-		String eventually = ((VariableFormula) formula).getVariable();
-		formula = null;
-		for (String event : fullAlphabet) {
-			if (event.equals(eventually))
+		int eventually = creator.getEventTable().getId(((VariableFormula) formula).getVariable());
+		FormulaCreator.NaryBuilder conjunction = creator.conjunctionBuilder();
+		for (int event = fullAlphabet.nextSetBit(0); event >= 0; event = fullAlphabet.nextSetBit(event + 1)) {
+			if (event == eventually)
 				continue;
-			Formula subformula = creator.modality(Modality.UNIVERSAL, event, var);
-			if (formula == null)
-				formula = subformula;
-			else
-				formula = creator.conjunction(formula, subformula);
+			conjunction.add(creator.modality(Modality.UNIVERSAL, event, var));
 		}
-		if (formula == null)
+		if (conjunction.isEmpty())
 			// Huh? Only one event in the alphabet? Of course no infinite paths without this event exist.
 			return creator.constant(true);
-		return creator.fixedPoint(FixedPoint.LEAST, var, formula);
+		return creator.fixedPoint(FixedPoint.LEAST, var, conjunction.build());
 	}
 
 	// Expand the formula inside of a hide application. This replaces all modalities so that events that do not
 	// appear inside of this formula are ignored.
 	public static Formula expandOneHide(Formula formula, Set<String> fullAlphabet) {
-		Set<String> subAlphabet = AlphabetFinder.getAlphabet(formula);
-		assert subAlphabet != null;
-		Set<String> remainingAlphabet = new HashSet<>(fullAlphabet);
-		remainingAlphabet.removeAll(subAlphabet);
+		return expandOneHide(formula, formula.getCreator().getEventTable().toBitSet(fullAlphabet));
+	}
 
-		HidingExpandModalityTransformer hide = new HidingExpandModalityTransformer(remainingAlphabet);
-		NonRecursive engine = new NonRecursive();
-		hide.transform(engine, formula);
-		engine.run();
-		return hide.transform(null, formula);
+	public static Formula expandOneHide(Formula formula, BitSet fullAlphabet) {
+		BitSet remainingAlphabet = (BitSet) fullAlphabet.clone();
+		remainingAlphabet.andNot(AlphabetFinder.getAlphabetIds(formula));
+		return new HidingExpandModalityTransformer(remainingAlphabet).expand(formula);
 	}
 
 	private static class HidingExpandModalityTransformer extends FormulaFormulaTransformer {
-		private final Set<String> expansionAlphabet;
+		private final BitSet expansionAlphabet;
 
-		public HidingExpandModalityTransformer(Set<String> expansionAlphabet) {
+		public HidingExpandModalityTransformer(BitSet expansionAlphabet) {
 			this.expansionAlphabet = expansionAlphabet;
 		}
 
+		// The cache is kept between calls, so modalities that were already expanded are reused
+		public Formula expand(Formula formula) {
+			NonRecursive engine = new NonRecursive();
+			transform(engine, formula);
+			engine.run();
+			return transform(engine, formula);
+		}
+
 		@Override
 		protected void enqueueWalker(NonRecursive engine, Formula formula) {
 			engine.enqueue(new Walker(formula));
@@ -254,21 +290,18 @@ public class CallExpansionModule extends AbstractModule implements Module {
 			public Formula modality(ModalityFormula formula, Formula transformedChild) {
 				FormulaCreator creator = formula.getCreator();
 				VariableFormula var = creator.freshVariable("h");
-				Formula result = creator.modality(formula.getModality(), formula.getEvent(),
-						transformedChild);
 				boolean conj = formula.getModality().equals(Modality.UNIVERSAL);
-				for (String event : expansionAlphabet) {
-					Formula sub = creator.modality(formula.getModality(), event, var);
-					if (conj)
-						result = creator.conjunction(result, sub);
-					else
-						result = creator.disjunction(result, sub);
+				FormulaCreator.NaryBuilder builder =
+					conj ? creator.conjunctionBuilder() : creator.disjunctionBuilder();
+				builder.add(creator.modality(formula.getModality(), formula.getEventId(),
+							transformedChild));
+				for (int event = expansionAlphabet.nextSetBit(0); event >= 0;
+						event = expansionAlphabet.nextSetBit(event + 1)) {
+					builder.add(creator.modality(formula.getModality(), event, var));
 				}
 				if (conj)
-					result = creator.fixedPoint(FixedPoint.GREATEST, var, result);
-				else
-					result = creator.fixedPoint(FixedPoint.LEAST, var, result);
-				return result;
+					return creator.fixedPoint(FixedPoint.GREATEST, var, builder.build());
+				return creator.fixedPoint(FixedPoint.LEAST, var, builder.build());
 			}
 		}
 	}
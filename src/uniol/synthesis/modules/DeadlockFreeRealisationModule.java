@@ -22,10 +22,10 @@ package uniol.synthesis.modules;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.Set;
 
 import uniol.apt.adt.ts.State;
 import uniol.apt.adt.ts.TransitionSystem;
-import uniol.apt.analysis.synthesize.AbstractSynthesizeModule;
 import uniol.apt.analysis.synthesize.PNProperties;
 import uniol.apt.io.renderer.impl.AptLTSRenderer;
 import uniol.apt.module.AbstractModule;
@@ -38,12 +38,21 @@ import uniol.apt.module.ModuleOutput;
 import uniol.apt.module.ModuleOutputSpec;
 import uniol.apt.module.exception.ModuleException;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.expansion.ForbiddenLabelsFinder;
+import uniol.synthesis.expansion.OverlayTransitionSystem;
 import uniol.synthesis.expansion.ReachingWordTransformer;
 import uniol.synthesis.expansion.RealiseFormula;
+import uniol.synthesis.expansion.SearchLimit;
+import uniol.synthesis.expansion.SearchState;
+import uniol.synthesis.expansion.SearchStrategy;
 import uniol.synthesis.tableau.StateFollowArcs;
 import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.tableau.TableauNode;
 import uniol.synthesis.util.NonRecursive;
 
+import static uniol.apt.util.DebugUtil.debug;
 import static uniol.synthesis.util.AlphabetFinder.getAlphabet;
 import static uniol.synthesis.util.PositiveFormFormulaTransformer.positiveForm;
 import static uniol.synthesis.util.UnLetTransformer.unLet;
@@ -80,7 +89,7 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 
 	@Override
 	public void require(ModuleInputSpec inputSpec) {
-		inputSpec.addParameter("options", String.class, "Comma separated list of options");
+		inputSpec.addParameter("options", String.class, RealisationOptions.DESCRIPTION);
 		inputSpec.addParameter("formula", Formula.class, "The formula that should be checked");
 	}
 
@@ -92,10 +101,18 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 
 	@Override
 	public void run(ModuleInput input, ModuleOutput output) throws ModuleException {
-		String options = input.getParameter("options", String.class);
-		final PNProperties properties = AbstractSynthesizeModule.Options.parseProperties(options).properties;
+		final RealisationOptions options = new RealisationOptions(input.getParameter("options", String.class));
+		final PNProperties properties = options.getProperties();
+		final SearchStrategy searchStrategy = options.getSearchStrategy();
 		final Formula formula = input.getParameter("formula", Formula.class);
 
+		if (options.usesCheckpoints())
+			throw new ModuleException("Checkpoints are not supported by " + getName());
+		if (options.simplifies())
+			throw new ModuleException("Simplification is not supported by " + getName());
+		if (options.usesGuardedForm())
+			throw new ModuleException("Guarded form is not supported by " + getName());
+
 		if (!properties.isKBounded())
 			System.err.println(
 					"Warning: Without requiring k-boundedness this algorithm might not terminate!");
@@ -103,19 +120,18 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 		DelayedWork result = new DelayedWork() {
 			@Override
 			public void generateOutput(final Writer writer) throws IOException, ModuleException {
+				final SearchLimit limit = options.createSearchLimit();
 				try {
-					NonRecursive engine = new NonRecursive();
-					findDeadlockFreeRealisations(engine, properties,
+					NonRecursive engine = searchStrategy.createEngine();
+					findDeadlockFreeRealisations(engine, properties, searchStrategy, limit,
 							new RealiseFormula.RealisationCallback() {
-						private boolean first = true;
-
 						@Override
 						public void foundRealisation(TransitionSystem ts,
 								Tableau<State> tableau) {
 							try {
-								if (!first)
+								if (limit.getResults() > 0)
 									writer.write("\n\n===========\n\n");
-								first = false;
+								limit.foundResult();
 
 								new AptLTSRenderer().render(ts, writer);
 								writer.flush();
@@ -133,6 +149,9 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 						throw (ModuleException) cause;
 					throw e;
 				}
+				RealisationOptions.writeTruncationNote(writer, limit);
+				for (MemoTable<?> table : formula.getCreator().getMemoTables())
+					debug(table);
 			}
 		};
 
@@ -146,31 +165,97 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 
 	static public void findDeadlockFreeRealisations(NonRecursive engine, PNProperties properties,
 			RealiseFormula.RealisationCallback callback, Formula formula) {
+		findDeadlockFreeRealisations(engine, properties, SearchStrategy.DEPTH_FIRST, SearchLimit.unlimited(),
+				callback, formula);
+	}
+
+	static public void findDeadlockFreeRealisations(NonRecursive engine, PNProperties properties,
+			SearchStrategy searchStrategy, SearchLimit limit, RealiseFormula.RealisationCallback callback,
+			Formula formula) {
 		TransitionSystem ts = getEmptyTS();
 		formula = positiveForm(unLet(formula));
 		Tableau<State> tableau = Tableau.<State>createInitialTableau(
 				new StateFollowArcs(), ts.getInitialState(), formula);
-		engine.enqueue(new Worker(properties, callback, ts, tableau, getAlphabet(formula)));
+		engine.enqueue(new Worker(properties, searchStrategy, limit, callback, new OverlayTransitionSystem(ts),
+					tableau, getAlphabet(formula)));
 	}
 
-	static private final class Worker implements NonRecursive.Walker {
+	static private final class Worker implements SearchState {
 		final private PNProperties properties;
+		final private SearchStrategy searchStrategy;
+		final private SearchLimit limit;
 		final private RealiseFormula.RealisationCallback callback;
-		final private TransitionSystem ts;
-		final private Tableau<State> tableau;
+		final private OverlayTransitionSystem overlay;
+		final private Tableau<State> baseTableau;
 		final private Collection<String> alphabet;
 
-		private Worker(PNProperties properties, RealiseFormula.RealisationCallback callback,
-				TransitionSystem ts, Tableau<State> tableau, Collection<String> alphabet) {
+		// The transition system and the tableau for it are only created when needed. Many workers are never
+		// looked at, for example because the search stopped early.
+		private TransitionSystem ts = null;
+		private Tableau<State> tableau = null;
+
+		private Worker(PNProperties properties, SearchStrategy searchStrategy, SearchLimit limit,
+				RealiseFormula.RealisationCallback callback, OverlayTransitionSystem overlay,
+				Tableau<State> baseTableau, Collection<String> alphabet) {
 			this.properties = properties;
+			this.searchStrategy = searchStrategy;
+			this.limit = limit;
 			this.callback = callback;
-			this.ts = ts;
-			this.tableau = tableau;
+			this.overlay = overlay;
+			this.baseTableau = baseTableau;
 			this.alphabet = alphabet;
 		}
 
+		@Override
+		public TransitionSystem getTransitionSystem() {
+			if (ts == null)
+				ts = overlay.toTransitionSystem();
+			return ts;
+		}
+
+		@Override
+		public Tableau<State> getTableau() {
+			if (tableau == null) {
+				// The base tableau belongs to the base transition system
+				TransitionSystem current = getTransitionSystem();
+				if (current == overlay.getBase())
+					tableau = baseTableau;
+				else
+					tableau = baseTableau.transform(new ReachingWordTransformer(current));
+			}
+			return tableau;
+		}
+
+		@Override
+		public int getStateCount() {
+			return overlay.getStateCount();
+		}
+
+		@Override
+		public int getPendingObligations() {
+			if (tableau != null)
+				return tableau.countUnsuccessfulLeaves();
+
+			// Count on the base tableau so that the transition system is not created. The leaves only
+			// differ in universal modalities that now have an added arc to follow.
+			int result = 0;
+			for (TableauNode<State> node : baseTableau.getLeaves()) {
+				if (!node.isSuccessful()) {
+					result++;
+				} else if (node.getFormula() instanceof ModalityFormula) {
+					ModalityFormula modality = (ModalityFormula) node.getFormula();
+					if (!overlay.followArcs(node.getState().getId(), modality.getEvent()).isEmpty())
+						result++;
+				}
+			}
+			return result;
+		}
+
 		@Override
 		public void walk(final NonRecursive engine) {
+			if (limit.stopIfReached(engine))
+				return;
+
 			new RealiseFormula(properties, new RealiseFormula.RealisationCallback() {
 				@Override
 				public void foundRealisation(TransitionSystem realisationTs,
@@ -182,23 +267,29 @@ public class DeadlockFreeRealisationModule extends AbstractModule implements Mod
 						return;
 					}
 
-					// Found a deadlock. Add all possibilities for continuing here to the engine.
+					// Found a deadlock. Add all possibilities for continuing here to the engine,
+					// except for labels that the tableau already forbids in this state.
+					Set<String> forbidden = new ForbiddenLabelsFinder<State>()
+						.findForbidden(realisationTableau, deadlockState);
 					for (String label : alphabet) {
-						// ...which means we add a new outgoing arc with label "label" to
-						// deadlockState:
-						TransitionSystem newTs = new TransitionSystem(realisationTs);
-						State source = newTs.getNode(deadlockState.getId());
-						State target = newTs.createState();
-						newTs.createArc(source, target, label);
-
-						Tableau<State> newTableau = realisationTableau.transform(
-								new ReachingWordTransformer(newTs));
-
-						engine.enqueue(new Worker(properties, callback, newTs, newTableau,
-									alphabet));
+						if (forbidden.contains(label)) {
+							debug("Not adding arc with label ", label, " to deadlock ",
+									deadlockState, " since the formula forbids it");
+							continue;
+						}
+
+						// Add a new outgoing arc with label "label" to deadlockState. All of
+						// these share realisationTs as their base.
+						OverlayTransitionSystem newTs =
+							new OverlayTransitionSystem(realisationTs);
+						String target = newTs.createState();
+						newTs.createArc(deadlockState.getId(), target, label);
+
+						engine.enqueue(new Worker(properties, searchStrategy, limit, callback,
+									newTs, realisationTableau, alphabet));
 					}
 				}
-			}).realise(ts, tableau);
+			}, searchStrategy).realise(getTransitionSystem(), getTableau(), limit);
 		}
 	}
 
@@ -19,6 +19,9 @@
 
 package uniol.synthesis.modules;
 
+import java.io.File;
+import java.io.IOException;
+
 import uniol.apt.io.parser.ParseException;
 import uniol.apt.module.exception.ModuleException;
 import uniol.apt.ui.AptParameterTransformation;
@@ -27,17 +30,55 @@ import uniol.apt.ui.ParameterTransformation;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
 import uniol.synthesis.parser.FormulaParser;
+import uniol.synthesis.util.FormulaReader;
+import uniol.synthesis.util.FormulaWriter;
 
+/**
+ * Formulas are given as text. With the prefix "binary:", a formula is instead read from a file written by {@link
+ * FormulaWriter}, for example via the "binary_output" parameter of some modules. With the prefix "arena:", which
+ * can be combined with "binary:", the formula is created in an arena (see {@link FormulaCreator#createArena()}).
+ * All formulas that the module creates from it are then only freed after the module finished, which avoids the cost
+ * of weak references when memory is not a concern.
+ */
 @AptParameterTransformation(Formula.class)
 public class FormulaParameterTransformation implements ParameterTransformation<Formula> {
+	static final String BINARY_PREFIX = "binary:";
+	static final String ARENA_PREFIX = "arena:";
+	static final String BINARY_OUTPUT_DESCRIPTION = "If not empty, additionally write the resulting formula in "
+		+ "binary form to this file. Other modules read it when given '" + BINARY_PREFIX + "file' as formula.";
+
 	@Override
 	public Formula transform(String arg) throws ModuleException {
+		FormulaCreator creator;
+		if (arg.startsWith(ARENA_PREFIX)) {
+			creator = FormulaCreator.createArena();
+			arg = arg.substring(ARENA_PREFIX.length());
+		} else {
+			creator = new FormulaCreator();
+		}
+		if (arg.startsWith(BINARY_PREFIX)) {
+			try {
+				return FormulaReader.read(creator, new File(arg.substring(BINARY_PREFIX.length())));
+			} catch (IOException e) {
+				throw new ModuleException(e);
+			}
+		}
 		try {
-			return FormulaParser.parse(new FormulaCreator(), arg);
+			return FormulaParser.parse(creator, arg);
 		} catch (ParseException e) {
 			throw new ModuleException(e);
 		}
 	}
+
+	static void writeBinaryOutput(String fileName, Formula formula) throws ModuleException {
+		if (fileName.isEmpty())
+			return;
+		try {
+			FormulaWriter.write(formula, new File(fileName));
+		} catch (IOException e) {
+			throw new ModuleException(e);
+		}
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -26,14 +26,13 @@ import uniol.apt.ui.AptReturnValueTransformation;
 import uniol.apt.ui.ReturnValueTransformation;
 
 import uniol.synthesis.adt.mu_calculus.Formula;
-import static uniol.synthesis.util.LetTransformer.let;
-import static uniol.synthesis.util.PrintFormula.printFormula;
+import static uniol.synthesis.util.PrintFormula.printFormulaWithLets;
 
 @AptReturnValueTransformation(Formula.class)
 public class FormulaReturnValueTransformation implements ReturnValueTransformation<Formula> {
 	@Override
 	public void transform(Writer output, Formula arg) throws IOException {
-		printFormula(output, let(arg));
+		printFormulaWithLets(output, arg);
 	}
 }
 
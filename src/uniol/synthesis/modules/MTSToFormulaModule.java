@@ -57,6 +57,15 @@ public class MTSToFormulaModule extends AbstractModule implements Module {
 		inputSpec.addParameter("mts", TransitionSystem.class, "The MTS to transform");
 		inputSpec.addOptionalParameterWithDefault("mode", String.class, "deterministic", "deterministic",
 				"Will the formula be interpreted on 'deterministic' systems or on 'generic' ones?");
+		inputSpec.addOptionalParameterWithDefault("output", String.class, "inline", "inline",
+				"Should the formulas for states be copied everywhere they are used ('inline') or bound "
+				+ "once with let formulas ('let')? The latter avoids huge formulas for big MTS.");
+		inputSpec.addOptionalParameterWithDefault("arena", Boolean.class, false, "false",
+				"Keep all formulas alive until the formula is created instead of using weak "
+				+ "references. This is faster, but needs memory for all intermediate formulas of "
+				+ "solving the equation system.");
+		inputSpec.addOptionalParameterWithDefault("binary_output", String.class, "", "",
+				FormulaParameterTransformation.BINARY_OUTPUT_DESCRIPTION);
 	}
 
 	@Override
@@ -69,7 +78,26 @@ public class MTSToFormulaModule extends AbstractModule implements Module {
 		TransitionSystem mts = input.getParameter("mts", TransitionSystem.class);
 		String modeString = input.getParameter("mode", String.class);
 		MTSToFormula.Mode mode = MTSToFormula.Mode.valueOf(modeString.toUpperCase());
-		Formula formula = new MTSToFormula(mode).mtsToFormula(new FormulaCreator(), mts);
+		String outputString = input.getParameter("output", String.class);
+		boolean share;
+		switch (outputString.toLowerCase()) {
+			case "inline":
+				share = false;
+				break;
+			case "let":
+				share = true;
+				break;
+			default:
+				throw new ModuleException("Unknown output '" + outputString + "'; valid values are "
+						+ "'inline' and 'let'");
+		}
+		boolean arena = input.getParameter("arena", Boolean.class);
+		FormulaCreator creator = arena ? FormulaCreator.createArena() : new FormulaCreator();
+		Formula formula = new MTSToFormula(mode, share).mtsToFormula(creator, mts);
+		// The intermediate formulas are no longer needed, only the result is
+		creator.releaseArena();
+		FormulaParameterTransformation.writeBinaryOutput(input.getParameter("binary_output", String.class),
+				formula);
 		output.setReturnValue("formula", Formula.class, formula);
 	}
 
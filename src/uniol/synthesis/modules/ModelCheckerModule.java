@@ -37,6 +37,7 @@ import uniol.apt.module.ModuleOutputSpec;
 import uniol.apt.module.exception.ModuleException;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.expansion.MissingArcsFinder;
+import uniol.synthesis.tableau.ClosureModelChecker;
 import uniol.synthesis.tableau.GraphvizProgressCallback;
 import uniol.synthesis.tableau.StateFollowArcs;
 import uniol.synthesis.tableau.Tableau;
@@ -61,6 +62,11 @@ public class ModelCheckerModule extends AbstractModule implements Module {
 		inputSpec.addParameter("formula", Formula.class, "The formula that should be checked");
 		inputSpec.addOptionalParameterWithDefault("only_successful", Boolean.class, false, "false",
 			"only generate successful tableaus instead of all (faster)");
+		inputSpec.addOptionalParameterWithDefault("guarded_form", Boolean.class, false, "false",
+			"transform the formula into guarded form before model checking");
+		inputSpec.addOptionalParameterWithDefault("closure", Boolean.class, false, "false",
+			"check on a precompiled closure of the formula without building tableaus (faster on large "
+			+ "LTS, but missing_arcs and dot are empty)");
 	}
 
 	@Override
@@ -78,6 +84,13 @@ public class ModelCheckerModule extends AbstractModule implements Module {
 		TableauBuilder.TableauSelection selection = input.getParameter("only_successful", Boolean.class)
 			? TableauBuilder.TableauSelection.SUCCESSFUL : TableauBuilder.TableauSelection.ALL;
 
+		if (input.getParameter("closure", Boolean.class)) {
+			output.setReturnValue("result", Boolean.class, ClosureModelChecker.check(lts, formula));
+			output.setReturnValue("missing_arcs", String.class, "");
+			output.setReturnValue("dot", String.class, "");
+			return;
+		}
+
 		final Set<Tableau<State>> tableaus = new HashSet<>();
 		TableauBuilder.ResultCallback<State> cb = new TableauBuilder.ResultCallback<State>() {
 			@Override
@@ -87,8 +100,9 @@ public class ModelCheckerModule extends AbstractModule implements Module {
 		};
 		GraphvizProgressCallback<State> callback = new GraphvizProgressCallback<State>();
 		NonRecursive engine = new NonRecursive();
-		new TableauBuilder<State>(new StateFollowArcs(), callback)
-			.createTableaus(engine, cb, lts.getInitialState(), formula, selection);
+		TableauBuilder<State> builder = new TableauBuilder<State>(new StateFollowArcs(), callback);
+		builder.setGuardedForm(input.getParameter("guarded_form", Boolean.class));
+		builder.createTableaus(engine, cb, lts.getInitialState(), formula, selection);
 		engine.run();
 
 		boolean success = false;
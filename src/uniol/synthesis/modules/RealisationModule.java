@@ -24,7 +24,6 @@ import java.io.Writer;
 
 import uniol.apt.adt.ts.State;
 import uniol.apt.adt.ts.TransitionSystem;
-import uniol.apt.analysis.synthesize.AbstractSynthesizeModule;
 import uniol.apt.analysis.synthesize.PNProperties;
 import uniol.apt.io.renderer.impl.AptLTSRenderer;
 import uniol.apt.module.AbstractModule;
@@ -37,9 +36,15 @@ import uniol.apt.module.ModuleOutput;
 import uniol.apt.module.ModuleOutputSpec;
 import uniol.apt.module.exception.ModuleException;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.expansion.RealiseFormula;
+import uniol.synthesis.expansion.SearchCheckpoint;
+import uniol.synthesis.expansion.SearchLimit;
+import uniol.synthesis.expansion.SearchStrategy;
 import uniol.synthesis.tableau.Tableau;
 
+import static uniol.apt.util.DebugUtil.debug;
+
 @AptModule
 public class RealisationModule extends AbstractModule implements Module {
 	@Override
@@ -54,7 +59,7 @@ public class RealisationModule extends AbstractModule implements Module {
 
 	@Override
 	public void require(ModuleInputSpec inputSpec) {
-		inputSpec.addParameter("options", String.class, "Comma separated list of options");
+		inputSpec.addParameter("options", String.class, RealisationOptions.DESCRIPTION);
 		inputSpec.addParameter("formula", Formula.class, "The formula that should be checked");
 	}
 
@@ -66,9 +71,10 @@ public class RealisationModule extends AbstractModule implements Module {
 
 	@Override
 	public void run(ModuleInput input, ModuleOutput output) throws ModuleException {
-		String options = input.getParameter("options", String.class);
-		final PNProperties properties = AbstractSynthesizeModule.Options.parseProperties(options).properties;
-		final Formula formula = input.getParameter("formula", Formula.class);
+		final RealisationOptions options = new RealisationOptions(input.getParameter("options", String.class));
+		final PNProperties properties = options.getProperties();
+		final SearchStrategy searchStrategy = options.getSearchStrategy();
+		final Formula formula = options.prepareFormula(input.getParameter("formula", Formula.class));
 
 		if (!properties.isKBounded())
 			System.err.println(
@@ -77,17 +83,21 @@ public class RealisationModule extends AbstractModule implements Module {
 		DelayedWork result = new DelayedWork() {
 			@Override
 			public void generateOutput(final Writer writer) throws IOException, ModuleException {
+				final SearchLimit limit = options.createSearchLimit();
+				final SearchCheckpoint checkpoint = options.createCheckpoint(formula);
+				final SearchCheckpoint.Resumed resumed = options.readResumeFile(formula);
+				// Results from before resuming were already written by an earlier run
+				final int previousResults = resumed == null ? 0 : resumed.getResults();
 				try {
-					new RealiseFormula(properties, new RealiseFormula.RealisationCallback() {
-						private boolean first = true;
-
+					RealiseFormula realise = new RealiseFormula(properties,
+							new RealiseFormula.RealisationCallback() {
 						@Override
 						public void foundRealisation(TransitionSystem ts,
 								Tableau<State> tableau) {
 							try {
-								if (!first)
+								if (limit.getResults() > previousResults)
 									writer.write("\n\n===========\n\n");
-								first = false;
+								limit.foundResult();
 
 								new AptLTSRenderer().render(ts, writer);
 								writer.flush();
@@ -95,7 +105,11 @@ public class RealisationModule extends AbstractModule implements Module {
 								throw new RuntimeException(e);
 							}
 						}
-					}).realise(formula);
+					}, searchStrategy);
+					if (resumed == null)
+						realise.realise(formula, limit, checkpoint);
+					else
+						realise.resume(resumed, limit, checkpoint);
 				} catch (RuntimeException e) {
 					Throwable cause = e.getCause();
 					if (cause instanceof IOException)
@@ -104,6 +118,9 @@ public class RealisationModule extends AbstractModule implements Module {
 						throw (ModuleException) cause;
 					throw e;
 				}
+				RealisationOptions.writeTruncationNote(writer, limit);
+				for (MemoTable<?> table : formula.getCreator().getMemoTables())
+					debug(table);
 			}
 		};
 
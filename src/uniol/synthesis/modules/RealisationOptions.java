@@ -0,0 +1,227 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import uniol.apt.analysis.synthesize.AbstractSynthesizeModule;
+import uniol.apt.analysis.synthesize.PNProperties;
+import uniol.apt.module.exception.ModuleException;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.expansion.SearchCheckpoint;
+import uniol.synthesis.expansion.SearchLimit;
+import uniol.synthesis.expansion.SearchStrategy;
+
+import static uniol.synthesis.util.GuardedFormFormulaTransformer.guardedForm;
+import static uniol.synthesis.util.PositiveFormFormulaTransformer.positiveForm;
+import static uniol.synthesis.util.SimplifyFormulaTransformer.simplify;
+import static uniol.synthesis.util.UnLetTransformer.unLet;
+
+/**
+ * Options of the realisation modules. The options string is a comma separated list. The options that are
+ * understood by this class are removed and everything else is handed to APT's synthesis options.
+ */
+class RealisationOptions {
+	static final int DEFAULT_CHECKPOINT_INTERVAL = 600;
+
+	static final String DESCRIPTION = "Comma separated list of options. Besides the usual synthesis options, "
+		+ "'search=STRATEGY' selects the order in which the search space is explored. Valid strategies are "
+		+ "depth_first (default), smallest_ts, fewest_obligations and size_bounded. "
+		+ "'max_results=N' stops the search after N realisations were found and 'timeout=SECONDS' stops "
+		+ "it after the given number of seconds. If the search is stopped early, this is noted at the end "
+		+ "of the output. 'checkpoint=FILE' regularly saves the state of the search to the given file "
+		+ "(every 'checkpoint_interval=SECONDS', default " + DEFAULT_CHECKPOINT_INTERVAL
+		+ ") and 'resume=FILE' continues a search from such a file. Checkpoints are only supported by "
+		+ "realise_pn. 'simplify' simplifies the formula before the search starts and 'guarded_form' "
+		+ "removes unguarded fixed point variables from it. These are also only supported by realise_pn, "
+		+ "since they might remove events from the alphabet. Both can be written as 'simplify=true' or "
+		+ "'simplify=false' as well.";
+
+	private final PNProperties properties;
+	private SearchStrategy searchStrategy = SearchStrategy.DEPTH_FIRST;
+	private int maxResults = 0;
+	private long timeoutSeconds = 0;
+	private String checkpointFile = null;
+	private long checkpointIntervalSeconds = DEFAULT_CHECKPOINT_INTERVAL;
+	private String resumeFile = null;
+	private boolean simplify = false;
+	private boolean guardedForm = false;
+
+	RealisationOptions(String options) throws ModuleException {
+		StringBuilder remaining = new StringBuilder();
+		boolean handledSome = false;
+		for (String option : options.split(",")) {
+			String key = option.trim();
+			String value = "";
+			int index = key.indexOf('=');
+			if (index >= 0) {
+				value = key.substring(index + 1).trim();
+				key = key.substring(0, index).trim();
+			}
+			if (handleOption(key.toLowerCase(), value)) {
+				handledSome = true;
+				continue;
+			}
+			if (remaining.length() > 0)
+				remaining.append(',');
+			remaining.append(option);
+		}
+		if (!handledSome)
+			remaining = new StringBuilder(options);
+		properties = AbstractSynthesizeModule.Options.parseProperties(remaining.toString()).properties;
+	}
+
+	private boolean handleOption(String key, String value) throws ModuleException {
+		switch (key) {
+			case "search":
+				try {
+					searchStrategy = SearchStrategy.valueOf(value.toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ModuleException("Unknown search strategy '" + value + "'");
+				}
+				return true;
+			case "max_results":
+				maxResults = parsePositive(key, value);
+				return true;
+			case "timeout":
+				timeoutSeconds = parsePositive(key, value);
+				return true;
+			case "checkpoint":
+				checkpointFile = parseFile(key, value);
+				return true;
+			case "checkpoint_interval":
+				checkpointIntervalSeconds = parsePositive(key, value);
+				return true;
+			case "resume":
+				resumeFile = parseFile(key, value);
+				return true;
+			case "simplify":
+				simplify = parseBoolean(key, value);
+				return true;
+			case "guarded_form":
+				guardedForm = parseBoolean(key, value);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	static private int parsePositive(String key, String value) throws ModuleException {
+		int result;
+		try {
+			result = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new ModuleException("Option '" + key + "' needs a number, but got '" + value + "'");
+		}
+		if (result <= 0)
+			throw new ModuleException("Option '" + key + "' needs a positive number, but got " + result);
+		return result;
+	}
+
+	static private boolean parseBoolean(String key, String value) throws ModuleException {
+		switch (value.toLowerCase()) {
+			case "":
+			case "true":
+				return true;
+			case "false":
+				return false;
+			default:
+				throw new ModuleException("Option '" + key + "' needs true or false, but got '" + value
+						+ "'");
+		}
+	}
+
+	static private String parseFile(String key, String value) throws ModuleException {
+		if (value.isEmpty())
+			throw new ModuleException("Option '" + key + "' needs a file name");
+		return value;
+	}
+
+	PNProperties getProperties() {
+		return properties;
+	}
+
+	SearchStrategy getSearchStrategy() {
+		return searchStrategy;
+	}
+
+	boolean simplifies() {
+		return simplify;
+	}
+
+	boolean usesGuardedForm() {
+		return guardedForm;
+	}
+
+	// Apply the transformations that were requested before the search
+	Formula prepareFormula(Formula formula) {
+		if (!simplify && !guardedForm)
+			return formula;
+		formula = positiveForm(unLet(formula));
+		if (guardedForm)
+			formula = guardedForm(formula);
+		if (simplify)
+			formula = simplify(formula);
+		return formula;
+	}
+
+	// Each search needs its own limit, since a limit counts the results that were found
+	SearchLimit createSearchLimit() {
+		return new SearchLimit(maxResults, timeoutSeconds * 1000);
+	}
+
+	boolean usesCheckpoints() {
+		return checkpointFile != null || resumeFile != null;
+	}
+
+	// Returns null if no checkpoints should be written
+	SearchCheckpoint createCheckpoint(Formula formula) {
+		if (checkpointFile == null)
+			return null;
+		return new SearchCheckpoint(new File(checkpointFile), checkpointIntervalSeconds * 1000, formula);
+	}
+
+	// Returns null if the search should not be resumed
+	SearchCheckpoint.Resumed readResumeFile(Formula formula) throws ModuleException {
+		if (resumeFile == null)
+			return null;
+		try {
+			return SearchCheckpoint.read(new File(resumeFile), formula);
+		} catch (IOException e) {
+			throw new ModuleException("Cannot resume from '" + resumeFile + "': " + e.getMessage(), e);
+		}
+	}
+
+	static void writeTruncationNote(Writer writer, SearchLimit limit) throws IOException {
+		if (!limit.wasTruncated())
+			return;
+		String reason = limit.hasEnoughResults() ? "the maximum number of results was reached"
+			: "the time limit was exceeded";
+		if (limit.getResults() > 0)
+			writer.write("\n\n");
+		writer.write("// Search was truncated after " + limit.getResults() + " realisation(s) since "
+				+ reason + "\n");
+		writer.flush();
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
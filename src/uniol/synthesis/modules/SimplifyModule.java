@@ -0,0 +1,84 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.modules;
+
+import uniol.apt.module.AbstractModule;
+import uniol.apt.module.AptModule;
+import uniol.apt.module.Category;
+import uniol.apt.module.Module;
+import uniol.apt.module.ModuleInput;
+import uniol.apt.module.ModuleInputSpec;
+import uniol.apt.module.ModuleOutput;
+import uniol.apt.module.ModuleOutputSpec;
+import uniol.apt.module.exception.ModuleException;
+import uniol.synthesis.adt.mu_calculus.Formula;
+
+import static uniol.synthesis.util.SimplifyFormulaTransformer.simplify;
+import static uniol.synthesis.util.UnLetTransformer.unLet;
+
+@AptModule
+public class SimplifyModule extends AbstractModule implements Module {
+	@Override
+	public String getShortDescription() {
+		return "Simplify a formula";
+	}
+
+	@Override
+	public String getLongDescription() {
+		return getShortDescription() + ". Constants are folded, duplicate and absorbed parts of conjunctions "
+			+ "and disjunctions are removed, modalities with the same event are merged where this does not "
+			+ "change the meaning, and fixed points whose variable is not used are removed. Function calls "
+			+ "are left untouched. Since the simplified formula might mention fewer events, calls should be "
+			+ "expanded with call_expansion first.";
+	}
+
+	@Override
+	public String getName() {
+		return "simplify";
+	}
+
+	@Override
+	public void require(ModuleInputSpec inputSpec) {
+		inputSpec.addParameter("formula", Formula.class, "The formula that should be simplified");
+		inputSpec.addOptionalParameterWithDefault("binary_output", String.class, "", "",
+				FormulaParameterTransformation.BINARY_OUTPUT_DESCRIPTION);
+	}
+
+	@Override
+	public void provide(ModuleOutputSpec outputSpec) {
+		outputSpec.addReturnValue("formula", Formula.class);
+	}
+
+	@Override
+	public void run(ModuleInput input, ModuleOutput output) throws ModuleException {
+		Formula formula = input.getParameter("formula", Formula.class);
+		Formula result = simplify(unLet(formula));
+		FormulaParameterTransformation.writeBinaryOutput(input.getParameter("binary_output", String.class),
+				result);
+		output.setReturnValue("formula", Formula.class, result);
+	}
+
+	@Override
+	public Category[] getCategories() {
+		return new Category[] { Category.MISC };
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -22,7 +22,11 @@ package uniol.synthesis.mts;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import uniol.apt.adt.ts.Arc;
 import uniol.apt.adt.ts.State;
@@ -41,23 +45,27 @@ public class MTSToFormula {
 	};
 
 	private final Mode mode;
+	private final boolean share;
 
 	public MTSToFormula(Mode mode) {
+		this(mode, false);
+	}
+
+	/**
+	 * Create a new instance.
+	 * @param mode The kind of systems on which the formula will be interpreted.
+	 * @param share If true, the formulas for states that are needed in many places are bound with a let
+	 * formula instead of copying them everywhere.
+	 */
+	public MTSToFormula(Mode mode, boolean share) {
 		this.mode = mode;
+		this.share = share;
 	}
 
 	protected VariableFormula getVariable(FormulaCreator creator, State state) {
 		return creator.variable(state.getId());
 	}
 
-	protected Collection<Arc> filterPureMayArcs(Collection<Arc> arcs) {
-		Collection<Arc> result = new ArrayList<>(arcs.size());
-		for (Arc arc : arcs)
-			if (arc.hasExtension("may"))
-				result.add(arc);
-		return result;
-	}
-
 	protected Collection<Arc> filterMustArcs(Collection<Arc> arcs) {
 		Collection<Arc> result = new ArrayList<>(arcs.size());
 		for (Arc arc : arcs)
@@ -66,72 +74,106 @@ public class MTSToFormula {
 		return result;
 	}
 
-	protected Formula conjunction(Formula a, Formula b) {
-		Formula trueFormula = a.getCreator().constant(true);
-		if (a.equals(trueFormula))
-			return b;
-		if (b.equals(trueFormula))
-			return a;
-		return a.getCreator().conjunction(a, b);
+	// The arcs of a state with a given label, split into may and must arcs
+	static protected class LabelArcs {
+		final List<Arc> mayArcs = new ArrayList<>();
+		final List<Arc> mustArcs = new ArrayList<>();
+		final List<Arc> pureMayArcs = new ArrayList<>();
 	}
 
-	protected Formula disjunction(Formula a, Formula b) {
-		Formula falseFormula = a.getCreator().constant(false);
-		if (a.equals(falseFormula))
-			return b;
-		if (b.equals(falseFormula))
-			return a;
-		return a.getCreator().disjunction(a, b);
+	// Group the outgoing arcs of a state by their label in a single pass
+	protected Map<String, LabelArcs> indexArcs(State state) {
+		Map<String, LabelArcs> result = new LinkedHashMap<>();
+		for (Arc arc : state.getPostsetEdges()) {
+			LabelArcs arcs = result.get(arc.getLabel());
+			if (arcs == null) {
+				arcs = new LabelArcs();
+				result.put(arc.getLabel(), arcs);
+			}
+			arcs.mayArcs.add(arc);
+			if (arc.hasExtension("may"))
+				arcs.pureMayArcs.add(arc);
+			else
+				arcs.mustArcs.add(arc);
+		}
+		return result;
 	}
 
 	protected Formula stateToFormula(FormulaCreator creator, State state) {
-		Formula result = creator.constant(true);
-		for (String event : state.getGraph().getAlphabet()) {
-			Collection<Arc> mayArcs = state.getPostsetEdgesByLabel(event);
-			Collection<Arc> mustArcs = filterMustArcs(mayArcs);
+		return stateToFormula(creator, state.getGraph().getAlphabet(), indexArcs(state),
+				new HashMap<Set<String>, Formula>());
+	}
+
+	// Labels without any arcs are just universal modalities without a valid target. All states with the same
+	// labels share this part, so it is only created once per set of labels.
+	protected Formula missingLabelsToFormula(FormulaCreator creator, Collection<String> alphabet,
+			Set<String> labels, Map<Set<String>, Formula> missingLabels) {
+		Formula result = missingLabels.get(labels);
+		if (result == null) {
+			Formula noTarget = creator.constant(false);
+			FormulaCreator.NaryBuilder builder = creator.conjunctionBuilder();
+			for (String event : alphabet)
+				if (!labels.contains(event))
+					builder.add(creator.modality(Modality.UNIVERSAL, event, noTarget));
+			result = builder.build();
+			missingLabels.put(new HashSet<>(labels), result);
+		}
+		return result;
+	}
+
+	protected Formula stateToFormula(FormulaCreator creator, Collection<String> alphabet,
+			Map<String, LabelArcs> arcsByLabel, Map<Set<String>, Formula> missingLabels) {
+		FormulaCreator.NaryBuilder result = creator.conjunctionBuilder();
+		for (Map.Entry<String, LabelArcs> entry : arcsByLabel.entrySet()) {
+			String event = entry.getKey();
+			LabelArcs arcs = entry.getValue();
+			Collection<Arc> mayArcs = arcs.mayArcs;
+			Collection<Arc> mustArcs = arcs.mustArcs;
 			if (mode.equals(Mode.DETERMINISTIC))
 				// If for a given label there is at most one arc with that label, the existential
 				// modality already makes sure that the target state of the arc behaves correctly.
-				mayArcs = filterPureMayArcs(mayArcs);
+				mayArcs = arcs.pureMayArcs;
 
 			// Each must arc must have an implementation, so we have a conjunction of existential modalities
-			Formula mustFormula = creator.constant(true);
 			for (Arc arc : mustArcs) {
 				VariableFormula target = getVariable(creator, arc.getTarget());
-				Formula part = creator.modality(Modality.EXISTENTIAL, event, target);
-				mustFormula = conjunction(mustFormula, part);
+				result.add(creator.modality(Modality.EXISTENTIAL, event, target));
 			}
 
 			if (mustArcs.isEmpty() || mode.equals(Mode.GENERIC)) {
 				// Each arc must be allowed by a may arc, so we have a disjunction inside a universal
 				// modality. If there are must arcs in a deterministic system, they already make sure
 				// that one of the valid targets is reached and this code would not allow more.
-				Formula mayFormula = creator.constant(false);
-				for (Arc arc : mayArcs) {
-					Formula part = getVariable(creator, arc.getTarget());
-					mayFormula = disjunction(mayFormula, part);
-				}
-				mayFormula = creator.modality(Modality.UNIVERSAL, event, mayFormula);
-
-				Formula formula = conjunction(mustFormula, mayFormula);
-				result = conjunction(result, formula);
-			} else
-				result = conjunction(result, mustFormula);
+				FormulaCreator.NaryBuilder mayFormula = creator.disjunctionBuilder();
+				for (Arc arc : mayArcs)
+					mayFormula.add(getVariable(creator, arc.getTarget()));
+				result.add(creator.modality(Modality.UNIVERSAL, event, mayFormula.build()));
+			}
 		}
-		return result;
+		if (arcsByLabel.size() < alphabet.size())
+			result.add(missingLabelsToFormula(creator, alphabet, arcsByLabel.keySet(), missingLabels));
+		return result.build();
 	}
 
 	protected Map<VariableFormula, Formula> mtsToEquationSystem(FormulaCreator creator, TransitionSystem mts) {
 		Map<VariableFormula, Formula> result = new HashMap<>();
+		// The alphabet is only computed once instead of once per state
+		Collection<String> alphabet = mts.getAlphabet();
+		Map<Set<String>, Formula> missingLabels = new HashMap<>();
 		for (State state : mts.getNodes()) {
-			result.put(getVariable(creator, state), stateToFormula(creator, state));
+			result.put(getVariable(creator, state), stateToFormula(creator, alphabet, indexArcs(state),
+						missingLabels));
 		}
 		return result;
 	}
 
 	public Formula mtsToFormula(FormulaCreator creator, TransitionSystem mts) {
+		VariableFormula initial = getVariable(creator, mts.getInitialState());
+		if (share)
+			return new SolveEquationSystem().solveWithLets(FixedPoint.GREATEST,
+					mtsToEquationSystem(creator, mts), initial);
 		return new SolveEquationSystem().solve(FixedPoint.GREATEST, mtsToEquationSystem(creator, mts))
-			.get(getVariable(creator, mts.getInitialState()));
+			.get(initial);
 	}
 }
 
@@ -19,19 +19,31 @@
 
 package uniol.synthesis.parser;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.NoViableAltException;
+import org.antlr.v4.runtime.Parser;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeProperty;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
 
 import uniol.apt.io.parser.ParseException;
 
@@ -39,7 +51,13 @@ import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
 import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.util.ByteBufferInputStream;
 
+/**
+ * Parser for formulas in the syntax described by MuCalculusFormula.g4. The formula is built while parsing and no parse
+ * tree is kept, so the memory needed besides the resulting formula only depends on how deeply the input is nested and
+ * not on its length.
+ */
 public class FormulaParser {
 	private final FormulaCreator creator;
 
@@ -47,117 +65,189 @@ public class FormulaParser {
 		this.creator = creator;
 	}
 
+	// A conjunction or disjunction that is still being built. Logically, it sits on the formula stack directly
+	// above the bottom-most 'position' formulas.
+	static private final class OpenChain {
+		private final FormulaCreator.NaryBuilder builder;
+		private final boolean conjunction;
+		private final int position;
+
+		private OpenChain(FormulaCreator.NaryBuilder builder, boolean conjunction, int position) {
+			this.builder = builder;
+			this.conjunction = conjunction;
+			this.position = position;
+		}
+	}
+
+	// This listener is attached to the running parser. The parser reports the end of each term after the end of all
+	// its subterms, so the formulas of the subterms can be kept on a stack.
 	private class FormulaListener extends MuCalculusFormulaBaseListener {
-		private final ParseTreeProperty<Formula> formulas = new ParseTreeProperty<>();
+		private final Deque<Formula> formulas = new ArrayDeque<>();
+		// "a && b && c" is parsed as "(a && b) && c". To avoid copying the children for each step, chains of
+		// conjunctions or disjunctions are kept open until something else needs them as an operand.
+		private final Deque<OpenChain> chains = new ArrayDeque<>();
+		private final Deque<Integer> argumentsStart = new ArrayDeque<>();
+		private final Deque<List<Formula>> arguments = new ArrayDeque<>();
 		private Formula formula;
 
 		private Formula getFormula() {
 			return formula;
 		}
 
+		// Is the top of the stack an open chain of the given kind (or of any kind, if kind is null)?
+		private boolean chainOnTop(Boolean conjunction) {
+			OpenChain chain = chains.peek();
+			if (chain == null || chain.position != formulas.size())
+				return false;
+			return conjunction == null || chain.conjunction == conjunction;
+		}
+
+		private void push(Formula formula) {
+			formulas.push(formula);
+		}
+
+		private Formula pop() {
+			if (chainOnTop(null))
+				return chains.pop().builder.build();
+			return formulas.pop();
+		}
+
+		// Open chains count as one entry each
+		private int stackSize() {
+			return formulas.size() + chains.size();
+		}
+
+		private void chain(boolean conjunction) {
+			Formula right = pop();
+			if (chainOnTop(conjunction)) {
+				chains.peek().builder.add(right);
+				return;
+			}
+			Formula left = pop();
+			FormulaCreator.NaryBuilder builder =
+				conjunction ? creator.conjunctionBuilder() : creator.disjunctionBuilder();
+			builder.add(left).add(right);
+			chains.push(new OpenChain(builder, conjunction, formulas.size()));
+		}
+
 		@Override
 		public void exitFormula(MuCalculusFormulaParser.FormulaContext ctx) {
-			formula = formulas.get(ctx.term());
+			formula = pop();
 		}
 
 		@Override
 		public void exitTermDisjunction(MuCalculusFormulaParser.TermDisjunctionContext ctx) {
-			formulas.put(ctx, creator.disjunction(formulas.get(ctx.term(0)), formulas.get(ctx.term(1))));
+			chain(false);
 		}
 
 		@Override
 		public void exitTermConjunction(MuCalculusFormulaParser.TermConjunctionContext ctx) {
-			formulas.put(ctx, creator.conjunction(formulas.get(ctx.term(0)), formulas.get(ctx.term(1))));
+			chain(true);
 		}
 
 		@Override
 		public void exitTermNegation(MuCalculusFormulaParser.TermNegationContext ctx) {
-			Formula result = formulas.get(ctx.term());
-			result = creator.negate(result);
-			formulas.put(ctx, result);
+			push(creator.negate(pop()));
 		}
 
 		@Override
 		public void exitTermVariable(MuCalculusFormulaParser.TermVariableContext ctx) {
-			String var = ctx.IDENTIFIER().getText();
-			Formula result = creator.variable(var);
-			formulas.put(ctx, result);
+			push(creator.variable(ctx.IDENTIFIER().getText()));
 		}
 
 		@Override
 		public void exitTermParantheses(MuCalculusFormulaParser.TermParanthesesContext ctx) {
-			formulas.put(ctx, formulas.get(ctx.term()));
+			// The inner formula already is on the stack
 		}
 
 		@Override
 		public void exitTermExistentialModality(MuCalculusFormulaParser.TermExistentialModalityContext ctx) {
-			modality(ctx, Modality.EXISTENTIAL, ctx.IDENTIFIER().getText(), ctx.term());
+			push(creator.modality(Modality.EXISTENTIAL, ctx.IDENTIFIER().getText(), pop()));
 		}
 
 		@Override
 		public void exitTermUniversalModality(MuCalculusFormulaParser.TermUniversalModalityContext ctx) {
-			modality(ctx, Modality.UNIVERSAL, ctx.IDENTIFIER().getText(), ctx.term());
+			push(creator.modality(Modality.UNIVERSAL, ctx.IDENTIFIER().getText(), pop()));
 		}
 
-		private void modality(MuCalculusFormulaParser.TermContext ctx, Modality mod, String event,
-				MuCalculusFormulaParser.TermContext inner) {
-			formulas.put(ctx, creator.modality(mod, event, formulas.get(inner)));
+		@Override
+		public void exitTermLet(MuCalculusFormulaParser.TermLetContext ctx) {
+			Formula inner = pop();
+			Formula definition = pop();
+			push(creator.let(creator.variable(ctx.IDENTIFIER().getText()), definition, inner));
 		}
 
 		@Override
-		public void exitTermLet(MuCalculusFormulaParser.TermLetContext ctx) {
-			formulas.put(ctx, creator.let(creator.variable(ctx.IDENTIFIER().getText()),
-							formulas.get(ctx.term(0)), formulas.get(ctx.term(1))));
+		public void enterArguments(MuCalculusFormulaParser.ArgumentsContext ctx) {
+			argumentsStart.push(stackSize());
 		}
 
 		@Override
-		public void exitTermCall(MuCalculusFormulaParser.TermCallContext ctx) {
-			MuCalculusFormulaParser.ArgumentsContext argsContext = ctx.arguments();
+		public void exitArguments(MuCalculusFormulaParser.ArgumentsContext ctx) {
+			int count = stackSize() - argumentsStart.pop();
 			List<Formula> args = Collections.emptyList();
-			if (argsContext != null) {
-				List<MuCalculusFormulaParser.TermContext> list = argsContext.term();
-				args = new ArrayList<>(list.size());
-				for (MuCalculusFormulaParser.TermContext tCtx : list) {
-					args.add(formulas.get(tCtx));
-				}
+			if (count > 0) {
+				args = new ArrayList<>(Collections.<Formula>nCopies(count, null));
+				for (int i = count - 1; i >= 0; i--)
+					args.set(i, pop());
 			}
-			formulas.put(ctx, creator.call(ctx.IDENTIFIER().getText(), args));
+			arguments.push(args);
+		}
+
+		@Override
+		public void exitTermCall(MuCalculusFormulaParser.TermCallContext ctx) {
+			push(creator.call(ctx.IDENTIFIER().getText(), arguments.pop()));
 		}
 
 		@Override
 		public void exitTermLeastFixedPoint(MuCalculusFormulaParser.TermLeastFixedPointContext ctx) {
-			fixedPoint(ctx, FixedPoint.LEAST, ctx.IDENTIFIER().getText(), ctx.term());
+			fixedPoint(FixedPoint.LEAST, ctx.IDENTIFIER().getText());
 		}
 
 		@Override
 		public void exitTermGreatestFixedPoint(MuCalculusFormulaParser.TermGreatestFixedPointContext ctx) {
-			fixedPoint(ctx, FixedPoint.GREATEST, ctx.IDENTIFIER().getText(), ctx.term());
+			fixedPoint(FixedPoint.GREATEST, ctx.IDENTIFIER().getText());
 		}
 
-		private void fixedPoint(MuCalculusFormulaParser.TermContext ctx, FixedPoint fp, String variable,
-				MuCalculusFormulaParser.TermContext inner) {
-			formulas.put(ctx, creator.fixedPoint(fp, creator.variable(variable), formulas.get(inner)));
+		private void fixedPoint(FixedPoint fp, String variable) {
+			push(creator.fixedPoint(fp, creator.variable(variable), pop()));
 		}
 
 		@Override
 		public void exitTermFalse(MuCalculusFormulaParser.TermFalseContext ctx) {
-			formulas.put(ctx, creator.constant(false));
+			push(creator.constant(false));
 		}
 
 		@Override
 		public void exitTermTrue(MuCalculusFormulaParser.TermTrueContext ctx) {
-			formulas.put(ctx, creator.constant(true));
+			push(creator.constant(true));
 		}
 	}
 
 	private static class ThrowingErrorListener extends BaseErrorListener {
+		// After an error, the parser still leaves all the rules that it is in. Since the formulas are incomplete,
+		// it must not report this to the FormulaListener anymore.
+		private Parser parser;
+
 		@Override
 		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
 				int charPositionInLine, String msg, RecognitionException e) {
+			if (parser != null)
+				parser.removeParseListeners();
 			throw new ParseRuntimeException("line " + line + " col " + charPositionInLine + ": " + msg, e);
 		}
 	}
 
+	// The default implementation quotes the whole input from the start of the failed decision, but the unbuffered
+	// token stream might not have this input anymore.
+	private static class UnbufferedErrorStrategy extends DefaultErrorStrategy {
+		@Override
+		protected void reportNoViableAlternative(Parser recognizer, NoViableAltException e) {
+			String msg = "no viable alternative at input " + getTokenErrorDisplay(e.getOffendingToken());
+			recognizer.notifyErrorListeners(e.getOffendingToken(), msg, e);
+		}
+	}
+
 	private static class ParseRuntimeException extends RuntimeException {
 		public static final long serialVersionUID = 0;
 
@@ -171,32 +261,65 @@ public class FormulaParser {
 	}
 
 	public Formula parse(String str) throws ParseException {
-		CharStream input = new ANTLRInputStream(str);
-		MuCalculusFormulaLexer lexer = new MuCalculusFormulaLexer(input);
+		try {
+			return parse(new StringReader(str));
+		} catch (IOException e) {
+			// A StringReader does not throw
+			throw new RuntimeException(e);
+		}
+	}
 
-		// Don't spam errors to stderr, instead throw exceptions
-		lexer.removeErrorListeners();
-		lexer.addErrorListener(new ThrowingErrorListener());
+	public Formula parse(File file) throws IOException, ParseException {
+		Reader reader;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size <= Integer.MAX_VALUE) {
+				// The mapping stays valid after the channel is closed
+				reader = new InputStreamReader(new ByteBufferInputStream(
+							channel.map(FileChannel.MapMode.READ_ONLY, 0, size)), StandardCharsets.UTF_8);
+			} else {
+				// Too large to be mapped in one piece
+				reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+			}
+		}
+		try {
+			return parse(reader);
+		} finally {
+			reader.close();
+		}
+	}
 
-		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		MuCalculusFormulaParser parser = new MuCalculusFormulaParser(tokens);
-		parser.setBuildParseTree(true);
+	public Formula parse(Reader reader) throws IOException, ParseException {
+		ThrowingErrorListener errorListener = new ThrowingErrorListener();
+		MuCalculusFormulaLexer lexer = new MuCalculusFormulaLexer(new UnbufferedCharStream(reader));
+		// Tokens must remember their text, since the input stream does not keep it
+		lexer.setTokenFactory(new CommonTokenFactory(true));
 
 		// Don't spam errors to stderr, instead throw exceptions
-		parser.removeErrorListeners();
-		parser.addErrorListener(new ThrowingErrorListener());
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(errorListener);
 
-		ParseTree tree;
-		try {
-			tree = parser.formula();
-		} catch (ParseRuntimeException ex) {
-			throw ex.getParseException();
-		}
 		FormulaListener listener = new FormulaListener();
 		try {
-			ParseTreeWalker.DEFAULT.walk(listener, tree);
+			MuCalculusFormulaParser parser = new MuCalculusFormulaParser(
+					new UnbufferedTokenStream<Token>(lexer));
+			parser.setBuildParseTree(false);
+			parser.setErrorHandler(new UnbufferedErrorStrategy());
+			parser.addParseListener(listener);
+
+			// Don't spam errors to stderr, instead throw exceptions
+			parser.removeErrorListeners();
+			parser.addErrorListener(errorListener);
+			errorListener.parser = parser;
+
+			parser.formula();
 		} catch (ParseRuntimeException ex) {
 			throw ex.getParseException();
+		} catch (RuntimeException ex) {
+			// The input streams wrap exceptions from the reader
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			throw ex;
 		}
 		return listener.getFormula();
 	}
@@ -204,6 +327,14 @@ public class FormulaParser {
 	static public Formula parse(FormulaCreator creator, String str) throws ParseException {
 		return new FormulaParser(creator).parse(str);
 	}
+
+	static public Formula parse(FormulaCreator creator, Reader reader) throws IOException, ParseException {
+		return new FormulaParser(creator).parse(reader);
+	}
+
+	static public Formula parse(FormulaCreator creator, File file) throws IOException, ParseException {
+		return new FormulaParser(creator).parse(file);
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
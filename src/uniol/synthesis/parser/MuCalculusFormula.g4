@@ -30,14 +30,15 @@ term:		NEGATION term					# termNegation
 	|	term CONJUNCTION term				# termConjunction
 	|	term DISJUNCTION term				# termDisjunction
 	|	LET IDENTIFIER EQUAL term IN term		# termLet
-	|	IDENTIFIER PAREN_OPEN arguments? PAREN_CLOSE	# termCall
+	|	IDENTIFIER PAREN_OPEN arguments PAREN_CLOSE	# termCall
 	|	MU IDENTIFIER DOT term				# termLeastFixedPoint
 	|	NU IDENTIFIER DOT term				# termGreatestFixedPoint
 	|	FALSE						# termFalse
 	|	TRUE						# termTrue
 	;
 
-arguments: term (COMMA term)*;
+// Also matches an empty argument list, so that the parser always reports where the arguments begin and end
+arguments: (term (COMMA term)*)?;
 
 DOT:		'.';
 COMMA:		',';
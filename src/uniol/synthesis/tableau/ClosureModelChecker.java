@@ -0,0 +1,286 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.tableau;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniol.apt.adt.ts.Arc;
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+import uniol.synthesis.adt.mu_calculus.EventTable;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.Modality;
+
+/**
+ * Model checker that works on a {@link FormulaClosure} and on states and events that are numbered by ints. For every
+ * closure entry the set of states satisfying it is computed as a bit set, so no formulas are created while checking.
+ *
+ * Fixed points are computed by iterating their body until it is stable. Nested fixed points are restarted every time
+ * their surrounding fixed point changes, unless they are closed formulas which are only computed once.
+ */
+public class ClosureModelChecker {
+	private final FormulaClosure closure;
+	private final int stateCount;
+	// Arcs grouped by event: arcs with event e are at indices eventStart[e] up to (excluding) eventStart[e + 1]
+	private final int[] eventStart;
+	private final int[] arcSources;
+	private final int[] arcTargets;
+
+	private final BitSet[] values;
+	private final boolean[] done;
+	private final int[][] scopes;
+
+	/**
+	 * Create a model checker for the given closure and transition system.
+	 * @param closure The formula that should be checked.
+	 * @param stateCount The number of states. States are numbered from zero.
+	 * @param sources The source state of each arc.
+	 * @param events The event id of each arc in the closure's {@link EventTable}.
+	 * @param targets The target state of each arc.
+	 */
+	public ClosureModelChecker(FormulaClosure closure, int stateCount, int[] sources, int[] events,
+			int[] targets) {
+		if (sources.length != events.length || sources.length != targets.length)
+			throw new IllegalArgumentException("All arrays describing arcs must have the same length");
+		this.closure = closure;
+		this.stateCount = stateCount;
+
+		// Sort the arcs by event with a counting sort
+		int eventCount = closure.getEventTable().size();
+		for (int event : events)
+			eventCount = Math.max(eventCount, event + 1);
+		this.eventStart = new int[eventCount + 1];
+		for (int event : events)
+			eventStart[event + 1]++;
+		for (int event = 0; event < eventCount; event++)
+			eventStart[event + 1] += eventStart[event];
+		int[] next = eventStart.clone();
+		this.arcSources = new int[sources.length];
+		this.arcTargets = new int[targets.length];
+		for (int arc = 0; arc < sources.length; arc++) {
+			int position = next[events[arc]]++;
+			arcSources[position] = sources[arc];
+			arcTargets[position] = targets[arc];
+		}
+
+		this.values = new BitSet[closure.size()];
+		this.done = new boolean[closure.size()];
+		this.scopes = new int[closure.size()][];
+	}
+
+	/**
+	 * Get the states that satisfy the formula.
+	 * @return A new bit set containing the states satisfying the formula.
+	 */
+	public BitSet getSatisfyingStates() {
+		evaluate();
+		return (BitSet) values[0].clone();
+	}
+
+	/**
+	 * Check if a state satisfies the formula.
+	 * @param state The state to check.
+	 * @return true if the state satisfies the formula.
+	 */
+	public boolean holds(int state) {
+		evaluate();
+		return values[0].get(state);
+	}
+
+	final static private class Frame {
+		// The fixed point that is iterated, or -1 for the formula itself
+		private final int fixedPoint;
+		private final int[] scope;
+		private int position = 0;
+
+		private Frame(int fixedPoint, int[] scope) {
+			this.fixedPoint = fixedPoint;
+			this.scope = scope;
+		}
+	}
+
+	private void evaluate() {
+		if (done[0])
+			return;
+
+		Deque<Frame> stack = new ArrayDeque<>();
+		stack.push(new Frame(-1, getScope(0)));
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.position < frame.scope.length) {
+				int entry = frame.scope[frame.position++];
+				if (done[entry])
+					continue;
+				if (closure.getKind(entry) == FormulaKind.FIXED_POINT) {
+					// (Re-)start the iteration of a nested fixed point
+					if (closure.getFixedPoint(entry) == FixedPoint.GREATEST)
+						values[entry] = allStates();
+					else
+						values[entry] = new BitSet();
+					stack.push(new Frame(entry, getScope(closure.getChild(entry, 0))));
+				} else {
+					values[entry] = compute(entry);
+					done[entry] = closure.isClosed(entry);
+				}
+				continue;
+			}
+
+			if (frame.fixedPoint == -1) {
+				stack.pop();
+				continue;
+			}
+
+			BitSet body = values[closure.getChild(frame.fixedPoint, 0)];
+			if (body.equals(values[frame.fixedPoint])) {
+				stack.pop();
+				done[frame.fixedPoint] = closure.isClosed(frame.fixedPoint);
+			} else {
+				values[frame.fixedPoint] = body;
+				frame.position = 0;
+			}
+		}
+		done[0] = true;
+		assert values[0] != null;
+	}
+
+	// Get the entries that have to be computed for the given entry, including the entry itself. This does not look
+	// into fixed points, since their bodies are computed by their own frame. Children come before their parents.
+	private int[] getScope(int root) {
+		if (scopes[root] != null)
+			return scopes[root];
+
+		BitSet seen = new BitSet();
+		Deque<Integer> todo = new ArrayDeque<>();
+		seen.set(root);
+		todo.push(root);
+		while (!todo.isEmpty()) {
+			int entry = todo.pop();
+			if (closure.getKind(entry) == FormulaKind.FIXED_POINT)
+				continue;
+			for (int i = 0; i < closure.getChildCount(entry); i++) {
+				int child = closure.getChild(entry, i);
+				if (!seen.get(child)) {
+					seen.set(child);
+					todo.push(child);
+				}
+			}
+		}
+		// Parents have smaller indices than their children, so going backwards handles children first
+		int[] scope = new int[seen.cardinality()];
+		int position = 0;
+		for (int entry = seen.length() - 1; entry >= 0; entry = seen.previousSetBit(entry - 1))
+			scope[position++] = entry;
+		scopes[root] = scope;
+		return scope;
+	}
+
+	private BitSet allStates() {
+		BitSet result = new BitSet(stateCount);
+		result.set(0, stateCount);
+		return result;
+	}
+
+	private BitSet compute(int entry) {
+		switch (closure.getKind(entry)) {
+			case CONSTANT:
+				return closure.getConstantValue(entry) ? allStates() : new BitSet();
+			case VARIABLE:
+				return values[closure.getBinder(entry)];
+			case CONJUNCTION:
+			{
+				BitSet result = allStates();
+				for (int i = 0; i < closure.getChildCount(entry); i++)
+					result.and(values[closure.getChild(entry, i)]);
+				return result;
+			}
+			case DISJUNCTION:
+			{
+				BitSet result = new BitSet();
+				for (int i = 0; i < closure.getChildCount(entry); i++)
+					result.or(values[closure.getChild(entry, i)]);
+				return result;
+			}
+			case MODALITY:
+				return modality(closure.getModality(entry), closure.getEventId(entry),
+						values[closure.getChild(entry, 0)]);
+			default:
+				throw new AssertionError("Unexpected formula in closure: " + closure.getFormula(entry));
+		}
+	}
+
+	private BitSet modality(Modality modality, int event, BitSet inner) {
+		int start = event + 1 < eventStart.length ? eventStart[event] : 0;
+		int end = event + 1 < eventStart.length ? eventStart[event + 1] : 0;
+		if (modality == Modality.EXISTENTIAL) {
+			// Some successor satisfies the inner formula
+			BitSet result = new BitSet(stateCount);
+			for (int arc = start; arc < end; arc++)
+				if (inner.get(arcTargets[arc]))
+					result.set(arcSources[arc]);
+			return result;
+		}
+
+		// All successors satisfy the inner formula
+		BitSet result = allStates();
+		for (int arc = start; arc < end; arc++)
+			if (!inner.get(arcTargets[arc]))
+				result.clear(arcSources[arc]);
+		return result;
+	}
+
+	/**
+	 * Check if the initial state of a transition system satisfies a formula.
+	 * @param ts The transition system to check.
+	 * @param formula The formula to check.
+	 * @return true if the initial state satisfies the formula.
+	 */
+	static public boolean check(TransitionSystem ts, Formula formula) {
+		FormulaClosure closure = new FormulaClosure(formula);
+		EventTable events = closure.getEventTable();
+
+		Map<State, Integer> states = new HashMap<>();
+		for (State state : ts.getNodes())
+			states.put(state, states.size());
+
+		List<Arc> arcs = new ArrayList<>(ts.getEdges());
+		int[] sources = new int[arcs.size()];
+		int[] labels = new int[arcs.size()];
+		int[] targets = new int[arcs.size()];
+		for (int i = 0; i < arcs.size(); i++) {
+			Arc arc = arcs.get(i);
+			sources[i] = states.get(arc.getSource());
+			labels[i] = events.getId(arc.getLabel());
+			targets[i] = states.get(arc.getTarget());
+		}
+
+		return new ClosureModelChecker(closure, states.size(), sources, labels, targets)
+			.holds(states.get(ts.getInitialState()));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
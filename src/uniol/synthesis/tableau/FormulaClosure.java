@@ -0,0 +1,242 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.tableau;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.ConstantFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.EventTable;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.CleanFormFormulaTransformer.cleanForm;
+import static uniol.synthesis.util.PositiveFormFormulaTransformer.positiveForm;
+import static uniol.synthesis.util.UnLetTransformer.unLet;
+
+/**
+ * The closure of a formula as a table of entries that are identified by an int. Every distinct subformula of the
+ * formula in clean positive form is one entry. Entries are numbered so that the formula itself is entry 0 and every
+ * entry comes before its children. A variable refers to the fixed point entry that binds it, so unfolding a fixed
+ * point is just following this reference instead of substituting.
+ */
+public class FormulaClosure {
+	private final EventTable events;
+	private final Formula[] formulas;
+	private final FormulaKind[] kinds;
+	private final int[][] children;
+	// The binding fixed point for variables, the event id for modalities and otherwise -1
+	private final int[] payloads;
+	private final boolean[] closed;
+
+	/**
+	 * Compute the closure of a formula. The formula is first transformed into clean positive form without lets.
+	 * @param formula The formula whose closure should be computed.
+	 * @throws IllegalArgumentException If the formula contains free variables.
+	 */
+	public FormulaClosure(Formula formula) {
+		formula = cleanForm(positiveForm(unLet(formula)));
+		this.events = formula.getCreator().getEventTable();
+
+		List<Formula> postOrder = new ArrayList<>();
+		List<List<Formula>> postChildren = new ArrayList<>();
+		numberFormulas(formula, postOrder, postChildren);
+
+		int size = postOrder.size();
+		Map<Formula, Integer> index = new HashMap<>();
+		this.formulas = new Formula[size];
+		this.kinds = new FormulaKind[size];
+		for (int i = 0; i < size; i++) {
+			formulas[i] = postOrder.get(size - 1 - i);
+			kinds[i] = formulas[i].getKind();
+			index.put(formulas[i], i);
+		}
+
+		Map<VariableFormula, Integer> binders = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			if (kinds[i] != FormulaKind.FIXED_POINT)
+				continue;
+			Integer old = binders.put(((FixedPointFormula) formulas[i]).getVariable(), i);
+			assert old == null : "Formula is not in clean form: " + formula;
+		}
+
+		this.children = new int[size][];
+		this.payloads = new int[size];
+		this.closed = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			List<Formula> kids = postChildren.get(size - 1 - i);
+			children[i] = new int[kids.size()];
+			for (int j = 0; j < children[i].length; j++)
+				children[i][j] = index.get(kids.get(j));
+
+			payloads[i] = -1;
+			if (kinds[i] == FormulaKind.VARIABLE) {
+				Integer binder = binders.get((VariableFormula) formulas[i]);
+				if (binder == null)
+					throw new IllegalArgumentException("Free variable " + formulas[i]
+							+ " in " + formula);
+				payloads[i] = binder;
+			} else if (kinds[i] == FormulaKind.MODALITY) {
+				payloads[i] = ((ModalityFormula) formulas[i]).getEventId();
+			}
+		}
+
+		// The binder of a free variable of an entry comes before the entry, since every path from the root
+		// to the variable passes through its binder. Thus, only the first binder of a free variable has to be
+		// known, and a fixed point is closed if this is the fixed point itself. Children come after their
+		// parents, so this is computed from the last entry to the first.
+		int[] firstFreeBinder = new int[size];
+		for (int i = size - 1; i >= 0; i--) {
+			int first = size;
+			if (kinds[i] == FormulaKind.VARIABLE)
+				first = payloads[i];
+			for (int child : children[i])
+				first = Math.min(first, firstFreeBinder[child]);
+			if (first == i)
+				first = size;
+			firstFreeBinder[i] = first;
+			closed[i] = first == size;
+		}
+	}
+
+	static private void numberFormulas(Formula root, List<Formula> postOrder, List<List<Formula>> postChildren) {
+		// Iterative depth first search. For each formula on the stack, remember how many children were visited.
+		List<Formula> stack = new ArrayList<>();
+		List<Integer> visited = new ArrayList<>();
+		Map<Formula, Boolean> seen = new HashMap<>();
+		stack.add(root);
+		visited.add(0);
+		seen.put(root, true);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			Formula formula = stack.get(top);
+			List<Formula> kids = getChildren(formula);
+			int next = visited.get(top);
+			if (next < kids.size()) {
+				visited.set(top, next + 1);
+				Formula child = kids.get(next);
+				if (seen.put(child, true) == null) {
+					stack.add(child);
+					visited.add(0);
+				}
+				continue;
+			}
+
+			stack.remove(top);
+			visited.remove(top);
+			postOrder.add(formula);
+			postChildren.add(kids);
+		}
+	}
+
+	static private List<Formula> getChildren(Formula formula) {
+		switch (formula.getKind()) {
+			case CONSTANT:
+			case VARIABLE:
+				return Collections.emptyList();
+			case CONJUNCTION:
+				return ((ConjunctionFormula) formula).getFormulas();
+			case DISJUNCTION:
+				return ((DisjunctionFormula) formula).getFormulas();
+			case MODALITY:
+				return Collections.singletonList(((ModalityFormula) formula).getFormula());
+			case FIXED_POINT:
+				return Collections.singletonList(((FixedPointFormula) formula).getFormula());
+			case NEGATION:
+				// The positive form only contains negations of free variables
+				throw new IllegalArgumentException("Free variable in negation " + formula);
+			default:
+				throw new IllegalArgumentException("Unsupported formula " + formula);
+		}
+	}
+
+	public int size() {
+		return formulas.length;
+	}
+
+	public EventTable getEventTable() {
+		return events;
+	}
+
+	public Formula getFormula(int entry) {
+		return formulas[entry];
+	}
+
+	public FormulaKind getKind(int entry) {
+		return kinds[entry];
+	}
+
+	public int getChildCount(int entry) {
+		return children[entry].length;
+	}
+
+	public int getChild(int entry, int index) {
+		return children[entry][index];
+	}
+
+	public boolean getConstantValue(int entry) {
+		return ((ConstantFormula) formulas[entry]).getValue();
+	}
+
+	public Modality getModality(int entry) {
+		return ((ModalityFormula) formulas[entry]).getModality();
+	}
+
+	public int getEventId(int entry) {
+		assert kinds[entry] == FormulaKind.MODALITY;
+		return payloads[entry];
+	}
+
+	public FixedPoint getFixedPoint(int entry) {
+		return ((FixedPointFormula) formulas[entry]).getFixedPoint();
+	}
+
+	/**
+	 * Get the fixed point that binds a variable.
+	 * @param entry A variable entry.
+	 * @return The entry of the fixed point formula binding the variable.
+	 */
+	public int getBinder(int entry) {
+		assert kinds[entry] == FormulaKind.VARIABLE;
+		return payloads[entry];
+	}
+
+	/**
+	 * Check if an entry is a closed formula. The value of a closed formula does not depend on any fixed point
+	 * around it.
+	 * @param entry The entry to check.
+	 * @return true if the entry has no free variables.
+	 */
+	public boolean isClosed(int entry) {
+		return closed[entry];
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -51,6 +52,14 @@ public class Tableau<S> {
 		return true;
 	}
 
+	public int countUnsuccessfulLeaves() {
+		int result = 0;
+		for (TableauNode<S> node : leaves)
+			if (!node.isSuccessful())
+				result++;
+		return result;
+	}
+
 	public boolean alreadyHandled(S state, Formula formula) {
 		Set<Formula> handled = handledClosedFormulas.get(state);
 		if (handled == null)
@@ -58,7 +67,7 @@ public class Tableau<S> {
 		return handled.contains(formula);
 	}
 
-	Map<S, Set<Formula>> getHandled() {
+	public Map<S, Set<Formula>> getHandled() {
 		return handledClosedFormulas;
 	}
 
@@ -79,6 +88,15 @@ public class Tableau<S> {
 		return new Tableau<S>(Collections.singleton(new TableauNode<S>(followArcs, state, formula)),
 				Collections.<S, Set<Formula>>emptyMap());
 	}
+
+	// Recreate a tableau from its parts, e.g. when reading it back from a file
+	static public <S> Tableau<S> createTableau(Collection<TableauNode<S>> leaves,
+			Map<S, Set<Formula>> handledClosedFormulas) {
+		Map<S, Set<Formula>> handled = new HashMap<>();
+		for (Map.Entry<S, Set<Formula>> entry : handledClosedFormulas.entrySet())
+			handled.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+		return new Tableau<S>(leaves, handled);
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -40,8 +40,10 @@ import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 import uniol.synthesis.util.FormulaWalker;
+import uniol.synthesis.util.GuardedFormFormulaTransformer;
 import uniol.synthesis.util.NonRecursive;
 import static uniol.synthesis.util.GetFreeVariables.getFreeVariables;
+import static uniol.synthesis.util.GuardedFormFormulaTransformer.guardedForm;
 import static uniol.synthesis.util.PositiveFormFormulaTransformer.positiveForm;
 import static uniol.synthesis.util.SubstitutionTransformer.substitute;
 import static uniol.synthesis.util.UnLetTransformer.unLet;
@@ -87,6 +89,7 @@ public class TableauBuilder<S> {
 
 	private final FollowArcs<S> followArcs;
 	private final ProgressCallback<S> callback;
+	private boolean guardedForm = false;
 
 	public TableauBuilder(FollowArcs<S> followArcs) {
 		this(followArcs, TableauBuilder.<S>nopProgressCallback());
@@ -97,9 +100,20 @@ public class TableauBuilder<S> {
 		this.callback = callback;
 	}
 
+	/**
+	 * Remove unguarded fixed point variables from formulas before building tableaus.
+	 * @param guardedForm whether formulas should be transformed into guarded form
+	 * @see GuardedFormFormulaTransformer
+	 */
+	public void setGuardedForm(boolean guardedForm) {
+		this.guardedForm = guardedForm;
+	}
+
 	public void createTableaus(NonRecursive engine, ResultCallback<S> resultCallback, S state, Formula formula,
 			TableauSelection selection) {
 		formula = positiveForm(unLet(formula));
+		if (guardedForm)
+			formula = guardedForm(formula);
 		expandTableau(engine, resultCallback, Tableau.<S>createInitialTableau(followArcs, state, formula),
 				selection);
 	}
@@ -259,17 +273,17 @@ public class TableauBuilder<S> {
 
 		@Override
 		public void walk(NonRecursive engine, ConjunctionFormula formula) {
-			Collection<TableauNode<S>> children = new ArrayList<>(formula.getFormulas().size());
-			for (Formula child : formula.getFormulas())
-				children.add(node.createChild(child));
+			Collection<TableauNode<S>> children = new ArrayList<>(formula.size());
+			for (int i = 0; i < formula.size(); i++)
+				children.add(node.createChild(formula.get(i)));
 			expansion = Collections.singleton(children);
 		}
 
 		@Override
 		public void walk(NonRecursive engine, DisjunctionFormula formula) {
-			Collection<Collection<TableauNode<S>>> children = new ArrayList<>(formula.getFormulas().size());
-			for (Formula child : formula.getFormulas())
-				children.add(Collections.singleton(node.createChild(child)));
+			Collection<Collection<TableauNode<S>>> children = new ArrayList<>(formula.size());
+			for (int i = 0; i < formula.size(); i++)
+				children.add(Collections.singleton(node.createChild(formula.get(i))));
 			expansion = children;
 		}
 
@@ -60,6 +60,15 @@ public class TableauNode<S> {
 		this.expansionsAbove = Collections.emptySet();
 	}
 
+	// Recreate a node from its parts, e.g. when reading it back from a file
+	static public <S> TableauNode<S> createNode(FollowArcs<S> followArcs, S state, Formula formula,
+			Map<VariableFormula, FixedPointFormula> constantDefinitions,
+			Set<Pair<S, VariableFormula>> expansionsAbove) {
+		return new TableauNode<S>(followArcs, state, formula,
+				Collections.unmodifiableMap(new HashMap<>(constantDefinitions)),
+				Collections.unmodifiableSet(new HashSet<>(expansionsAbove)));
+	}
+
 	protected FollowArcs<S> getFollowArcs() {
 		return followArcs;
 	}
@@ -132,6 +141,14 @@ public class TableauNode<S> {
 		return constantDefinitions.get(var);
 	}
 
+	public Map<VariableFormula, FixedPointFormula> getConstantDefinitions() {
+		return constantDefinitions;
+	}
+
+	public Set<Pair<S, VariableFormula>> getExpansionsAbove() {
+		return expansionsAbove;
+	}
+
 	@Override
 	public int hashCode() {
 		int result = 0;
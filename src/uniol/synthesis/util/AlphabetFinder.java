@@ -19,6 +19,7 @@
 
 package uniol.synthesis.util;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -28,105 +29,180 @@ import uniol.synthesis.adt.mu_calculus.CallFormula;
 import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.ConstantFormula;
 import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.EventTable;
 import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
-public class AlphabetFinder extends FormulaTransformer<Set<String>> {
+public class AlphabetFinder extends ParallelFormulaTransformer<Set<String>> {
 	@Override
-	protected void enqueueWalker(NonRecursive engine, Formula formula) {
-		engine.enqueue(new Worker(formula));
+	protected boolean usesBoundVariables() {
+		return false;
 	}
 
-	final private class Worker extends FormulaTransformer<Set<String>>.FillCache {
-		private Worker(Formula formula) {
-			super(formula);
+	private Set<String> union(List<Set<String>> sets) {
+		Set<String> result = new HashSet<>();
+		for (Set<String> set : sets)
+			result.addAll(set);
+		return result;
+	}
+
+	@Override
+	protected Set<String> constant(Scope scope, ConstantFormula formula) {
+		return Collections.<String>emptySet();
+	}
+
+	@Override
+	protected Set<String> variable(Scope scope, VariableFormula formula) {
+		return Collections.<String>emptySet();
+	}
+
+	@Override
+	protected Set<String> conjunction(Scope scope, ConjunctionFormula formula,
+			List<Set<String>> transformedChildren) {
+		return union(transformedChildren);
+	}
+
+	@Override
+	protected Set<String> disjunction(Scope scope, DisjunctionFormula formula,
+			List<Set<String>> transformedChildren) {
+		return union(transformedChildren);
+	}
+
+	@Override
+	protected Set<String> negate(Scope scope, NegationFormula formula, Set<String> transformedChild) {
+		return transformedChild;
+	}
+
+	@Override
+	protected Set<String> modality(Scope scope, ModalityFormula formula, Set<String> transformedChild) {
+		if (transformedChild.contains(formula.getEvent()))
+			return transformedChild;
+		Set<String> result = new HashSet<>(transformedChild);
+		result.add(formula.getEvent());
+		return result;
+	}
+
+	@Override
+	protected Set<String> fixedPoint(Scope scope, FixedPointFormula formula, Set<String> transformedChild) {
+		return transformedChild;
+	}
+
+	@Override
+	protected Set<String> call(Scope scope, CallFormula formula, List<Set<String>> transformedArguments) {
+		return union(transformedArguments);
+	}
+
+	static public Set<String> getAlphabet(Formula formula) {
+		MemoTable<Set<String>> memo = formula.getCreator().getMemoTable("alphabet");
+		Set<String> result = memo.get(formula);
+		if (result != null)
+			return result;
+
+		// The result is shared via the memo table and thus must not be modified
+		result = Collections.unmodifiableSet(new AlphabetFinder().transform(formula));
+		memo.put(formula, result);
+		return result;
+	}
+
+	/**
+	 * Get the alphabet of a formula as a set of ids in the formula creator's {@link EventTable}. The alphabets of
+	 * all subformulas are remembered in the creator, so later calls for formulas sharing subformulas with this
+	 * one only visit the new parts.
+	 * @param formula The formula whose alphabet should be found.
+	 * @return A new bit set containing the ids of all events in the formula.
+	 */
+	static public BitSet getAlphabetIds(Formula formula) {
+		MemoTable<BitSet> memo = formula.getCreator().getMemoTable("alphabetIds");
+		BitSet result = memo.get(formula);
+		if (result == null)
+			result = new IdFinder(memo).transform(formula);
+		// Bit sets cannot be made unmodifiable, so hand out a copy
+		return (BitSet) result.clone();
+	}
+
+	// Finds alphabets as sets of event ids. The resulting bit sets are shared between formulas and must not be
+	// modified.
+	static private class IdFinder extends ParallelFormulaTransformer<BitSet> {
+		final private BitSet empty = new BitSet();
+
+		private IdFinder(MemoTable<BitSet> memo) {
+			useMemoTable(memo);
 		}
 
-		private Set<String> union(List<Set<String>> sets) {
-			Set<String> result = new HashSet<>();
-			for (Set<String> set : sets)
-				result.addAll(set);
+		@Override
+		protected boolean usesBoundVariables() {
+			return false;
+		}
+
+		private BitSet union(List<BitSet> sets) {
+			BitSet result = empty;
+			boolean copied = false;
+			for (BitSet set : sets) {
+				if (set.isEmpty() || set == result)
+					continue;
+				if (result.isEmpty()) {
+					result = set;
+					continue;
+				}
+				if (!copied) {
+					result = (BitSet) result.clone();
+					copied = true;
+				}
+				result.or(set);
+			}
 			return result;
 		}
 
 		@Override
-		public void walk(NonRecursive engine, ConstantFormula formula) {
-			setCache(formula, Collections.<String>emptySet());
+		protected BitSet constant(Scope scope, ConstantFormula formula) {
+			return empty;
 		}
 
 		@Override
-		public void walk(NonRecursive engine, VariableFormula formula) {
-			setCache(formula, Collections.<String>emptySet());
+		protected BitSet variable(Scope scope, VariableFormula formula) {
+			return empty;
 		}
 
 		@Override
-		public Set<String> conjunction(ConjunctionFormula formula, List<Set<String>> transformedChildren) {
+		protected BitSet conjunction(Scope scope, ConjunctionFormula formula,
+				List<BitSet> transformedChildren) {
 			return union(transformedChildren);
 		}
 
 		@Override
-		public Set<String> disjunction(DisjunctionFormula formula, List<Set<String>> transformedChildren) {
+		protected BitSet disjunction(Scope scope, DisjunctionFormula formula,
+				List<BitSet> transformedChildren) {
 			return union(transformedChildren);
 		}
 
 		@Override
-		public Set<String> negate(NegationFormula formula, Set<String> transformedChild) {
+		protected BitSet negate(Scope scope, NegationFormula formula, BitSet transformedChild) {
 			return transformedChild;
 		}
 
 		@Override
-		public Set<String> modality(ModalityFormula formula, Set<String> transformedChild) {
-			if (transformedChild.contains(formula.getEvent()))
+		protected BitSet modality(Scope scope, ModalityFormula formula, BitSet transformedChild) {
+			if (transformedChild.get(formula.getEventId()))
 				return transformedChild;
-			Set<String> result = new HashSet<>(transformedChild);
-			result.add(formula.getEvent());
+			BitSet result = (BitSet) transformedChild.clone();
+			result.set(formula.getEventId());
 			return result;
 		}
 
 		@Override
-		public Set<String> fixedPoint(FixedPointFormula formula, Set<String> transformedChild) {
+		protected BitSet fixedPoint(Scope scope, FixedPointFormula formula, BitSet transformedChild) {
 			return transformedChild;
 		}
 
 		@Override
-		public void walk(NonRecursive engine, CallFormula formula) {
-			boolean enqueuedSelf = false;
-			Set<String> result = new HashSet<>();
-			for (Formula arg : formula.getArguments()) {
-				Set<String> transform = getCache(arg);
-				if (transform != null) {
-					result.addAll(transform);
-					continue;
-				}
-				if (!enqueuedSelf)
-					engine.enqueue(this);
-				enqueuedSelf = true;
-				enqueueWalker(engine, arg);
-			}
-			if (enqueuedSelf)
-				return;
-			setCache(formula, result);
+		protected BitSet call(Scope scope, CallFormula formula, List<BitSet> transformedArguments) {
+			return union(transformedArguments);
 		}
 	}
-
-	@Override
-	public Set<String> transform(NonRecursive engine, Formula formula) {
-		Set<String> result = super.transform(engine, formula);
-		if (result != null)
-			result = Collections.unmodifiableSet(result);
-		return result;
-	}
-
-	static public Set<String> getAlphabet(Formula formula) {
-		NonRecursive engine = new NonRecursive();
-		AlphabetFinder worker = new AlphabetFinder();
-		worker.transform(engine, formula);
-		engine.run();
-		return worker.transform(engine, formula);
-	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
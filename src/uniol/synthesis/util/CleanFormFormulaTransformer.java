@@ -111,6 +111,7 @@ public class CleanFormFormulaTransformer extends FormulaFormulaTransformer {
 
 	static public Formula cleanForm(Formula formula) {
 		CleanFormFormulaTransformer transformer = new CleanFormFormulaTransformer();
+		transformer.useMemoTable(formula.getCreator().<Formula>getMemoTable("cleanForm"));
 		NonRecursive engine = new NonRecursive();
 		transformer.transform(engine, formula);
 		engine.run();
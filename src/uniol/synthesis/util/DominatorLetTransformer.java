@@ -0,0 +1,252 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+/**
+ * Introduce let formulas for subformulas that appear more than once. This takes time linear in the size of the
+ * formula DAG (up to the cost of the dominator intersections).
+ *
+ * A subformula that is reachable via more than one edge is bound in a let directly around its immediate dominator,
+ * which is the closest formula through which all paths from the root to the subformula pass. When several lets are
+ * placed around the same formula, they are nested so that each expansion only uses the variables of outer lets;
+ * apart from that, their order is unspecified. Since a formula DAG has no cycles, immediate dominators are found in
+ * a single pass in reverse postorder with the intersection step from Cooper, Harvey and Kennedy, "A Simple, Fast
+ * Dominance Algorithm".
+ */
+public class DominatorLetTransformer {
+	private final FormulaCreator creator;
+	// Sub-formulas in reverse postorder, so parents come before their children. The root has index 0.
+	private final Formula[] nodes;
+	private final int[][] children;
+	private final int[] incomingEdges;
+	private final int[] idom;
+
+	private DominatorLetTransformer(Formula formula) {
+		this.creator = formula.getCreator();
+
+		List<Formula> postOrder = new ArrayList<>();
+		Map<Formula, Integer> postIndex = new HashMap<>();
+		List<int[]> postChildren = new ArrayList<>();
+		numberNodes(formula, postOrder, postIndex, postChildren);
+
+		int size = postOrder.size();
+		this.nodes = new Formula[size];
+		this.children = new int[size][];
+		for (int i = 0; i < size; i++) {
+			int rpo = size - 1 - i;
+			nodes[rpo] = postOrder.get(i);
+			int[] kids = postChildren.get(i);
+			for (int j = 0; j < kids.length; j++)
+				kids[j] = size - 1 - kids[j];
+			children[rpo] = kids;
+		}
+
+		this.incomingEdges = new int[size];
+		this.idom = new int[size];
+		Arrays.fill(idom, -1);
+		idom[0] = 0;
+		for (int node = 0; node < size; node++) {
+			// All parents of a node come before it, so its immediate dominator is final once it is reached
+			for (int child : children[node]) {
+				incomingEdges[child]++;
+				if (idom[child] == -1)
+					idom[child] = node;
+				else
+					idom[child] = intersect(idom[child], node);
+			}
+		}
+	}
+
+	private int intersect(int finger1, int finger2) {
+		while (finger1 != finger2) {
+			while (finger1 > finger2)
+				finger1 = idom[finger1];
+			while (finger2 > finger1)
+				finger2 = idom[finger2];
+		}
+		return finger1;
+	}
+
+	static private void numberNodes(Formula root, List<Formula> postOrder, Map<Formula, Integer> postIndex,
+			List<int[]> postChildren) {
+		// Iterative depth first search. For each formula on the stack, remember how many children were visited.
+		List<Formula> stack = new ArrayList<>();
+		List<Integer> visited = new ArrayList<>();
+		Map<Formula, Boolean> seen = new HashMap<>();
+		stack.add(root);
+		visited.add(0);
+		seen.put(root, true);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			Formula formula = stack.get(top);
+			List<Formula> kids = getChildren(formula);
+			int next = visited.get(top);
+			if (next < kids.size()) {
+				visited.set(top, next + 1);
+				Formula child = kids.get(next);
+				if (seen.put(child, true) == null) {
+					stack.add(child);
+					visited.add(0);
+				}
+				continue;
+			}
+
+			stack.remove(top);
+			visited.remove(top);
+			int[] indices = new int[kids.size()];
+			for (int i = 0; i < indices.length; i++)
+				indices[i] = postIndex.get(kids.get(i));
+			postIndex.put(formula, postOrder.size());
+			postOrder.add(formula);
+			postChildren.add(indices);
+		}
+	}
+
+	static private List<Formula> getChildren(Formula formula) {
+		switch (formula.getKind()) {
+			case CONSTANT:
+			case VARIABLE:
+				return Collections.emptyList();
+			case CONJUNCTION:
+				return ((ConjunctionFormula) formula).getFormulas();
+			case DISJUNCTION:
+				return ((DisjunctionFormula) formula).getFormulas();
+			case NEGATION:
+				return Collections.singletonList(((NegationFormula) formula).getFormula());
+			case MODALITY:
+				return Collections.singletonList(((ModalityFormula) formula).getFormula());
+			case FIXED_POINT:
+				return Collections.singletonList(((FixedPointFormula) formula).getFormula());
+			case CALL:
+				return ((CallFormula) formula).getArguments();
+			case LET:
+			default:
+				throw new AssertionError("Subformula of type Let should have been eliminated, "
+						+ "but found " + formula);
+		}
+	}
+
+	// Should this formula be let'ed out?
+	private boolean shouldLet(int node) {
+		FormulaKind kind = nodes[node].getKind();
+		if (kind == FormulaKind.CONSTANT || kind == FormulaKind.VARIABLE)
+			return false;
+		return incomingEdges[node] > 1;
+	}
+
+	private Formula build() {
+		int size = nodes.length;
+		List<List<Integer>> lets = new ArrayList<>(size);
+		for (int node = 0; node < size; node++)
+			lets.add(null);
+		VariableFormula[] variables = new VariableFormula[size];
+		for (int node = 0; node < size; node++) {
+			if (!shouldLet(node))
+				continue;
+			if (lets.get(idom[node]) == null)
+				lets.set(idom[node], new ArrayList<Integer>());
+			lets.get(idom[node]).add(node);
+		}
+
+		// Name variables from the outside in, so that the outermost let gets the lowest number
+		for (int node = 0; node < size; node++) {
+			List<Integer> letsHere = lets.get(node);
+			if (letsHere != null)
+				for (int i = letsHere.size() - 1; i >= 0; i--)
+					variables[letsHere.get(i)] = creator.freshVariable("cse");
+		}
+
+		// Build bottom-up. A let'ed formula is bound around its immediate dominator, which comes later.
+		Formula[] built = new Formula[size];
+		for (int node = size - 1; node >= 0; node--) {
+			Formula formula = rebuild(node, built, variables);
+
+			// A formula can only refer to formulas with a larger index. Thus, the let with the largest
+			// index has to be the outermost one.
+			List<Integer> letsHere = lets.get(node);
+			if (letsHere != null)
+				for (int child : letsHere)
+					formula = creator.let(variables[child], built[child], formula);
+			built[node] = formula;
+		}
+		return built[0];
+	}
+
+	private Formula rebuild(int node, Formula[] built, VariableFormula[] variables) {
+		Formula formula = nodes[node];
+		int[] kids = children[node];
+		List<Formula> newChildren = new ArrayList<>(kids.length);
+		for (int child : kids)
+			newChildren.add(variables[child] != null ? variables[child] : built[child]);
+
+		switch (formula.getKind()) {
+			case CONSTANT:
+			case VARIABLE:
+				return formula;
+			case CONJUNCTION:
+				return creator.conjunction(newChildren);
+			case DISJUNCTION:
+				return creator.disjunction(newChildren);
+			case NEGATION:
+				return creator.negate(newChildren.get(0));
+			case MODALITY:
+				ModalityFormula modality = (ModalityFormula) formula;
+				return creator.modality(modality.getModality(), modality.getEventId(),
+						newChildren.get(0));
+			case FIXED_POINT:
+				FixedPointFormula fixedPoint = (FixedPointFormula) formula;
+				return creator.fixedPoint(fixedPoint.getFixedPoint(), fixedPoint.getVariable(),
+						newChildren.get(0));
+			case CALL:
+				return creator.call(((CallFormula) formula).getFunction(), newChildren);
+			case LET:
+			default:
+				throw new AssertionError("Subformula of type Let should have been eliminated, "
+						+ "but found " + formula);
+		}
+	}
+
+	static public Formula let(Formula formula) {
+		formula = UnLetTransformer.unLet(formula);
+		Formula result = new DominatorLetTransformer(formula).build();
+		assert formula.equals(UnLetTransformer.unLet(result)) : formula + " vs " + result;
+		return result;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
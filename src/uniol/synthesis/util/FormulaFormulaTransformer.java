@@ -48,9 +48,9 @@ public abstract class FormulaFormulaTransformer extends FormulaTransformer<Formu
 
 		@Override
 		public Formula conjunction(ConjunctionFormula formula, List<Formula> transformed) {
-			assert formula.getFormulas().size() == transformed.size();
+			assert formula.size() == transformed.size();
 			for (int i = 0; i < transformed.size(); i++) {
-				if (!formula.getFormulas().get(i).equals(transformed.get(i)))
+				if (!formula.get(i).equals(transformed.get(i)))
 					return formula.getCreator().conjunction(transformed);
 			}
 			return formula;
@@ -58,9 +58,9 @@ public abstract class FormulaFormulaTransformer extends FormulaTransformer<Formu
 
 		@Override
 		public Formula disjunction(DisjunctionFormula formula, List<Formula> transformed) {
-			assert formula.getFormulas().size() == transformed.size();
+			assert formula.size() == transformed.size();
 			for (int i = 0; i < transformed.size(); i++) {
-				if (!formula.getFormulas().get(i).equals(transformed.get(i)))
+				if (!formula.get(i).equals(transformed.get(i)))
 					return formula.getCreator().disjunction(transformed);
 			}
 			return formula;
@@ -77,7 +77,7 @@ public abstract class FormulaFormulaTransformer extends FormulaTransformer<Formu
 		public Formula modality(ModalityFormula formula, Formula transformedChild) {
 			if (formula.getFormula().equals(transformedChild))
 				return formula;
-			return formula.getCreator().modality(formula.getModality(), formula.getEvent(),
+			return formula.getCreator().modality(formula.getModality(), formula.getEventId(),
 					transformedChild);
 		}
 
@@ -0,0 +1,209 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.FormulaWriter.*;
+
+/**
+ * Read formulas that were written by {@link FormulaWriter}. All formulas are created with a given {@link
+ * FormulaCreator}, so formulas that were shared when writing are shared again after reading.
+ */
+public class FormulaReader {
+	private final FormulaCreator creator;
+	private String[] strings = new String[0];
+	private Formula[] formulas = new Formula[0];
+
+	public FormulaReader(FormulaCreator creator) {
+		this.creator = creator;
+	}
+
+	/**
+	 * Read the string table and the formula table as written by {@link FormulaWriter#writeTables}.
+	 * @param in The input to read from.
+	 * @throws IOException If reading fails or the input is invalid.
+	 */
+	public void readTables(DataInput in) throws IOException {
+		strings = new String[readCount(in)];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = in.readUTF();
+
+		formulas = new Formula[readCount(in)];
+		for (int i = 0; i < formulas.length; i++)
+			formulas[i] = readFormulaEntry(in, i);
+	}
+
+	/**
+	 * Read an index into the string table and return the string.
+	 * @param in The input to read from.
+	 * @return The string.
+	 * @throws IOException If reading fails or the index is invalid.
+	 */
+	public String readString(DataInput in) throws IOException {
+		return strings[readIndex(in, strings.length)];
+	}
+
+	/**
+	 * Read an index into the formula table and return the formula.
+	 * @param in The input to read from.
+	 * @return The formula.
+	 * @throws IOException If reading fails or the index is invalid.
+	 */
+	public Formula readFormula(DataInput in) throws IOException {
+		return formulas[readIndex(in, formulas.length)];
+	}
+
+	/**
+	 * Read an index into the formula table and return the formula, which must have the given type.
+	 * @param in The input to read from.
+	 * @param type The expected type of the formula.
+	 * @param <T> The expected type of the formula.
+	 * @return The formula.
+	 * @throws IOException If reading fails, the index is invalid or the formula has the wrong type.
+	 */
+	public <T extends Formula> T readFormula(DataInput in, Class<T> type) throws IOException {
+		return checkType(readFormula(in), type);
+	}
+
+	static public int readIndex(DataInput in, int limit) throws IOException {
+		int index = in.readInt();
+		if (index < 0 || index >= limit)
+			throw new IOException("Invalid index " + index + ", expected less than " + limit);
+		return index;
+	}
+
+	static public int readCount(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0)
+			throw new IOException("Invalid count " + count);
+		return count;
+	}
+
+	static private <T extends Formula> T checkType(Formula formula, Class<T> type) throws IOException {
+		if (!type.isInstance(formula))
+			throw new IOException("Expected " + type.getSimpleName() + ", but got " + formula);
+		return type.cast(formula);
+	}
+
+	static private <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+		int ordinal = in.readByte();
+		if (ordinal < 0 || ordinal >= values.length)
+			throw new IOException("Invalid value " + ordinal);
+		return values[ordinal];
+	}
+
+	// Only formulas before the current one can be referenced
+	private Formula readChild(DataInput in, int index) throws IOException {
+		return formulas[readIndex(in, index)];
+	}
+
+	private List<Formula> readChildren(DataInput in, int index) throws IOException {
+		int count = readCount(in);
+		List<Formula> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			result.add(readChild(in, index));
+		return result;
+	}
+
+	private Formula readFormulaEntry(DataInput in, int index) throws IOException {
+		byte kind = in.readByte();
+		switch (kind) {
+			case CONSTANT_FALSE:
+				return creator.constant(false);
+			case CONSTANT_TRUE:
+				return creator.constant(true);
+			case CONJUNCTION:
+				return creator.conjunction(readChildren(in, index));
+			case DISJUNCTION:
+				return creator.disjunction(readChildren(in, index));
+			case NEGATION:
+				return creator.negate(readChild(in, index));
+			case VARIABLE:
+				return creator.variable(readString(in));
+			case MODALITY:
+				Modality modality = readEnum(in, Modality.values());
+				String event = readString(in);
+				return creator.modality(modality, event, readChild(in, index));
+			case FIXED_POINT:
+				FixedPoint fixedPoint = readEnum(in, FixedPoint.values());
+				VariableFormula fpVar = checkType(readChild(in, index), VariableFormula.class);
+				return creator.fixedPoint(fixedPoint, fpVar, readChild(in, index));
+			case LET:
+				VariableFormula letVar = checkType(readChild(in, index), VariableFormula.class);
+				Formula expansion = readChild(in, index);
+				return creator.let(letVar, expansion, readChild(in, index));
+			case CALL:
+				String function = readString(in);
+				return creator.call(function, readChildren(in, index));
+			default:
+				throw new IOException("Unknown kind of formula " + kind);
+		}
+	}
+
+	static public Formula read(FormulaCreator creator, InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not a formula file");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported formula file version " + version);
+
+		FormulaReader reader = new FormulaReader(creator);
+		reader.readTables(in);
+		Formula result = reader.readFormula(in);
+		if (in.read() != -1)
+			throw new IOException("Unexpected data at the end of formula file");
+		return result;
+	}
+
+	static public Formula read(FormulaCreator creator, File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size <= Integer.MAX_VALUE) {
+				// The mapping stays valid after the channel is closed
+				return read(creator, new ByteBufferInputStream(
+							channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+			}
+		}
+		// Too large to be mapped in one piece
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			return read(creator, in);
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -34,6 +34,7 @@ import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.LetFormula;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
@@ -41,6 +42,7 @@ import uniol.synthesis.adt.mu_calculus.VariableFormula;
 public abstract class FormulaTransformer<C> {
 	private final Bag<VariableFormula> currentlyBoundVariables = new HashBag<>();
 	private final Deque<Map<Formula, C>> cache = new ArrayDeque<>();
+	private MemoTable<C> memo = null;
 
 	public FormulaTransformer() {
 		reset();
@@ -59,12 +61,30 @@ public abstract class FormulaTransformer<C> {
 		return result;
 	}
 
+	/**
+	 * Also remember results in the given memo table, so that they are reused by later transformations. Only
+	 * results outside of any pushed scope are remembered, since the scopes describe the context of a formula.
+	 * @param memo The memo table to use.
+	 */
+	protected void useMemoTable(MemoTable<C> memo) {
+		this.memo = memo;
+	}
+
 	protected C getCache(Formula formula) {
-		return cache.getLast().get(formula);
+		Map<Formula, C> current = cache.getLast();
+		C result = current.get(formula);
+		if (result == null && memo != null && cache.size() == 1) {
+			result = memo.get(formula);
+			if (result != null)
+				current.put(formula, result);
+		}
+		return result;
 	}
 
 	protected void setCache(Formula formula, C result) {
 		cache.getLast().put(formula, result);
+		if (memo != null && cache.size() == 1)
+			memo.put(formula, result);
 	}
 
 	protected void pushScope() {
@@ -102,9 +122,10 @@ public abstract class FormulaTransformer<C> {
 
 		@Override
 		public void walk(NonRecursive engine, ConjunctionFormula formula) {
-			List<C> transformed = new ArrayList<>();
+			List<C> transformed = new ArrayList<>(formula.size());
 			boolean enqueuedSelf = false;
-			for (Formula child : formula.getFormulas()) {
+			for (int i = 0; i < formula.size(); i++) {
+				Formula child = formula.get(i);
 				C transformedChild = getCache(child);
 				if (transformedChild == null) {
 					if (!enqueuedSelf)
@@ -122,9 +143,10 @@ public abstract class FormulaTransformer<C> {
 
 		@Override
 		public void walk(NonRecursive engine, DisjunctionFormula formula) {
-			List<C> transformed = new ArrayList<>();
+			List<C> transformed = new ArrayList<>(formula.size());
 			boolean enqueuedSelf = false;
-			for (Formula child : formula.getFormulas()) {
+			for (int i = 0; i < formula.size(); i++) {
+				Formula child = formula.get(i);
 				C transformedChild = getCache(child);
 				if (transformedChild == null) {
 					if (!enqueuedSelf)
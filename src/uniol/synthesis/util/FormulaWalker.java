@@ -44,26 +44,36 @@ public abstract class FormulaWalker implements NonRecursive.Walker {
 
 	@Override
 	final public void walk(NonRecursive engine) {
-		if (formula instanceof ConstantFormula) {
-			walk(engine, (ConstantFormula) formula);
-		} else if (formula instanceof ConjunctionFormula) {
-			walk(engine, (ConjunctionFormula) formula);
-		} else if (formula instanceof DisjunctionFormula) {
-			walk(engine, (DisjunctionFormula) formula);
-		} else if (formula instanceof NegationFormula) {
-			walk(engine, (NegationFormula) formula);
-		} else if (formula instanceof VariableFormula) {
-			walk(engine, (VariableFormula) formula);
-		} else if (formula instanceof ModalityFormula) {
-			walk(engine, (ModalityFormula) formula);
-		} else if (formula instanceof FixedPointFormula) {
-			walk(engine, (FixedPointFormula) formula);
-		} else if (formula instanceof LetFormula) {
-			walk(engine, (LetFormula) formula);
-		} else if (formula instanceof CallFormula) {
-			walk(engine, (CallFormula) formula);
-		} else {
-			throw new AssertionError("Unknown subclass of formula: " + formula.getClass());
+		switch (formula.getKind()) {
+			case CONSTANT:
+				walk(engine, (ConstantFormula) formula);
+				break;
+			case CONJUNCTION:
+				walk(engine, (ConjunctionFormula) formula);
+				break;
+			case DISJUNCTION:
+				walk(engine, (DisjunctionFormula) formula);
+				break;
+			case NEGATION:
+				walk(engine, (NegationFormula) formula);
+				break;
+			case VARIABLE:
+				walk(engine, (VariableFormula) formula);
+				break;
+			case MODALITY:
+				walk(engine, (ModalityFormula) formula);
+				break;
+			case FIXED_POINT:
+				walk(engine, (FixedPointFormula) formula);
+				break;
+			case LET:
+				walk(engine, (LetFormula) formula);
+				break;
+			case CALL:
+				walk(engine, (CallFormula) formula);
+				break;
+			default:
+				throw new AssertionError("Unknown kind of formula: " + formula.getKind());
 		}
 	}
 
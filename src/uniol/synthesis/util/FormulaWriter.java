@@ -0,0 +1,259 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.ConstantFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.LetFormula;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+/**
+ * Write formulas in a binary format that keeps the sharing between formulas. The format consists of a string table
+ * and a formula table. Each distinct formula is written once and refers to its children by their index in the
+ * formula table. Formulas are written in post-order, so each formula only refers to formulas before it.
+ *
+ * The tables can be embedded into other files, which can then refer to strings and formulas by their index. A file
+ * containing just a formula is written by {@link #write(Formula, File)}.
+ * @see FormulaReader
+ */
+public class FormulaWriter {
+	static public final int MAGIC = 0x4d554346;
+	static public final int VERSION = 1;
+
+	static final byte CONSTANT_FALSE = 0;
+	static final byte CONSTANT_TRUE = 1;
+	static final byte CONJUNCTION = 2;
+	static final byte DISJUNCTION = 3;
+	static final byte NEGATION = 4;
+	static final byte VARIABLE = 5;
+	static final byte MODALITY = 6;
+	static final byte FIXED_POINT = 7;
+	static final byte LET = 8;
+	static final byte CALL = 9;
+
+	// Users refer to strings and formulas by index, but the tables have to come before these references in the
+	// file. Thus, the formula table is collected in a buffer.
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> stringTable = new ArrayList<>();
+	private final Map<Formula, Integer> formulas = new HashMap<>();
+	private final ByteArrayOutputStream formulaBuffer = new ByteArrayOutputStream();
+	private final DataOutputStream formulaTable = new DataOutputStream(formulaBuffer);
+
+	/**
+	 * Add a string to the string table.
+	 * @param str The string to add.
+	 * @return The index of the string in the string table.
+	 */
+	public int addString(String str) {
+		Integer index = strings.get(str);
+		if (index == null) {
+			index = stringTable.size();
+			strings.put(str, index);
+			stringTable.add(str);
+		}
+		return index;
+	}
+
+	/**
+	 * Add a formula and all its subformulas to the formula table.
+	 * @param root The formula to add.
+	 * @return The index of the formula in the formula table.
+	 */
+	public int addFormula(Formula root) {
+		Deque<Formula> todo = new ArrayDeque<>();
+		todo.push(root);
+		while (!todo.isEmpty()) {
+			Formula formula = todo.peek();
+			if (formulas.containsKey(formula)) {
+				todo.pop();
+				continue;
+			}
+
+			boolean childrenDone = true;
+			for (Formula child : getChildren(formula)) {
+				if (!formulas.containsKey(child)) {
+					todo.push(child);
+					childrenDone = false;
+				}
+			}
+			if (!childrenDone)
+				continue;
+
+			todo.pop();
+			try {
+				writeFormula(formula);
+			} catch (IOException e) {
+				// Writing to a ByteArrayOutputStream does not fail
+				throw new RuntimeException(e);
+			}
+			formulas.put(formula, formulas.size());
+		}
+		return formulas.get(root);
+	}
+
+	/**
+	 * Write the string table and the formula table.
+	 * @param out The stream to write to.
+	 * @throws IOException If writing fails.
+	 */
+	public void writeTables(DataOutputStream out) throws IOException {
+		formulaTable.flush();
+		out.writeInt(stringTable.size());
+		for (String str : stringTable)
+			out.writeUTF(str);
+		out.writeInt(formulas.size());
+		formulaBuffer.writeTo(out);
+	}
+
+	static private List<Formula> getChildren(Formula formula) {
+		List<Formula> result = new ArrayList<>();
+		switch (formula.getKind()) {
+			case CONJUNCTION:
+				result.addAll(((ConjunctionFormula) formula).getFormulas());
+				break;
+			case DISJUNCTION:
+				result.addAll(((DisjunctionFormula) formula).getFormulas());
+				break;
+			case NEGATION:
+				result.add(((NegationFormula) formula).getFormula());
+				break;
+			case MODALITY:
+				result.add(((ModalityFormula) formula).getFormula());
+				break;
+			case FIXED_POINT:
+				FixedPointFormula fp = (FixedPointFormula) formula;
+				result.add(fp.getVariable());
+				result.add(fp.getFormula());
+				break;
+			case LET:
+				LetFormula let = (LetFormula) formula;
+				result.add(let.getVariable());
+				result.add(let.getExpansion());
+				result.add(let.getFormula());
+				break;
+			case CALL:
+				result.addAll(((CallFormula) formula).getArguments());
+				break;
+			default:
+				break;
+		}
+		return result;
+	}
+
+	private void writeFormulaList(List<Formula> list) throws IOException {
+		formulaTable.writeInt(list.size());
+		for (Formula formula : list)
+			formulaTable.writeInt(formulas.get(formula));
+	}
+
+	private void writeFormula(Formula formula) throws IOException {
+		DataOutputStream out = formulaTable;
+		switch (formula.getKind()) {
+			case CONSTANT:
+				out.writeByte(((ConstantFormula) formula).getValue() ? CONSTANT_TRUE : CONSTANT_FALSE);
+				break;
+			case CONJUNCTION:
+				out.writeByte(CONJUNCTION);
+				writeFormulaList(((ConjunctionFormula) formula).getFormulas());
+				break;
+			case DISJUNCTION:
+				out.writeByte(DISJUNCTION);
+				writeFormulaList(((DisjunctionFormula) formula).getFormulas());
+				break;
+			case NEGATION:
+				out.writeByte(NEGATION);
+				out.writeInt(formulas.get(((NegationFormula) formula).getFormula()));
+				break;
+			case VARIABLE:
+				out.writeByte(VARIABLE);
+				out.writeInt(addString(((VariableFormula) formula).getVariable()));
+				break;
+			case MODALITY:
+				ModalityFormula mod = (ModalityFormula) formula;
+				out.writeByte(MODALITY);
+				out.writeByte(mod.getModality().ordinal());
+				out.writeInt(addString(mod.getEvent()));
+				out.writeInt(formulas.get(mod.getFormula()));
+				break;
+			case FIXED_POINT:
+				FixedPointFormula fp = (FixedPointFormula) formula;
+				out.writeByte(FIXED_POINT);
+				out.writeByte(fp.getFixedPoint().ordinal());
+				out.writeInt(formulas.get(fp.getVariable()));
+				out.writeInt(formulas.get(fp.getFormula()));
+				break;
+			case LET:
+				LetFormula let = (LetFormula) formula;
+				out.writeByte(LET);
+				out.writeInt(formulas.get(let.getVariable()));
+				out.writeInt(formulas.get(let.getExpansion()));
+				out.writeInt(formulas.get(let.getFormula()));
+				break;
+			case CALL:
+				CallFormula call = (CallFormula) formula;
+				out.writeByte(CALL);
+				out.writeInt(addString(call.getFunction()));
+				writeFormulaList(call.getArguments());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown kind of formula: " + formula.getKind());
+		}
+	}
+
+	static public void write(Formula formula, OutputStream stream) throws IOException {
+		FormulaWriter writer = new FormulaWriter();
+		int root = writer.addFormula(formula);
+
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writer.writeTables(out);
+		out.writeInt(root);
+		out.flush();
+	}
+
+	static public void write(Formula formula, File file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			write(formula, out);
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -19,17 +19,19 @@
 
 package uniol.synthesis.util;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.ConstantFormula;
 import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
@@ -123,15 +125,119 @@ public class GetFreeVariables extends FormulaTransformer<Map<VariableFormula, In
 	}
 
 	static public Map<VariableFormula, Integer> getFreeVariablesCounts(Formula formula) {
+		MemoTable<Map<VariableFormula, Integer>> memo = formula.getCreator().getMemoTable("freeVariables");
+		Map<VariableFormula, Integer> result = memo.get(formula);
+		if (result != null)
+			return result;
+
 		NonRecursive engine = new NonRecursive();
 		GetFreeVariables worker = new GetFreeVariables();
 		worker.transform(engine, formula);
 		engine.run();
-		return worker.transform(engine, formula);
+		// The result is shared via the memo table and thus must not be modified
+		result = Collections.unmodifiableMap(worker.transform(engine, formula));
+		// The result for a variable contains the variable itself and would keep it alive
+		if (formula.getKind() != FormulaKind.VARIABLE)
+			memo.put(formula, result);
+		return result;
 	}
 
-	static public Set<VariableFormula> getFreeVariables(Formula formula) {
-		return getFreeVariablesCounts(formula).keySet();
+	/**
+	 * Get the free variables of a formula. This is cheaper than {@link #getFreeVariablesCounts}, since sets of
+	 * variables are represented as bit sets that are shared between sub-formulas.
+	 * @param formula The formula to look at.
+	 * @return The free variables of the formula.
+	 */
+	static public VariableSet getFreeVariables(Formula formula) {
+		MemoTable<BitSet> memo = formula.getCreator().getMemoTable("freeVariableSets");
+		BitSet result = memo.get(formula);
+		if (result == null) {
+			NonRecursive engine = new NonRecursive();
+			FreeVariableSets worker = new FreeVariableSets();
+			worker.transform(engine, formula);
+			engine.run();
+			result = worker.transform(engine, formula);
+			memo.put(formula, result);
+		}
+		return new VariableSet(formula, result);
+	}
+
+	// Computes the free variables as bit sets of variable indices. Bit sets are never modified after they were
+	// computed, so that sub-formulas can share them.
+	static private class FreeVariableSets extends FormulaTransformer<BitSet> {
+		static final private BitSet EMPTY = new BitSet();
+
+		@Override
+		protected void enqueueWalker(NonRecursive engine, Formula formula) {
+			engine.enqueue(new Worker(formula));
+		}
+
+		final private class Worker extends FormulaTransformer<BitSet>.FillCache {
+			private Worker(Formula formula) {
+				super(formula);
+			}
+
+			private BitSet union(List<BitSet> children) {
+				BitSet result = EMPTY;
+				boolean copied = false;
+				for (BitSet set : children) {
+					if (set.isEmpty() || set == result)
+						continue;
+					if (result.isEmpty()) {
+						result = set;
+						continue;
+					}
+					if (!copied) {
+						result = (BitSet) result.clone();
+						copied = true;
+					}
+					result.or(set);
+				}
+				return result;
+			}
+
+			@Override
+			public void walk(NonRecursive engine, ConstantFormula formula) {
+				setCache(formula, EMPTY);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, VariableFormula formula) {
+				BitSet set = new BitSet();
+				set.set(formula.getIndex());
+				setCache(formula, set);
+			}
+
+			@Override
+			public BitSet conjunction(ConjunctionFormula formula, List<BitSet> transformedChildren) {
+				return union(transformedChildren);
+			}
+
+			@Override
+			public BitSet disjunction(DisjunctionFormula formula, List<BitSet> transformedChildren) {
+				return union(transformedChildren);
+			}
+
+			@Override
+			public BitSet negate(NegationFormula formula, BitSet transformedChild) {
+				return transformedChild;
+			}
+
+			@Override
+			public BitSet modality(ModalityFormula formula, BitSet transformedChild) {
+				return transformedChild;
+			}
+
+			@Override
+			public BitSet fixedPoint(FixedPointFormula formula, BitSet transformedChild) {
+				int index = formula.getVariable().getIndex();
+				if (!transformedChild.get(index))
+					return transformedChild;
+				BitSet result = (BitSet) transformedChild.clone();
+				result.clear(index);
+				return result;
+			}
+		}
 	}
 }
 
@@ -0,0 +1,274 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.ConstantFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.GetFreeVariables.getFreeVariables;
+import static uniol.synthesis.util.SubstitutionTransformer.substitute;
+
+/**
+ * Transform a formula into guarded form, where every occurrence of a fixed point variable is below a modality. An
+ * occurrence of X in nu X.A that is only below conjunctions and disjunctions is evaluated in the same state as the
+ * fixed point itself, so it can be replaced by true (and by false in mu X.A) without changing the meaning of the
+ * formula. For example, nu X.(X &amp;&amp; [a]X) becomes nu X.[a]X and mu X.(X || A) becomes A.
+ *
+ * Fixed points are handled from the inside out. When X is reached through a nested fixed point mu Y.B, which is
+ * already guarded, this fixed point is first unfolded to B[mu Y.B/Y]. This only puts copies of mu Y.B below
+ * modalities and exposes the unguarded occurrences of X, which are then replaced as above.
+ *
+ * Occurrences below negations and calls are kept, so the formula should be in positive form and without calls.
+ * A nested fixed point is also not unfolded if it binds X again, since this would capture X.
+ *
+ * The tableau unfolds an unguarded variable again in the same state, so this bounds the work per state.
+ */
+public class GuardedFormFormulaTransformer extends FormulaFormulaTransformer {
+	@Override
+	protected void enqueueWalker(NonRecursive engine, Formula formula) {
+		engine.enqueue(new Worker(formula));
+	}
+
+	final private class Worker extends FormulaFormulaTransformer.FillCache {
+		private Worker(Formula formula) {
+			super(formula);
+		}
+
+		@Override
+		public Formula fixedPoint(FixedPointFormula formula, Formula transformedChild) {
+			VariableFormula var = formula.getVariable();
+			boolean value = formula.getFixedPoint().equals(FixedPoint.GREATEST);
+			Formula body = replaceUnguarded(transformedChild, var, formula.getCreator().constant(value));
+			if (!getFreeVariables(body).contains(var))
+				return body;
+			return super.fixedPoint(formula, body);
+		}
+	}
+
+	static private Formula replaceUnguarded(Formula formula, VariableFormula var, ConstantFormula replacement) {
+		NonRecursive engine = new NonRecursive();
+		ReplaceUnguarded transformer = new ReplaceUnguarded(var, replacement);
+		transformer.transform(engine, formula);
+		engine.run();
+		return transformer.transform(engine, formula);
+	}
+
+	// Replaces a variable by a constant, but only below conjunctions and disjunctions. Constants are folded.
+	static final private class ReplaceUnguarded extends FormulaFormulaTransformer {
+		final private VariableFormula var;
+		final private ConstantFormula replacement;
+
+		private ReplaceUnguarded(VariableFormula var, ConstantFormula replacement) {
+			this.var = var;
+			this.replacement = replacement;
+		}
+
+		@Override
+		protected void enqueueWalker(NonRecursive engine, Formula formula) {
+			engine.enqueue(new Worker(formula));
+		}
+
+		final private class Worker extends FormulaFormulaTransformer.FillCache {
+			private Worker(Formula formula) {
+				super(formula);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, VariableFormula formula) {
+				setCache(formula, formula.equals(var) ? replacement : formula);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, NegationFormula formula) {
+				setCache(formula, formula);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, ModalityFormula formula) {
+				setCache(formula, formula);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, FixedPointFormula formula) {
+				Formula body = formula.getFormula();
+				if (formula.getVariable().equals(var) || !occursUnguarded(body, var)
+						|| bindsVariable(body, var)) {
+					setCache(formula, formula);
+					return;
+				}
+				Formula unfolded = substitute(body, formula.getVariable(), formula);
+				Formula result = getCache(unfolded);
+				if (result == null) {
+					engine.enqueue(this);
+					enqueueWalker(engine, unfolded);
+					return;
+				}
+				setCache(formula, result);
+			}
+
+			@Override
+			public void walk(NonRecursive engine, CallFormula formula) {
+				setCache(formula, formula);
+			}
+
+			@Override
+			public Formula conjunction(ConjunctionFormula formula, List<Formula> transformed) {
+				return fold(formula, true, transformed);
+			}
+
+			@Override
+			public Formula disjunction(DisjunctionFormula formula, List<Formula> transformed) {
+				return fold(formula, false, transformed);
+			}
+		}
+
+		static private Formula fold(Formula formula, boolean conjunction, List<Formula> transformed) {
+			FormulaCreator creator = formula.getCreator();
+			List<Formula> children = new ArrayList<>();
+			for (Formula child : transformed) {
+				if (child.getKind() == FormulaKind.CONSTANT) {
+					// true is neutral for conjunctions and absorbs disjunctions
+					if (((ConstantFormula) child).getValue() == conjunction)
+						continue;
+					return child;
+				}
+				children.add(child);
+			}
+			if (children.size() == transformed.size() && children.equals(getChildren(formula)))
+				return formula;
+			switch (children.size()) {
+				case 0:
+					return creator.constant(conjunction);
+				case 1:
+					return children.get(0);
+				default:
+					if (conjunction)
+						return creator.conjunction(children);
+					return creator.disjunction(children);
+			}
+		}
+
+		static private List<Formula> getChildren(Formula formula) {
+			if (formula.getKind() == FormulaKind.CONJUNCTION)
+				return ((ConjunctionFormula) formula).getFormulas();
+			return ((DisjunctionFormula) formula).getFormulas();
+		}
+	}
+
+	// Is var reachable only through conjunctions, disjunctions and fixed points that do not bind var?
+	static private boolean occursUnguarded(Formula formula, VariableFormula var) {
+		Deque<Formula> todo = new ArrayDeque<>();
+		Set<Formula> seen = new HashSet<>();
+		todo.add(formula);
+		while (!todo.isEmpty()) {
+			Formula current = todo.removeLast();
+			if (!seen.add(current))
+				continue;
+			switch (current.getKind()) {
+				case VARIABLE:
+					if (current.equals(var))
+						return true;
+					break;
+				case CONJUNCTION:
+					todo.addAll(((ConjunctionFormula) current).getFormulas());
+					break;
+				case DISJUNCTION:
+					todo.addAll(((DisjunctionFormula) current).getFormulas());
+					break;
+				case FIXED_POINT:
+					FixedPointFormula fp = (FixedPointFormula) current;
+					if (!fp.getVariable().equals(var))
+						todo.add(fp.getFormula());
+					break;
+				default:
+					break;
+			}
+		}
+		return false;
+	}
+
+	// Is there a fixed point binding var anywhere in the formula?
+	static private boolean bindsVariable(Formula formula, VariableFormula var) {
+		Deque<Formula> todo = new ArrayDeque<>();
+		Set<Formula> seen = new HashSet<>();
+		todo.add(formula);
+		while (!todo.isEmpty()) {
+			Formula current = todo.removeLast();
+			if (!seen.add(current))
+				continue;
+			switch (current.getKind()) {
+				case CONJUNCTION:
+					todo.addAll(((ConjunctionFormula) current).getFormulas());
+					break;
+				case DISJUNCTION:
+					todo.addAll(((DisjunctionFormula) current).getFormulas());
+					break;
+				case NEGATION:
+					todo.add(((NegationFormula) current).getFormula());
+					break;
+				case MODALITY:
+					todo.add(((ModalityFormula) current).getFormula());
+					break;
+				case FIXED_POINT:
+					FixedPointFormula fp = (FixedPointFormula) current;
+					if (fp.getVariable().equals(var))
+						return true;
+					todo.add(fp.getFormula());
+					break;
+				case CALL:
+					todo.addAll(((CallFormula) current).getArguments());
+					break;
+				default:
+					break;
+			}
+		}
+		return false;
+	}
+
+	static public Formula guardedForm(Formula formula) {
+		GuardedFormFormulaTransformer transformer = new GuardedFormFormulaTransformer();
+		transformer.useMemoTable(formula.getCreator().<Formula>getMemoTable("guardedForm"));
+		NonRecursive engine = new NonRecursive();
+		transformer.transform(engine, formula);
+		engine.run();
+		Formula result = transformer.transform(engine, formula);
+		assert result != null;
+		return result;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -20,7 +20,9 @@
 package uniol.synthesis.util;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 
 public class NonRecursive {
 	private final Deque<Walker> todo = new ArrayDeque<Walker>();
@@ -40,14 +42,29 @@ public class NonRecursive {
 	}
 
 	public void run() {
-		while (!todo.isEmpty()) {
-			todo.removeLast().walk(this);
+		while (true) {
+			Walker walker = dequeue();
+			if (walker == null)
+				break;
+			walker.walk(this);
 		}
 	}
 
 	public void enqueue(Walker walker) {
 		todo.addLast(walker);
 	}
+
+	// Get the next walker that should run or null if there is no more work. Subclasses can override this and
+	// enqueue() to process walkers in another order than last-in-first-out.
+	protected Walker dequeue() {
+		return todo.pollLast();
+	}
+
+	// Get all walkers that are still waiting to run. Enqueueing them in the returned order into a fresh engine
+	// recreates the current state of this engine.
+	public List<Walker> getQueued() {
+		return new ArrayList<Walker>(todo);
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,354 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.ConstantFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+/**
+ * A formula transformer that transforms the children of wide conjunctions, disjunctions and calls in parallel.
+ * Formulas are transformed iteratively like in {@link FormulaTransformer}. When a node has many children that were
+ * not transformed yet, the children are split into chunks that are transformed by a fork/join pool.
+ *
+ * Results are cached per {@link Scope}. A scope describes the variables that are bound by fixed points above a
+ * formula and, if {@link #negationFlipsScope()} is true, whether the formula appears below an odd number of
+ * negations. The caches are concurrent, so a formula might be transformed twice by different threads. Only one of
+ * the results is kept, so the transformation must not have side effects.
+ * @param <C> The type of results.
+ */
+public abstract class ParallelFormulaTransformer<C> {
+	// Nodes with at least this many children that were not transformed yet are handled in parallel
+	static final private int SPLIT_THRESHOLD = 64;
+	static final private int CHUNK_SIZE = 32;
+	static final private ForkJoinPool POOL = new ForkJoinPool();
+
+	final private Scope rootScope = new Scope(null, null, false);
+	final private AtomicReference<Throwable> failure = new AtomicReference<>();
+	private MemoTable<C> memo = null;
+
+	/**
+	 * Does the result for a formula depend on the variables bound above it?
+	 * @return true if the variables bound by fixed points should be tracked.
+	 */
+	protected boolean usesBoundVariables() {
+		return true;
+	}
+
+	/**
+	 * Should the children of negations be transformed in a negated scope?
+	 * @return true if the polarity of formulas should be tracked.
+	 */
+	protected boolean negationFlipsScope() {
+		return false;
+	}
+
+	protected abstract C constant(Scope scope, ConstantFormula formula);
+	protected abstract C variable(Scope scope, VariableFormula formula);
+	protected abstract C conjunction(Scope scope, ConjunctionFormula formula, List<C> transformedChildren);
+	protected abstract C disjunction(Scope scope, DisjunctionFormula formula, List<C> transformedChildren);
+	protected abstract C negate(Scope scope, NegationFormula formula, C transformedChild);
+	protected abstract C modality(Scope scope, ModalityFormula formula, C transformedChild);
+	protected abstract C fixedPoint(Scope scope, FixedPointFormula formula, C transformedChild);
+
+	protected C call(Scope scope, CallFormula formula, List<C> transformedArguments) {
+		throw new AssertionError("CallFormula not supported, but got: " + formula);
+	}
+
+	/**
+	 * Also remember results in the given memo table, so that they are reused by later transformations. Only
+	 * results in the root scope are remembered, since they do not depend on the context of a formula.
+	 * @param memo The memo table to use.
+	 */
+	protected void useMemoTable(MemoTable<C> memo) {
+		this.memo = memo;
+	}
+
+	/**
+	 * Transform a formula.
+	 * @param formula The formula to transform.
+	 * @return The result of the transformation.
+	 */
+	public C transform(Formula formula) {
+		if (isCached(rootScope, formula))
+			return rootScope.cache.get(formula);
+		transformAll(Collections.singletonList(formula), rootScope);
+		checkFailure();
+		return rootScope.cache.get(formula);
+	}
+
+	private boolean isCached(Scope scope, Formula formula) {
+		if (scope.cache.containsKey(formula))
+			return true;
+		if (memo == null || scope != rootScope)
+			return false;
+		C result = memo.get(formula);
+		if (result == null)
+			return false;
+		scope.cache.putIfAbsent(formula, result);
+		return true;
+	}
+
+	private void checkFailure() {
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+	}
+
+	/**
+	 * The context in which a formula is transformed.
+	 */
+	final public class Scope {
+		final private Scope parent;
+		// The variable bound when entering this scope, or null
+		final private VariableFormula variable;
+		final private boolean negated;
+		final private ConcurrentMap<Formula, C> cache = new ConcurrentHashMap<>();
+		final private ConcurrentMap<VariableFormula, Scope> entered = new ConcurrentHashMap<>();
+		private volatile Scope negation;
+
+		private Scope(Scope parent, VariableFormula variable, boolean negated) {
+			this.parent = parent;
+			this.variable = variable;
+			this.negated = negated;
+		}
+
+		/**
+		 * Is the given variable bound by a fixed point above the current formula? This is always false if
+		 * {@link #usesBoundVariables()} is false.
+		 * @param var The variable to check.
+		 * @return true if the variable is bound.
+		 */
+		public boolean isBound(VariableFormula var) {
+			return getBindingScope(var) != null;
+		}
+
+		/**
+		 * Get the scope of the body of the innermost fixed point that binds the given variable.
+		 * @param var The variable to look for.
+		 * @return The scope or null if the variable is not bound.
+		 */
+		public Scope getBindingScope(VariableFormula var) {
+			for (Scope scope = this; scope != null; scope = scope.parent)
+				if (var.equals(scope.variable))
+					return scope;
+			return null;
+		}
+
+		/**
+		 * Is the current formula below an odd number of negations? This is always false if {@link
+		 * #negationFlipsScope()} is false.
+		 * @return true if the formula is negated.
+		 */
+		public boolean isNegated() {
+			return negated;
+		}
+
+		private Scope enter(VariableFormula var) {
+			if (!usesBoundVariables())
+				return this;
+			Scope result = entered.get(var);
+			if (result == null) {
+				result = new Scope(this, var, negated);
+				Scope previous = entered.putIfAbsent(var, result);
+				if (previous != null)
+					result = previous;
+			}
+			return result;
+		}
+
+		private Scope negate() {
+			if (!negationFlipsScope())
+				return this;
+			Scope result = negation;
+			if (result == null) {
+				result = new Scope(this, null, !negated);
+				result.negation = this;
+				negation = result;
+			}
+			return result;
+		}
+	}
+
+	static private List<Formula> getChildren(Formula formula) {
+		switch (formula.getKind()) {
+			case CONJUNCTION:
+				return ((ConjunctionFormula) formula).getFormulas();
+			case DISJUNCTION:
+				return ((DisjunctionFormula) formula).getFormulas();
+			case NEGATION:
+				return Collections.singletonList(((NegationFormula) formula).getFormula());
+			case MODALITY:
+				return Collections.singletonList(((ModalityFormula) formula).getFormula());
+			case FIXED_POINT:
+				return Collections.singletonList(((FixedPointFormula) formula).getFormula());
+			case CALL:
+				return ((CallFormula) formula).getArguments();
+			case LET:
+				throw new IllegalArgumentException("Let formulas are not supported");
+			default:
+				return Collections.emptyList();
+		}
+	}
+
+	private Scope getChildScope(Formula formula, Scope scope) {
+		switch (formula.getKind()) {
+			case NEGATION:
+				return scope.negate();
+			case FIXED_POINT:
+				return scope.enter(((FixedPointFormula) formula).getVariable());
+			default:
+				return scope;
+		}
+	}
+
+	private C combine(Formula formula, Scope scope, List<C> children) {
+		switch (formula.getKind()) {
+			case CONSTANT:
+				return constant(scope, (ConstantFormula) formula);
+			case VARIABLE:
+				return variable(scope, (VariableFormula) formula);
+			case CONJUNCTION:
+				return conjunction(scope, (ConjunctionFormula) formula, children);
+			case DISJUNCTION:
+				return disjunction(scope, (DisjunctionFormula) formula, children);
+			case NEGATION:
+				return negate(scope, (NegationFormula) formula, children.get(0));
+			case MODALITY:
+				return modality(scope, (ModalityFormula) formula, children.get(0));
+			case FIXED_POINT:
+				return fixedPoint(scope, (FixedPointFormula) formula, children.get(0));
+			case CALL:
+				return call(scope, (CallFormula) formula, children);
+			default:
+				throw new AssertionError("Unknown kind of formula: " + formula.getKind());
+		}
+	}
+
+	// Transform the given formulas in the given scope. Results are stored in the scopes' caches.
+	private void transformAll(List<Formula> formulas, Scope scope) {
+		Deque<Formula> formulaStack = new ArrayDeque<>();
+		Deque<Scope> scopeStack = new ArrayDeque<>();
+		for (Formula formula : formulas) {
+			formulaStack.push(formula);
+			scopeStack.push(scope);
+		}
+
+		while (!formulaStack.isEmpty()) {
+			Formula formula = formulaStack.peek();
+			Scope current = scopeStack.peek();
+			if (isCached(current, formula)) {
+				formulaStack.pop();
+				scopeStack.pop();
+				continue;
+			}
+
+			List<Formula> children = getChildren(formula);
+			Scope childScope = getChildScope(formula, current);
+			List<Formula> missing = new ArrayList<>();
+			for (Formula child : children)
+				if (!isCached(childScope, child))
+					missing.add(child);
+
+			if (missing.size() >= SPLIT_THRESHOLD) {
+				transformInParallel(missing, childScope);
+				continue;
+			}
+			if (!missing.isEmpty()) {
+				for (Formula child : missing) {
+					formulaStack.push(child);
+					scopeStack.push(childScope);
+				}
+				continue;
+			}
+
+			List<C> transformed = new ArrayList<>(children.size());
+			for (Formula child : children)
+				transformed.add(childScope.cache.get(child));
+			C result = combine(formula, current, transformed);
+			if (current.cache.putIfAbsent(formula, result) == null && memo != null && current == rootScope)
+				memo.put(formula, result);
+			formulaStack.pop();
+			scopeStack.pop();
+		}
+	}
+
+	private void transformInParallel(List<Formula> formulas, Scope scope) {
+		final List<Chunk> chunks = new ArrayList<>();
+		for (int i = 0; i < formulas.size(); i += CHUNK_SIZE)
+			chunks.add(new Chunk(formulas.subList(i, Math.min(i + CHUNK_SIZE, formulas.size())), scope));
+
+		if (ForkJoinTask.inForkJoinPool()) {
+			ForkJoinTask.invokeAll(chunks);
+		} else {
+			POOL.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(chunks);
+				}
+			});
+		}
+		// Exceptions are recorded instead of being propagated through the pool, so that the original
+		// exception reaches the caller
+		checkFailure();
+	}
+
+	private class Chunk extends RecursiveAction {
+		final private List<Formula> formulas;
+		final private Scope scope;
+
+		private Chunk(List<Formula> formulas, Scope scope) {
+			this.formulas = formulas;
+			this.scope = scope;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				transformAll(formulas, scope);
+			} catch (RuntimeException | Error e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
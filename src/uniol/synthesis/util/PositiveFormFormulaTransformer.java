@@ -16,7 +16,6 @@
  * with this program; if not, write to the Free Software Foundation, Inc.,
  * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
  */
-
 package uniol.synthesis.util;
 
 import java.util.List;
@@ -26,104 +25,79 @@ import uniol.synthesis.adt.mu_calculus.ConstantFormula;
 import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
 import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
-public class PositiveFormFormulaTransformer {
-	private final FormulaFormulaTransformer positiveFormTransformer = new FormulaFormulaTransformer() {
-		@Override
-		protected void enqueueWalker(NonRecursive engine, Formula formula) {
-			engine.enqueue(new FormulaFormulaTransformer.FillCache(formula) {
-				@Override
-				public void walk(NonRecursive engine, NegationFormula formula) {
-					Formula child = formula.getFormula();
-					Formula transformedChild = negativeFormTransformer.getCache(child);
-					if (transformedChild == null) {
-						engine.enqueue(this);
-						negativeFormTransformer.enqueueWalker(engine, child);
-						return;
-					}
-					setCache(formula, transformedChild);
-				}
-			});
-		}
-	};
-	private final FormulaTransformer<Formula> negativeFormTransformer = new FormulaTransformer<Formula>() {
-		@Override
-		protected void enqueueWalker(NonRecursive engine, Formula formula) {
-			engine.enqueue(new FormulaTransformer<Formula>.FillCache(formula) {
-				@Override
-				public void walk(NonRecursive engine, ConstantFormula formula) {
-					setCache(formula, formula.getCreator().constant(!formula.getValue()));
-				}
-
-				@Override
-				public void walk(NonRecursive engine, VariableFormula formula) {
-					if (isCurrentlyBound(formula))
-						// Must be bound by a fixed point, so do not negate
-						setCache(formula, formula);
-					else
-						setCache(formula, formula.getCreator().negate(formula));
-				}
+// Formulas below an odd number of negations are transformed in a negated scope and are turned into their negation.
+public class PositiveFormFormulaTransformer extends ParallelFormulaTransformer<Formula> {
+	@Override
+	protected boolean negationFlipsScope() {
+		return true;
+	}
 
-				@Override
-				public void walk(NonRecursive engine, NegationFormula formula) {
-					Formula child = formula.getFormula();
-					Formula transformedChild = positiveFormTransformer.getCache(child);
-					if (transformedChild == null) {
-						engine.enqueue(this);
-						positiveFormTransformer.enqueueWalker(engine, child);
-						return;
-					}
-					setCache(formula, transformedChild);
-				}
+	@Override
+	protected Formula constant(Scope scope, ConstantFormula formula) {
+		if (scope.isNegated())
+			return formula.getCreator().constant(!formula.getValue());
+		return formula;
+	}
 
-				@Override
-				public Formula conjunction(ConjunctionFormula formula,
-						List<Formula> transformedChildren) {
-					return formula.getCreator().disjunction(transformedChildren);
-				}
+	@Override
+	protected Formula variable(Scope scope, VariableFormula formula) {
+		if (!scope.isNegated())
+			return formula;
+		// Variables bound by a fixed point that was itself negated are not negated again
+		Scope binding = scope.getBindingScope(formula);
+		if (binding != null && binding.isNegated())
+			return formula;
+		return formula.getCreator().negate(formula);
+	}
 
-				@Override
-				public Formula disjunction(DisjunctionFormula formula,
-						List<Formula> transformedChildren) {
-					return formula.getCreator().conjunction(transformedChildren);
-				}
+	@Override
+	protected Formula conjunction(Scope scope, ConjunctionFormula formula, List<Formula> transformedChildren) {
+		FormulaCreator creator = formula.getCreator();
+		if (scope.isNegated())
+			return creator.disjunction(transformedChildren);
+		return creator.conjunction(transformedChildren);
+	}
 
-				@Override
-				public Formula negate(NegationFormula formula, Formula transformedChild) {
-					throw new AssertionError("This function should not be called");
-				}
+	@Override
+	protected Formula disjunction(Scope scope, DisjunctionFormula formula, List<Formula> transformedChildren) {
+		FormulaCreator creator = formula.getCreator();
+		if (scope.isNegated())
+			return creator.conjunction(transformedChildren);
+		return creator.disjunction(transformedChildren);
+	}
 
-				@Override
-				public Formula modality(ModalityFormula formula, Formula transformedChild) {
-					return formula.getCreator().modality(formula.getModality().negate(),
-							formula.getEvent(), transformedChild);
-				}
+	@Override
+	protected Formula negate(Scope scope, NegationFormula formula, Formula transformedChild) {
+		// The child was already transformed in the flipped scope
+		return transformedChild;
+	}
 
-				@Override
-				public Formula fixedPoint(FixedPointFormula formula, Formula transformedChild) {
-					return formula.getCreator().fixedPoint(formula.getFixedPoint().negate(),
-							formula.getVariable(), transformedChild);
-				}
-			});
-		}
-	};
+	@Override
+	protected Formula modality(Scope scope, ModalityFormula formula, Formula transformedChild) {
+		if (scope.isNegated())
+			return formula.getCreator().modality(formula.getModality().negate(), formula.getEventId(),
+					transformedChild);
+		return formula.getCreator().modality(formula.getModality(), formula.getEventId(), transformedChild);
+	}
 
-	public Formula transform(Formula formula) {
-		NonRecursive engine = new NonRecursive();
-		Formula result = positiveFormTransformer.transform(engine, formula);
-		if (result == null) {
-			engine.run();
-			result = positiveFormTransformer.transform(engine, formula);
-			assert result != null;
-		}
-		return result;
+	@Override
+	protected Formula fixedPoint(Scope scope, FixedPointFormula formula, Formula transformedChild) {
+		if (scope.isNegated())
+			return formula.getCreator().fixedPoint(formula.getFixedPoint().negate(), formula.getVariable(),
+					transformedChild);
+		return formula.getCreator().fixedPoint(formula.getFixedPoint(), formula.getVariable(),
+				transformedChild);
 	}
 
 	static public Formula positiveForm(Formula formula) {
-		return new PositiveFormFormulaTransformer().transform(formula);
+		PositiveFormFormulaTransformer transformer = new PositiveFormFormulaTransformer();
+		transformer.useMemoTable(formula.getCreator().<Formula>getMemoTable("positiveForm"));
+		return transformer.transform(formula);
 	}
 }
 
@@ -21,7 +21,6 @@ package uniol.synthesis.util;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.ListIterator;
 
 import uniol.synthesis.adt.mu_calculus.CallFormula;
 import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
@@ -53,11 +52,9 @@ final public class PrintFormula extends FormulaWalker {
 	@Override
 	public void walk(NonRecursive engine, ConjunctionFormula formula) {
 		enqueue(engine, ")");
-		List<Formula> formulas = formula.getFormulas();
-		ListIterator<Formula> iter = formulas.listIterator(formulas.size());
-		while (iter.hasPrevious()) {
-			enqueue(engine, iter.previous());
-			if (iter.hasPrevious())
+		for (int i = formula.size() - 1; i >= 0; i--) {
+			enqueue(engine, formula.get(i));
+			if (i > 0)
 				enqueue(engine, "&&");
 		}
 		enqueue(engine, "(");
@@ -66,11 +63,9 @@ final public class PrintFormula extends FormulaWalker {
 	@Override
 	public void walk(NonRecursive engine, DisjunctionFormula formula) {
 		enqueue(engine, ")");
-		List<Formula> formulas = formula.getFormulas();
-		ListIterator<Formula> iter = formulas.listIterator(formulas.size());
-		while (iter.hasPrevious()) {
-			enqueue(engine, iter.previous());
-			if (iter.hasPrevious())
+		for (int i = formula.size() - 1; i >= 0; i--) {
+			enqueue(engine, formula.get(i));
+			if (i > 0)
 				enqueue(engine, "||");
 		}
 		enqueue(engine, "(");
@@ -151,6 +146,52 @@ final public class PrintFormula extends FormulaWalker {
 		new NonRecursive().run(new PrintFormula(sb, formula));
 	}
 
+	/**
+	 * Print a formula, but stop after the given number of characters. A formula with much sharing can have a
+	 * text representation that is exponentially larger than the formula itself. If the output is truncated, it
+	 * ends with "...".
+	 * @param sb The place to print to.
+	 * @param formula The formula to print.
+	 * @param maxLength The maximal number of characters of the formula to print.
+	 * @throws IOException If appending fails.
+	 */
+	static public void printFormula(Appendable sb, Formula formula, int maxLength) throws IOException {
+		try {
+			printFormula(new LimitedAppendable(sb, maxLength), formula);
+		} catch (LimitReachedException e) {
+			sb.append("...");
+		}
+	}
+
+	/**
+	 * Print a formula into a string of limited length.
+	 * @param formula The formula to print.
+	 * @param maxLength The maximal number of characters of the formula to print.
+	 * @return The text representation of the formula, possibly truncated.
+	 * @see #printFormula(Appendable, Formula, int)
+	 */
+	static public String printFormula(Formula formula, int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		try {
+			printFormula(sb, formula, maxLength);
+		} catch (IOException e) {
+			// A StringBuilder does not throw
+			throw new RuntimeException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Print a formula where subformulas that appear more than once are bound with let formulas and thus are
+	 * printed only once.
+	 * @param sb The place to print to.
+	 * @param formula The formula to print.
+	 * @throws IOException If appending fails.
+	 */
+	static public void printFormulaWithLets(Appendable sb, Formula formula) throws IOException {
+		printFormula(sb, DominatorLetTransformer.let(formula));
+	}
+
 	static public void printFormula(Appendable sb, Formula formula) throws IOException {
 		try {
 			new NonRecursive().run(new PrintFormula(sb, formula));
@@ -159,6 +200,48 @@ final public class PrintFormula extends FormulaWalker {
 		}
 	}
 
+	static private class LimitReachedException extends RuntimeException {
+		public static final long serialVersionUID = 0;
+	}
+
+	// Passes on at most a given number of characters and then aborts printing
+	static private class LimitedAppendable implements Appendable {
+		private final Appendable sb;
+		private int remaining;
+
+		private LimitedAppendable(Appendable sb, int maxLength) {
+			this.sb = sb;
+			this.remaining = maxLength;
+		}
+
+		@Override
+		public Appendable append(CharSequence csq) throws IOException {
+			return append(csq, 0, csq.length());
+		}
+
+		@Override
+		public Appendable append(CharSequence csq, int start, int end) throws IOException {
+			int length = end - start;
+			if (length > remaining) {
+				sb.append(csq, start, start + remaining);
+				remaining = 0;
+				throw new LimitReachedException();
+			}
+			sb.append(csq, start, end);
+			remaining -= length;
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) throws IOException {
+			if (remaining == 0)
+				throw new LimitReachedException();
+			sb.append(c);
+			remaining--;
+			return this;
+		}
+	}
+
 	static private class RuntimeIOException extends RuntimeException {
 		public static final long serialVersionUID = 0;
 
@@ -0,0 +1,243 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.ConstantFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.GetFreeVariables.getFreeVariables;
+
+/**
+ * Simplify formulas without changing their meaning. The following rules are applied bottom-up:
+ *
+ * - Constants are folded, e.g. <code>true &amp;&amp; A</code> becomes <code>A</code>, <code>[a]true</code> becomes
+ *   <code>true</code> and <code>!false</code> becomes <code>true</code>.
+ * - Double negations are removed.
+ * - Duplicate children of conjunctions and disjunctions are removed and absorbed children are dropped, e.g.
+ *   <code>A &amp;&amp; (A || B)</code> becomes <code>A</code>.
+ * - Universal modalities in conjunctions and existential modalities in disjunctions with the same event are merged,
+ *   e.g. <code>[a]A &amp;&amp; [a]B</code> becomes <code>[a](A &amp;&amp; B)</code>.
+ * - Fixed points whose variable does not appear in their body are removed.
+ *
+ * Calls are not simplified, since the meaning of some calls depends on the events appearing in their arguments.
+ * For the same reason, the alphabet of a formula might shrink, so calls should be expanded before simplifying.
+ */
+public class SimplifyFormulaTransformer extends FormulaFormulaTransformer {
+	@Override
+	protected void enqueueWalker(NonRecursive engine, Formula formula) {
+		engine.enqueue(new Worker(formula));
+	}
+
+	final private class Worker extends FormulaFormulaTransformer.FillCache {
+		private Worker(Formula formula) {
+			super(formula);
+		}
+
+		@Override
+		public void walk(NonRecursive engine, CallFormula formula) {
+			setCache(formula, formula);
+		}
+
+		@Override
+		public Formula conjunction(ConjunctionFormula formula, List<Formula> transformed) {
+			return simplifyJunction(formula.getCreator(), true, transformed, true);
+		}
+
+		@Override
+		public Formula disjunction(DisjunctionFormula formula, List<Formula> transformed) {
+			return simplifyJunction(formula.getCreator(), false, transformed, true);
+		}
+
+		@Override
+		public Formula negate(NegationFormula formula, Formula transformedChild) {
+			FormulaCreator creator = formula.getCreator();
+			switch (transformedChild.getKind()) {
+				case CONSTANT:
+					return creator.constant(!((ConstantFormula) transformedChild).getValue());
+				case NEGATION:
+					return ((NegationFormula) transformedChild).getFormula();
+				default:
+					return super.negate(formula, transformedChild);
+			}
+		}
+
+		@Override
+		public Formula modality(ModalityFormula formula, Formula transformedChild) {
+			// [a]true is true and <a>false is false
+			boolean neutral = formula.getModality().equals(Modality.UNIVERSAL);
+			if (isConstant(transformedChild, neutral))
+				return transformedChild;
+			return super.modality(formula, transformedChild);
+		}
+
+		@Override
+		public Formula fixedPoint(FixedPointFormula formula, Formula transformedChild) {
+			VariableFormula var = formula.getVariable();
+			// nu X.X is true and mu X.X is false
+			if (transformedChild.equals(var))
+				return formula.getCreator().constant(
+						formula.getFixedPoint().equals(FixedPoint.GREATEST));
+			if (!getFreeVariables(transformedChild).contains(var))
+				return transformedChild;
+			return super.fixedPoint(formula, transformedChild);
+		}
+	}
+
+	static private boolean isConstant(Formula formula, boolean value) {
+		return formula.getKind() == FormulaKind.CONSTANT && ((ConstantFormula) formula).getValue() == value;
+	}
+
+	static private List<Formula> getChildren(Formula formula, boolean conjunction) {
+		if (conjunction && formula.getKind() == FormulaKind.CONJUNCTION)
+			return ((ConjunctionFormula) formula).getFormulas();
+		if (!conjunction && formula.getKind() == FormulaKind.DISJUNCTION)
+			return ((DisjunctionFormula) formula).getFormulas();
+		return null;
+	}
+
+	// Simplify a conjunction (or disjunction) of the given already simplified children. Modalities are only merged
+	// if mergeModalities is true, so that the merged modalities are not simplified again recursively.
+	static private Formula simplifyJunction(FormulaCreator creator, boolean conjunction, List<Formula> children,
+			boolean mergeModalities) {
+		// Flatten, fold constants and remove duplicates
+		Set<Formula> set = new LinkedHashSet<>();
+		for (Formula child : children) {
+			List<Formula> grandChildren = getChildren(child, conjunction);
+			if (grandChildren == null) {
+				grandChildren = new ArrayList<>();
+				grandChildren.add(child);
+			}
+			for (Formula grandChild : grandChildren) {
+				// true is neutral in conjunctions and dominates disjunctions, false the other way round
+				if (isConstant(grandChild, conjunction))
+					continue;
+				if (isConstant(grandChild, !conjunction))
+					return grandChild;
+				set.add(grandChild);
+			}
+		}
+
+		// Absorption: A && (A || B) is A, and A || (A && B) is A
+		List<Formula> remaining = new ArrayList<>();
+		for (Formula child : set) {
+			List<Formula> dualChildren = getChildren(child, !conjunction);
+			boolean absorbed = false;
+			if (dualChildren != null) {
+				for (Formula dualChild : dualChildren) {
+					if (set.contains(dualChild)) {
+						absorbed = true;
+						break;
+					}
+				}
+			}
+			if (!absorbed)
+				remaining.add(child);
+		}
+
+		if (mergeModalities)
+			remaining = mergeModalities(creator, conjunction, remaining);
+
+		switch (remaining.size()) {
+			case 0:
+				return creator.constant(conjunction);
+			case 1:
+				return remaining.get(0);
+			default:
+				if (conjunction)
+					return creator.conjunction(remaining);
+				return creator.disjunction(remaining);
+		}
+	}
+
+	// [a]A && [a]B is [a](A && B) and <a>A || <a>B is <a>(A || B)
+	static private List<Formula> mergeModalities(FormulaCreator creator, boolean conjunction,
+			List<Formula> children) {
+		Modality mergeable = conjunction ? Modality.UNIVERSAL : Modality.EXISTENTIAL;
+		Map<Integer, List<Formula>> byEvent = new LinkedHashMap<>();
+		boolean merge = false;
+		for (Formula child : children) {
+			if (child.getKind() != FormulaKind.MODALITY)
+				continue;
+			ModalityFormula modality = (ModalityFormula) child;
+			if (!modality.getModality().equals(mergeable))
+				continue;
+			List<Formula> inner = byEvent.get(modality.getEventId());
+			if (inner == null) {
+				inner = new ArrayList<>();
+				byEvent.put(modality.getEventId(), inner);
+			} else {
+				merge = true;
+			}
+			inner.add(modality.getFormula());
+		}
+		if (!merge)
+			return children;
+
+		List<Formula> result = new ArrayList<>();
+		for (Formula child : children) {
+			if (child.getKind() == FormulaKind.MODALITY
+					&& ((ModalityFormula) child).getModality().equals(mergeable)) {
+				int event = ((ModalityFormula) child).getEventId();
+				List<Formula> inner = byEvent.remove(event);
+				// Only the first modality with each event is replaced by the merged one
+				if (inner != null) {
+					Formula merged = simplifyJunction(creator, conjunction, inner, false);
+					if (isConstant(merged, conjunction))
+						continue;
+					result.add(creator.modality(mergeable, event, merged));
+				}
+				continue;
+			}
+			result.add(child);
+		}
+		return result;
+	}
+
+	static public Formula simplify(Formula formula) {
+		SimplifyFormulaTransformer transformer = new SimplifyFormulaTransformer();
+		transformer.useMemoTable(formula.getCreator().<Formula>getMemoTable("simplify"));
+		NonRecursive engine = new NonRecursive();
+		transformer.transform(engine, formula);
+		engine.run();
+		Formula result = transformer.transform(engine, formula);
+		assert result != null;
+		return result;
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
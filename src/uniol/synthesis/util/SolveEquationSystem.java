@@ -20,12 +20,18 @@
 package uniol.synthesis.util;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
 
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.LetFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 import static uniol.synthesis.util.GetFreeVariables.getFreeVariables;
 import static uniol.synthesis.util.SubstitutionTransformer.substitute;
@@ -33,33 +39,186 @@ import static uniol.synthesis.util.SubstitutionTransformer.substitute;
 public class SolveEquationSystem {
 	public Map<VariableFormula, Formula> solve(FixedPoint fp, Map<VariableFormula, Formula> input) {
 		Map<VariableFormula, Formula> result = new HashMap<>(input);
-		Queue<VariableFormula> unhandled = new ArrayDeque<>(result.keySet());
+		Map<VariableFormula, Set<VariableFormula>> dependencies = getDependencies(input);
 
-		while (!unhandled.isEmpty()) {
-			VariableFormula var = unhandled.remove();
+		// Solve the strongly connected components of the dependency graph one after another. Each component
+		// is handled after all components that it depends on, so their solutions are already closed formulas.
+		for (List<VariableFormula> component : findComponents(dependencies)) {
+			Set<VariableFormula> members = new HashSet<>(component);
+			for (VariableFormula var : component) {
+				Set<VariableFormula> deps = dependencies.get(var);
+				Map<VariableFormula, Formula> solved = new HashMap<>();
+				for (VariableFormula dep : deps)
+					if (!members.contains(dep))
+						solved.put(dep, result.get(dep));
+				if (!solved.isEmpty()) {
+					result.put(var, substitute(result.get(var), solved));
+					deps.removeAll(solved.keySet());
+				}
+			}
+			solveComponent(fp, component, result, dependencies);
+		}
+		return result;
+	}
+
+	/**
+	 * Solve the equation system for a single variable without copying the solutions of variables into each
+	 * other. Instead, each strongly connected component of the system is solved on its own and the solutions are
+	 * bound with {@link LetFormula}s, so that a solution that is needed in many places appears only once.
+	 * @param fp The kind of fixed point that is used for recursive variables.
+	 * @param input The equation system.
+	 * @param root The variable whose solution is computed.
+	 * @return A closed formula describing the solution for the root variable.
+	 */
+	public Formula solveWithLets(FixedPoint fp, Map<VariableFormula, Formula> input, VariableFormula root) {
+		Map<VariableFormula, Formula> result = new HashMap<>(input);
+		Map<VariableFormula, Set<VariableFormula>> dependencies = getDependencies(input);
+		Set<VariableFormula> needed = getReachable(dependencies, root);
+
+		// Solutions inside a component only refer to variables of earlier components
+		List<VariableFormula> order = new ArrayList<>();
+		for (List<VariableFormula> component : findComponents(dependencies)) {
+			if (!needed.contains(component.get(0)))
+				continue;
+			solveComponent(fp, component, result, dependencies);
+			// After solving, the root does not refer to the other variables of its own component
+			if (!component.contains(root))
+				order.addAll(component);
+		}
+
+		// Bind all needed variables around the root's solution, the earliest component outermost
+		Formula formula = result.get(root);
+		for (int i = order.size() - 1; i >= 0; i--) {
+			VariableFormula var = order.get(i);
+			formula = formula.getCreator().let(var, result.get(var), formula);
+		}
+		return formula;
+	}
+
+	// For each variable, get the variables of the system that appear free in its definition. This is kept up to
+	// date while definitions are modified, so that free variables only have to be computed once.
+	static private Map<VariableFormula, Set<VariableFormula>> getDependencies(Map<VariableFormula, Formula> input) {
+		Map<VariableFormula, Set<VariableFormula>> dependencies = new HashMap<>();
+		for (Map.Entry<VariableFormula, Formula> entry : input.entrySet()) {
+			Set<VariableFormula> deps = new HashSet<>(getFreeVariables(entry.getValue()));
+			deps.retainAll(input.keySet());
+			dependencies.put(entry.getKey(), deps);
+		}
+		return dependencies;
+	}
+
+	static private Set<VariableFormula> getReachable(Map<VariableFormula, Set<VariableFormula>> dependencies,
+			VariableFormula root) {
+		Set<VariableFormula> result = new HashSet<>();
+		Deque<VariableFormula> todo = new ArrayDeque<>();
+		todo.push(root);
+		result.add(root);
+		while (!todo.isEmpty()) {
+			for (VariableFormula dep : dependencies.get(todo.pop()))
+				if (result.add(dep))
+					todo.push(dep);
+		}
+		return result;
+	}
+
+	// Gaussian elimination on the variables of one strongly connected component
+	static private void solveComponent(FixedPoint fp, List<VariableFormula> component,
+			Map<VariableFormula, Formula> result, Map<VariableFormula, Set<VariableFormula>> dependencies) {
+		for (VariableFormula var : component) {
 			Formula definition = result.get(var);
+			Set<VariableFormula> deps = dependencies.get(var);
 
 			// If the variable appears as a free variable in its definition, introduce a fixed point to bind
 			// the variable
-			if (getFreeVariables(definition).contains(var))
+			if (deps.remove(var))
 				definition = definition.getCreator().fixedPoint(fp, var, definition);
+			result.put(var, definition);
 
-			// Replace this variable's definition with what we just computed and substitute it into all
-			// other variables.
-			for (Map.Entry<VariableFormula, Formula> entry : result.entrySet()) {
-				if (entry.getKey().equals(var)) {
-					entry.setValue(definition);
-				} else {
-					if (entry.getValue().equals(var)) {
-						entry.setValue(definition);
-					} else if (getFreeVariables(entry.getValue()).contains(var)) {
-						entry.setValue(substitute(entry.getValue(), var, definition));
-					}
+			// Substitute the new definition into all other variables of the component that use it. The
+			// other components do not refer to this variable anymore or were not handled yet.
+			for (VariableFormula other : component) {
+				if (other.equals(var))
+					continue;
+				Set<VariableFormula> otherDeps = dependencies.get(other);
+				if (!otherDeps.remove(var))
+					continue;
+				Formula value = result.get(other);
+				if (value.equals(var))
+					result.put(other, definition);
+				else
+					result.put(other, substitute(value, var, definition));
+				otherDeps.addAll(deps);
+			}
+		}
+	}
+
+	static private class Frame {
+		private final VariableFormula var;
+		private final Iterator<VariableFormula> successors;
+
+		private Frame(VariableFormula var, Iterator<VariableFormula> successors) {
+			this.var = var;
+			this.successors = successors;
+		}
+	}
+
+	// Find the strongly connected components with Tarjan's algorithm. Since the algorithm emits a component only
+	// after all components reachable from it, each component comes after the components it depends on.
+	static List<List<VariableFormula>> findComponents(Map<VariableFormula, Set<VariableFormula>> dependencies) {
+		List<List<VariableFormula>> result = new ArrayList<>();
+		Map<VariableFormula, Integer> index = new HashMap<>();
+		Map<VariableFormula, Integer> lowLink = new HashMap<>();
+		Deque<VariableFormula> stack = new ArrayDeque<>();
+		Set<VariableFormula> onStack = new HashSet<>();
+		Deque<Frame> callStack = new ArrayDeque<>();
+
+		for (VariableFormula root : dependencies.keySet()) {
+			if (index.containsKey(root))
+				continue;
+
+			visit(root, dependencies, index, lowLink, stack, onStack, callStack);
+			while (!callStack.isEmpty()) {
+				Frame frame = callStack.peek();
+				if (frame.successors.hasNext()) {
+					VariableFormula next = frame.successors.next();
+					if (!index.containsKey(next))
+						visit(next, dependencies, index, lowLink, stack, onStack, callStack);
+					else if (onStack.contains(next))
+						lowLink.put(frame.var, Math.min(lowLink.get(frame.var), index.get(next)));
+					continue;
+				}
+
+				callStack.pop();
+				VariableFormula var = frame.var;
+				if (!callStack.isEmpty()) {
+					VariableFormula parent = callStack.peek().var;
+					lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(var)));
+				}
+				if (lowLink.get(var).equals(index.get(var))) {
+					List<VariableFormula> component = new ArrayList<>();
+					VariableFormula member;
+					do {
+						member = stack.pop();
+						onStack.remove(member);
+						component.add(member);
+					} while (!member.equals(var));
+					result.add(component);
 				}
 			}
 		}
 		return result;
 	}
+
+	static private void visit(VariableFormula var, Map<VariableFormula, Set<VariableFormula>> dependencies,
+			Map<VariableFormula, Integer> index, Map<VariableFormula, Integer> lowLink,
+			Deque<VariableFormula> stack, Set<VariableFormula> onStack, Deque<Frame> callStack) {
+		int number = index.size();
+		index.put(var, number);
+		lowLink.put(var, number);
+		stack.push(var);
+		onStack.add(var);
+		callStack.push(new Frame(var, dependencies.get(var).iterator()));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
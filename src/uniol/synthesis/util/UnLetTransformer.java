@@ -110,6 +110,7 @@ public class UnLetTransformer extends FormulaFormulaTransformer {
 	static public Formula unLet(Formula formula) {
 		NonRecursive engine = new NonRecursive();
 		UnLetTransformer transformer = new UnLetTransformer();
+		transformer.useMemoTable(formula.getCreator().<Formula>getMemoTable("unLet"));
 		Formula result = transformer.transform(engine, formula);
 		if (result == null) {
 			engine.run();
@@ -0,0 +1,102 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+/**
+ * An immutable set of variables of one {@link FormulaCreator}. The set is represented as a bit set of the variables'
+ * indices, so membership tests do not need to hash the variables.
+ * @see VariableFormula#getIndex
+ */
+final public class VariableSet extends AbstractSet<VariableFormula> {
+	final private FormulaCreator creator;
+	// The formula that the variables appear in. This keeps the variables from being garbage collected.
+	final private Formula formula;
+	final private BitSet indices;
+
+	// The bit set is not copied and must not be modified afterwards
+	VariableSet(Formula formula, BitSet indices) {
+		this.creator = formula.getCreator();
+		this.formula = formula;
+		this.indices = indices;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof VariableFormula))
+			return false;
+		VariableFormula var = (VariableFormula) o;
+		return var.getCreator() == creator && indices.get(var.getIndex());
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return indices.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return indices.cardinality();
+	}
+
+	/**
+	 * Get the indices of the variables in this set.
+	 * @return A new bit set containing the indices.
+	 */
+	public BitSet getIndices() {
+		return (BitSet) indices.clone();
+	}
+
+	@Override
+	public Iterator<VariableFormula> iterator() {
+		return new Iterator<VariableFormula>() {
+			private int next = indices.nextSetBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public VariableFormula next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				VariableFormula result = creator.getVariable(next);
+				next = indices.nextSetBit(next + 1);
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
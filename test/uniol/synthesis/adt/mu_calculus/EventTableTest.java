@@ -0,0 +1,68 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EventTableTest {
+	@Test
+	public void testIds() {
+		EventTable events = new EventTable();
+		assertThat(events.getId("a"), equalTo(0));
+		assertThat(events.getId("b"), equalTo(1));
+		assertThat(events.getId("a"), equalTo(0));
+		assertThat(events.size(), equalTo(2));
+		assertThat(events.getEvent(0), equalTo("a"));
+		assertThat(events.getEvent(1), equalTo("b"));
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testUnknownId() {
+		new EventTable().getEvent(0);
+	}
+
+	@Test
+	public void testBitSet() {
+		EventTable events = new EventTable();
+		events.getId("x");
+		BitSet ids = events.toBitSet(Arrays.asList("c", "b", "c"));
+		assertThat(ids.cardinality(), equalTo(2));
+		assertThat(ids.get(0), is(false));
+		assertThat(events.toEvents(ids), contains("c", "b"));
+	}
+
+	@Test
+	public void testModalityIds() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula inner = creator.constant(true);
+		ModalityFormula formula = creator.modality(Modality.UNIVERSAL, "a", inner);
+		assertThat(formula.getEventId(), equalTo(creator.getEventTable().getId("a")));
+		assertThat(creator.modality(Modality.UNIVERSAL, formula.getEventId(), inner), sameInstance(formula));
+		assertThat(creator.modality(Modality.EXISTENTIAL, formula.getEventId(), inner).getEvent(),
+				equalTo("a"));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,138 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.adt.mu_calculus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class FormulaArenaTest {
+	@Test
+	public void testEmpty() {
+		FormulaArena arena = new FormulaArena();
+		assertThat(arena.get(42), emptyIterable());
+		assertThat(arena.size(), equalTo(0));
+	}
+
+	@Test
+	public void testSameHashCode() {
+		FormulaArena arena = new FormulaArena();
+		Formula a = mock(Formula.class);
+		Formula b = mock(Formula.class);
+		Formula c = mock(Formula.class);
+		arena.add(42, a);
+		arena.add(42, b);
+		arena.add(43, c);
+		assertThat(arena.get(42), containsInAnyOrder(a, b));
+		assertThat(arena.get(43), contains(c));
+		assertThat(arena.get(44), emptyIterable());
+		assertThat(arena.size(), equalTo(3));
+	}
+
+	@Test
+	public void testGrow() {
+		FormulaArena arena = new FormulaArena();
+		List<Formula> formulas = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			Formula formula = mock(Formula.class);
+			formulas.add(formula);
+			arena.add(i % 100, formula);
+		}
+		assertThat(arena.size(), equalTo(5000));
+		for (int i = 0; i < 5000; i++)
+			assertThat(arena.get(i % 100), hasItem(formulas.get(i)));
+		assertThat(arena.get(100), emptyIterable());
+	}
+
+	@Test(expectedExceptions = NoSuchElementException.class)
+	public void testNoSuchElement() {
+		new FormulaArena().get(0).iterator().next();
+	}
+
+	@Test
+	public void testCreator() {
+		FormulaCreator creator = FormulaCreator.createArena();
+		assertThat(creator.isArena(), is(true));
+		assertThat(new FormulaCreator().isArena(), is(false));
+
+		Formula formula = creator.conjunction(creator.variable("X"),
+				creator.modality(Modality.UNIVERSAL, "a", creator.constant(true)));
+		Formula same = creator.conjunction(creator.variable("X"),
+				creator.modality(Modality.UNIVERSAL, "a", creator.constant(true)));
+		assertThat(same, sameInstance(formula));
+		assertThat(creator.variable("X"), not(sameInstance(creator.variable("Y"))));
+	}
+
+	@Test
+	public void testCreatorVariables() {
+		FormulaCreator creator = FormulaCreator.createArena();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.freshVariable("Y");
+		assertThat(x.getIndex(), equalTo(0));
+		assertThat(y.getIndex(), equalTo(1));
+		assertThat(creator.variable("X").getIndex(), equalTo(0));
+		assertThat(creator.getVariable(0), sameInstance(x));
+		assertThat(creator.getVariable(1), sameInstance(y));
+		assertThat(creator.variable("Z").getIndex(), equalTo(2));
+	}
+
+	@Test
+	public void testCreatorMemoTable() {
+		FormulaCreator creator = FormulaCreator.createArena();
+		Formula formula = creator.variable("X");
+		Object result = new Object();
+		MemoTable<Object> memo = creator.getMemoTable("test");
+		assertThat(memo.get(formula), nullValue());
+		memo.put(formula, result);
+		assertThat(memo.get(formula), sameInstance(result));
+		assertThat(memo.get(creator.constant(true)), nullValue());
+		assertThat(memo.getHits(), equalTo(1L));
+		assertThat(memo.getMisses(), equalTo(2L));
+	}
+
+	@Test
+	public void testReleaseArena() {
+		FormulaCreator creator = FormulaCreator.createArena();
+		VariableFormula x = creator.variable("X");
+		Formula formula = creator.modality(Modality.UNIVERSAL, "a", x);
+		Formula result = creator.constant(true);
+		MemoTable<Formula> memo = creator.getMemoTable("test");
+		memo.put(formula, result);
+
+		creator.releaseArena();
+		assertThat(creator.isArena(), is(false));
+		assertThat(creator.modality(Modality.UNIVERSAL, "a", creator.variable("X")), sameInstance(formula));
+		assertThat(creator.getVariable(0), sameInstance(x));
+		assertThat(creator.variable("Y").getIndex(), equalTo(1));
+		assertThat(memo.get(formula), sameInstance(result));
+		assertThat(creator.getMemoTable("other"), notNullValue());
+
+		// Releasing again does nothing
+		creator.releaseArena();
+		assertThat(creator.conjunction(formula, x), sameInstance(creator.conjunction(formula, x)));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
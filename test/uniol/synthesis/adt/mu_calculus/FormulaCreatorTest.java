@@ -73,12 +73,22 @@ public class FormulaCreatorTest {
 			public FormulaCreator getCreator() {
 				return creator;
 			}
+
+			@Override
+			public FormulaKind getKind() {
+				return FormulaKind.CONSTANT;
+			}
 		};
 		Formula formula2 = new Formula() {
 			@Override
 			public FormulaCreator getCreator() {
 				return creator;
 			}
+
+			@Override
+			public FormulaKind getKind() {
+				return FormulaKind.CONSTANT;
+			}
 		};
 
 		creator.addFormulaInternal(42, formula1);
@@ -102,6 +112,11 @@ public class FormulaCreatorTest {
 			public FormulaCreator getCreator() {
 				return creator;
 			}
+
+			@Override
+			public FormulaKind getKind() {
+				return FormulaKind.CONSTANT;
+			}
 		};
 		creator.addFormulaInternal(42, formula1);
 		Iterator<Formula> iterator = creator.getFormulasWithHashCode(42).iterator();
@@ -148,6 +163,18 @@ public class FormulaCreatorTest {
 		assertThat(conj, sameInstance(creator.conjunction(True, False)));
 	}
 
+	@Test
+	public void testConjunctionIndexedAccess() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula True = creator.constant(true);
+		Formula False = creator.constant(false);
+		ConjunctionFormula conj = creator.conjunction(True, False);
+		assertThat(conj.size(), equalTo(2));
+		assertThat(conj.get(0), sameInstance(True));
+		assertThat(conj.get(1), sameInstance(False));
+		assertThat(conj.getFormulas(), sameInstance(conj.getFormulas()));
+	}
+
 	@Test
 	public void testConjunctionFlattening() {
 		FormulaCreator creator = new FormulaCreator();
@@ -170,6 +197,18 @@ public class FormulaCreatorTest {
 		assertThat(disj, sameInstance(creator.disjunction(True, False)));
 	}
 
+	@Test
+	public void testDisjunctionIndexedAccess() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula True = creator.constant(true);
+		Formula False = creator.constant(false);
+		DisjunctionFormula disj = creator.disjunction(True, False);
+		assertThat(disj.size(), equalTo(2));
+		assertThat(disj.get(0), sameInstance(True));
+		assertThat(disj.get(1), sameInstance(False));
+		assertThat(disj.getFormulas(), sameInstance(disj.getFormulas()));
+	}
+
 	@Test
 	public void testDisjunctionFlattening() {
 		FormulaCreator creator = new FormulaCreator();
@@ -182,6 +221,52 @@ public class FormulaCreatorTest {
 		assertThat(disj, sameInstance(creator.disjunction(True, False, True, False)));
 	}
 
+	@Test
+	public void testConjunctionBuilder() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula True = creator.constant(true);
+		Formula False = creator.constant(false);
+		ConjunctionFormula conj = creator.conjunction(True, False);
+		Formula built = creator.conjunctionBuilder().add(conj).add(True).add(False).build();
+		assertThat(built, sameInstance((Formula) creator.conjunction(True, False, True, False)));
+	}
+
+	@Test
+	public void testConjunctionBuilderSmall() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula False = creator.constant(false);
+		assertThat(creator.conjunctionBuilder().isEmpty(), is(true));
+		assertThat(creator.conjunctionBuilder().build(), sameInstance((Formula) creator.constant(true)));
+		assertThat(creator.conjunctionBuilder().add(False).build(), sameInstance(False));
+	}
+
+	@Test
+	public void testDisjunctionBuilder() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula True = creator.constant(true);
+		Formula False = creator.constant(false);
+		Formula built = creator.disjunctionBuilder().add(True).add(False).add(True).build();
+		assertThat(built, sameInstance((Formula) creator.disjunction(True, False, True)));
+		assertThat(creator.disjunctionBuilder().build(), sameInstance((Formula) False));
+		assertThat(creator.disjunctionBuilder().add(True).build(), sameInstance(True));
+	}
+
+	@Test
+	public void testKinds() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula var = creator.variable("X");
+		Formula True = creator.constant(true);
+		assertThat(True.getKind(), is(FormulaKind.CONSTANT));
+		assertThat(creator.conjunction(True, var).getKind(), is(FormulaKind.CONJUNCTION));
+		assertThat(creator.disjunction(True, var).getKind(), is(FormulaKind.DISJUNCTION));
+		assertThat(creator.negate(var).getKind(), is(FormulaKind.NEGATION));
+		assertThat(var.getKind(), is(FormulaKind.VARIABLE));
+		assertThat(creator.modality(Modality.UNIVERSAL, "a", var).getKind(), is(FormulaKind.MODALITY));
+		assertThat(creator.fixedPoint(FixedPoint.LEAST, var, var).getKind(), is(FormulaKind.FIXED_POINT));
+		assertThat(creator.let(var, True, var).getKind(), is(FormulaKind.LET));
+		assertThat(creator.call("f", var).getKind(), is(FormulaKind.CALL));
+	}
+
 	@Test
 	public void testVariable() {
 		FormulaCreator creator = new FormulaCreator();
@@ -202,6 +287,39 @@ public class FormulaCreatorTest {
 		assertThat(var2.getVariable(), equalTo("foo2"));
 	}
 
+	@Test
+	public void testVariableIndex() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula foo = creator.variable("foo");
+		VariableFormula bar = creator.variable("bar");
+		assertThat(foo.getIndex(), equalTo(0));
+		assertThat(bar.getIndex(), equalTo(1));
+		assertThat(creator.variable("foo").getIndex(), equalTo(0));
+		assertThat(creator.getVariable(0), sameInstance(foo));
+		assertThat(creator.getVariable(1), sameInstance(bar));
+	}
+
+	@Test
+	public void testVariableIndexReused() {
+		if (runningOnCI())
+			throw new SkipException("Running this test would cause the OOM killer to be invoked");
+
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula foo = creator.variable("foo");
+		VariableFormula bar = creator.variable("bar");
+		assertThat(foo.getIndex(), equalTo(0));
+
+		foo = null;
+		clearSoftReferences();
+		assertThat(creator.getVariable(0), nullValue());
+
+		VariableFormula baz = creator.variable("baz");
+		assertThat(baz.getIndex(), equalTo(0));
+		assertThat(creator.getVariable(0), sameInstance(baz));
+		assertThat(creator.getVariable(1), sameInstance(bar));
+		assertThat(creator.variable("qux").getIndex(), equalTo(2));
+	}
+
 	@Test
 	public void testFixedPoint() {
 		FormulaCreator creator = new FormulaCreator();
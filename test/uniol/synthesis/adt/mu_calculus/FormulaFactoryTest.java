@@ -42,6 +42,11 @@ public class FormulaFactoryTest {
 		public FormulaCreator getCreator() {
 			return creator;
 		}
+
+		@Override
+		public FormulaKind getKind() {
+			return null;
+		}
 	}
 
 	private void stubCreator(FormulaCreator creator, Formula... formulas) {
@@ -151,8 +156,10 @@ public class FormulaFactoryTest {
 	@Test
 	public void testModalityMiss() {
 		FormulaCreator creator = mock(FormulaCreator.class);
-		String event = "event";
-		String otherEvent = "otherEvent";
+		EventTable events = new EventTable();
+		when(creator.getEventTable()).thenReturn(events);
+		int event = events.getId("event");
+		int otherEvent = events.getId("otherEvent");
 		Formula child = mock(Formula.class);
 		Formula other = mock(Formula.class);
 		stubCreator(creator, new ModalityFormula(creator, Modality.UNIVERSAL, event, child),
@@ -161,14 +168,17 @@ public class FormulaFactoryTest {
 
 		ModalityFormula formula = ModalityFormula.modality(creator, Modality.EXISTENTIAL, event, child);
 		assertThat(formula.getModality(), equalTo(Modality.EXISTENTIAL));
-		assertThat(formula.getEvent(), equalTo(event));
+		assertThat(formula.getEvent(), equalTo("event"));
+		assertThat(formula.getEventId(), equalTo(event));
 		assertThat(formula.getFormula(), equalTo(child));
 	}
 
 	@Test
 	public void testModalityHit() {
 		FormulaCreator creator = mock(FormulaCreator.class);
-		String event = "event";
+		EventTable events = new EventTable();
+		when(creator.getEventTable()).thenReturn(events);
+		int event = events.getId("event");
 		Formula child = mock(Formula.class);
 		ModalityFormula expected = new ModalityFormula(creator, Modality.UNIVERSAL, event, child);
 		stubCreator(creator, expected);
@@ -200,7 +210,7 @@ public class FormulaFactoryTest {
 	@Test
 	public void testVariableMiss() {
 		FormulaCreator creator = mock(FormulaCreator.class);
-		stubCreator(creator, new VariableFormula(creator, "foo"));
+		stubCreator(creator, new VariableFormula(creator, "foo", 0));
 
 		VariableFormula formula = VariableFormula.variable(creator, "bar", false);
 		assertThat(formula.getVariable(), equalTo("bar"));
@@ -213,7 +223,7 @@ public class FormulaFactoryTest {
 		assertThat(a1, not(sameInstance(a2)));
 
 		FormulaCreator creator = mock(FormulaCreator.class);
-		VariableFormula expected = new VariableFormula(creator, a1);
+		VariableFormula expected = new VariableFormula(creator, a1, 0);
 		stubCreator(creator, expected);
 
 		assertThat(VariableFormula.variable(creator, a2, false), sameInstance(expected));
@@ -226,7 +236,7 @@ public class FormulaFactoryTest {
 		assertThat(a1, not(sameInstance(a2)));
 
 		FormulaCreator creator = mock(FormulaCreator.class);
-		VariableFormula expected = new VariableFormula(creator, a1);
+		VariableFormula expected = new VariableFormula(creator, a1, 0);
 		stubCreator(creator, expected);
 
 		assertThat(VariableFormula.variable(creator, a2, true), nullValue());
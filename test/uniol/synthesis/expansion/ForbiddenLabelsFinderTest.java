@@ -0,0 +1,93 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.util.Arrays;
+
+import uniol.apt.adt.ts.State;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.tableau.TableauNode;
+
+@SuppressWarnings("unchecked")
+public class ForbiddenLabelsFinderTest {
+	static private TableauNode<State> mockNode(State state, Formula formula) {
+		TableauNode<State> node = mock(TableauNode.class);
+		when(node.getState()).thenReturn(state);
+		when(node.getFormula()).thenReturn(formula);
+		return node;
+	}
+
+	@Test
+	public void testNothingForbidden() {
+		FormulaCreator creator = new FormulaCreator();
+		State state = mock(State.class);
+
+		Tableau<State> tableau = mock(Tableau.class);
+		when(tableau.getLeaves()).thenReturn(Arrays.asList(
+					mockNode(state, creator.constant(true)),
+					mockNode(state, creator.modality(Modality.UNIVERSAL, "a", creator.constant(true))),
+					mockNode(state, creator.modality(Modality.EXISTENTIAL, "b",
+							creator.constant(false)))));
+
+		assertThat(new ForbiddenLabelsFinder<State>().findForbidden(tableau, state), empty());
+	}
+
+	@Test
+	public void testForbidden() {
+		FormulaCreator creator = new FormulaCreator();
+		State state = mock(State.class);
+
+		Tableau<State> tableau = mock(Tableau.class);
+		when(tableau.getLeaves()).thenReturn(Arrays.asList(
+					mockNode(state, creator.modality(Modality.UNIVERSAL, "a", creator.constant(false))),
+					mockNode(state, creator.modality(Modality.UNIVERSAL, "b", creator.variable("X"))),
+					mockNode(state, creator.modality(Modality.UNIVERSAL, "c",
+							creator.constant(false)))));
+
+		assertThat(new ForbiddenLabelsFinder<State>().findForbidden(tableau, state),
+				containsInAnyOrder("a", "c"));
+	}
+
+	@Test
+	public void testOtherState() {
+		FormulaCreator creator = new FormulaCreator();
+		State state = mock(State.class);
+		State other = mock(State.class);
+
+		Tableau<State> tableau = mock(Tableau.class);
+		when(tableau.getLeaves()).thenReturn(Arrays.asList(
+					mockNode(other, creator.modality(Modality.UNIVERSAL, "a", creator.constant(false))),
+					mockNode(state, creator.modality(Modality.UNIVERSAL, "b",
+							creator.constant(false)))));
+
+		assertThat(new ForbiddenLabelsFinder<State>().findForbidden(tableau, state), contains("b"));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
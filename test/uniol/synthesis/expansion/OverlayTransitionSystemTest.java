@@ -0,0 +1,119 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OverlayTransitionSystemTest {
+	static private TransitionSystem getBase() {
+		TransitionSystem ts = new TransitionSystem();
+		ts.createStates("s0", "s1");
+		ts.setInitialState("s0");
+		ts.createArc("s0", "s1", "a");
+		return ts;
+	}
+
+	@Test
+	public void testNoChanges() {
+		TransitionSystem base = getBase();
+		OverlayTransitionSystem overlay = new OverlayTransitionSystem(base);
+
+		assertThat(overlay.hasChanges(), is(false));
+		assertThat(overlay.getStateCount(), equalTo(2));
+		assertThat(overlay.followArcs("s0", "a"), contains("s1"));
+		assertThat(overlay.followArcs("s1", "a"), empty());
+		assertThat(overlay.toTransitionSystem(), sameInstance(base));
+	}
+
+	@Test
+	public void testAddedStateAndArc() {
+		TransitionSystem base = getBase();
+		OverlayTransitionSystem overlay = new OverlayTransitionSystem(base);
+		String state = overlay.createState();
+		overlay.createArc("s1", state, "b");
+		overlay.createArc("s0", state, "a");
+
+		assertThat(state, not(isOneOf("s0", "s1")));
+		assertThat(overlay.hasChanges(), is(true));
+		assertThat(overlay.getStateCount(), equalTo(3));
+		assertThat(overlay.containsState(state), is(true));
+		assertThat(overlay.followArcs("s0", "a"), containsInAnyOrder("s1", state));
+		assertThat(overlay.followArcs("s1", "b"), contains(state));
+		assertThat(overlay.followArcs(state, "b"), empty());
+
+		// The base is not modified
+		assertThat(base.getNodes(), hasSize(2));
+		assertThat(base.getEdges(), hasSize(1));
+	}
+
+	@Test
+	public void testToTransitionSystem() {
+		TransitionSystem base = getBase();
+		OverlayTransitionSystem overlay = new OverlayTransitionSystem(base);
+		String state = overlay.createState();
+		overlay.createArc("s1", state, "b");
+
+		TransitionSystem ts = overlay.toTransitionSystem();
+		assertThat(ts, not(sameInstance(base)));
+		assertThat(overlay.toTransitionSystem(), sameInstance(ts));
+		assertThat(ts.getNodes(), hasSize(3));
+		assertThat(ts.getEdges(), hasSize(2));
+		assertThat(ts.getInitialState().getId(), equalTo("s0"));
+		State s1 = ts.getNode("s1");
+		assertThat(s1.getPostsetNodesByLabel("b"), contains(ts.getNode(state)));
+
+		// Modifying the overlay creates a new transition system
+		overlay.createArc(state, "s0", "c");
+		assertThat(overlay.toTransitionSystem(), not(sameInstance(ts)));
+		assertThat(overlay.toTransitionSystem().getEdges(), hasSize(3));
+	}
+
+	@Test
+	public void testContainsState() {
+		OverlayTransitionSystem overlay = new OverlayTransitionSystem(getBase());
+		assertThat(overlay.containsState("s0"), is(true));
+		assertThat(overlay.containsState("s1"), is(true));
+		assertThat(overlay.containsState("s2"), is(false));
+
+		// New states are numbered after the states of the base
+		assertThat(overlay.createState(), equalTo("s2"));
+		assertThat(overlay.containsState("s2"), is(true));
+	}
+
+	@Test
+	public void testCreateStateSkipsBaseStates() {
+		TransitionSystem base = getBase();
+		base.createState("s3");
+		OverlayTransitionSystem overlay = new OverlayTransitionSystem(base);
+		assertThat(overlay.createState(), equalTo("s4"));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testArcToUnknownState() {
+		new OverlayTransitionSystem(getBase()).createArc("s0", "s42", "a");
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -19,9 +19,12 @@
 
 package uniol.synthesis.expansion;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.collections4.Transformer;
@@ -37,6 +40,8 @@ import uniol.synthesis.util.NonRecursive;
 
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -235,6 +240,81 @@ public class RealiseFormulaTest {
 		verify(engine, times(1)).enqueue(Mockito.isA(RealiseFormula.Worker.class));
 	}
 
+	static class CountingRealisationCallback implements RealiseFormula.RealisationCallback {
+		public List<Tableau<State>> result = new ArrayList<>();
+		public SearchLimit limit;
+
+		@Override
+		public void foundRealisation(TransitionSystem ts, Tableau<State> tableau) {
+			result.add(tableau);
+			limit.foundResult();
+		}
+	}
+
+	@Test
+	public void testCheckpointInFanOut() {
+		TransitionSystem ts = mock(TransitionSystem.class);
+		Tableau<State> initial = mockTableau(false);
+		Tableau<State> first = mockTableau(true);
+		Tableau<State> second = mockTableau(true);
+		Tableau<State> child = mockTableau(false);
+		Tableau<State> third = mockTableau(true);
+		MissingArcsFinder<State> missingArcsFinder = mock(MissingArcsFinder.class);
+		RealiseFormula.ContinueTableauFactory continueTableauFactory
+			= mock(RealiseFormula.ContinueTableauFactory.class);
+		SearchCheckpoint checkpoint = mock(SearchCheckpoint.class);
+
+		when(missingArcsFinder.findMissing((Tableau<State>) anyObject()))
+			.thenReturn(Collections.<Pair<State, String>>emptySet());
+		when(continueTableauFactory.continueTableau(initial))
+			.thenReturn(new LinkedHashSet<>(Arrays.asList(first, child, second)));
+		when(continueTableauFactory.continueTableau(child)).thenReturn(Collections.singleton(third));
+		// Continuing a complete tableau does not change it
+		when(continueTableauFactory.continueTableau(second)).thenReturn(Collections.singleton(second));
+
+		// Record what the checkpoint would contain
+		final List<Tableau<State>> saved = new ArrayList<>();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				NonRecursive engine = (NonRecursive) invocation.getArguments()[0];
+				for (NonRecursive.Walker walker : engine.getQueued())
+					saved.add(((SearchState) walker).getTableau());
+				for (Object state : (List<?>) invocation.getArguments()[1])
+					saved.add(((SearchState) state).getTableau());
+				return null;
+			}
+		}).when(checkpoint).write((NonRecursive) anyObject(), anyListOf(SearchState.class),
+				(SearchLimit) anyObject());
+
+		// The limit is reached by the first result of the fan-out of the initial tableau
+		CountingRealisationCallback callback = new CountingRealisationCallback();
+		RealiseFormula realise = new RealiseFormula(callback, missingArcsFinder,
+				new StateWithSameNameTransformerFactory(), continueTableauFactory,
+				new NOPOverapproximateTS(), 1);
+		SearchLimit limit = new SearchLimit(1, 0);
+		callback.limit = limit;
+		realise.realise(ts, initial, limit, checkpoint);
+
+		// The rest of the fan-out is not handled, but saved with the first continuation explored first
+		assertThat(limit.wasTruncated(), is(true));
+		assertThat(callback.result, contains(first));
+		assertThat(saved, contains(second, child));
+		verify(checkpoint, never()).writeFinished((SearchLimit) anyObject());
+
+		// Resume from the saved states; nothing is reported twice
+		SearchLimit resumedLimit = new SearchLimit(0, 0);
+		resumedLimit.foundResults(limit.getResults());
+		callback.limit = resumedLimit;
+		realise.realise(ts, saved.get(1), resumedLimit);
+		realise.realise(ts, saved.get(0), resumedLimit);
+
+		assertThat(callback.result, contains(first, third, second));
+		assertThat(resumedLimit.getResults(), equalTo(3));
+		verify(continueTableauFactory, times(1)).continueTableau(initial);
+		verify(continueTableauFactory, times(1)).continueTableau(child);
+	}
+
 	@Test
 	public void testMultipleInvocationsWithoutOverapproximation() {
 		testOverapproximate(true);
@@ -0,0 +1,171 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+import uniol.apt.util.Pair;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+import uniol.synthesis.tableau.StateFollowArcs;
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.tableau.TableauNode;
+import uniol.synthesis.util.NonRecursive;
+
+public class SearchCheckpointTest {
+	private File file;
+
+	@BeforeMethod
+	public void createFile() throws IOException {
+		file = File.createTempFile("checkpoint", ".bin");
+	}
+
+	@AfterMethod
+	public void deleteFile() {
+		file.delete();
+	}
+
+	static private SearchState mockState(TransitionSystem ts, Tableau<State> tableau) {
+		SearchState state = mock(SearchState.class);
+		when(state.getTransitionSystem()).thenReturn(ts);
+		when(state.getTableau()).thenReturn(tableau);
+		return state;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		FixedPointFormula fp = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.conjunction(creator.modality(Modality.EXISTENTIAL, "a", x),
+					creator.modality(Modality.UNIVERSAL, "b", creator.constant(false))));
+		Formula formula = creator.let(creator.variable("Y"), fp, creator.negate(creator.variable("Y")));
+
+		TransitionSystem ts = new TransitionSystem();
+		State s0 = ts.createState("s0");
+		State s1 = ts.createState("s1");
+		ts.setInitialState(s0);
+		ts.createArc(s0, s1, "a");
+		ts.createArc(s1, s1, "a");
+
+		Map<VariableFormula, FixedPointFormula> definitions = new HashMap<>();
+		definitions.put(x, fp);
+		Set<Pair<State, VariableFormula>> expansions = new HashSet<>();
+		expansions.add(new Pair<>(s0, x));
+		TableauNode<State> node = TableauNode.createNode(new StateFollowArcs(), s1, fp.getFormula(),
+				definitions, expansions);
+		Map<State, Set<Formula>> handled = new HashMap<>();
+		handled.put(s0, Collections.<Formula>singleton(fp));
+		Tableau<State> tableau = Tableau.createTableau(Collections.singleton(node), handled);
+
+		NonRecursive engine = new NonRecursive();
+		engine.enqueue(mockState(ts, tableau));
+		SearchLimit limit = new SearchLimit(0, 0);
+		limit.foundResults(3);
+		new SearchCheckpoint(file, 1000, formula).write(engine, mockState(ts, tableau), limit);
+
+		SearchCheckpoint.Resumed resumed = SearchCheckpoint.read(file, formula);
+		assertThat(resumed.getResults(), equalTo(3));
+		List<Pair<TransitionSystem, Tableau<State>>> states = resumed.getStates();
+		assertThat(states, hasSize(2));
+		// The transition system is shared and thus only restored once
+		assertThat(states.get(0).getFirst(), sameInstance(states.get(1).getFirst()));
+
+		TransitionSystem newTs = states.get(0).getFirst();
+		State newS0 = newTs.getNode("s0");
+		State newS1 = newTs.getNode("s1");
+		assertThat(newTs.getInitialState(), sameInstance(newS0));
+		assertThat(newTs.getNodes(), hasSize(2));
+		assertThat(newS0.getPostsetNodesByLabel("a"), contains(newS1));
+		assertThat(newS1.getPostsetNodesByLabel("a"), contains(newS1));
+
+		Tableau<State> newTableau = states.get(1).getSecond();
+		assertThat(newTableau.getLeaves(), hasSize(1));
+		TableauNode<State> newNode = newTableau.getLeaves().iterator().next();
+		assertThat(newNode.getState(), sameInstance(newS1));
+		assertThat(newNode.getFormula(), sameInstance(fp.getFormula()));
+		assertThat(newNode.getDefinition(x), sameInstance(fp));
+		assertThat(newNode.getExpansionsAbove(), contains(new Pair<>(newS0, x)));
+		assertThat(newTableau.alreadyHandled(newS0, fp), is(true));
+		assertThat(newTableau.alreadyHandled(newS1, fp), is(false));
+	}
+
+	@Test
+	public void testFinished() throws IOException {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.constant(true);
+		SearchLimit limit = new SearchLimit(0, 0);
+		limit.foundResult();
+		new SearchCheckpoint(file, 1000, formula).writeFinished(limit);
+
+		SearchCheckpoint.Resumed resumed = SearchCheckpoint.read(file, formula);
+		assertThat(resumed.getResults(), equalTo(1));
+		assertThat(resumed.getStates(), empty());
+	}
+
+	@Test
+	public void testNotDue() throws IOException {
+		FormulaCreator creator = new FormulaCreator();
+		file.delete();
+		new SearchCheckpoint(file, 1000 * 1000, creator.constant(true)).writeIfDue(new NonRecursive(),
+				null, SearchLimit.unlimited());
+		assertThat(file.exists(), is(false));
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*another formula.*")
+	public void testOtherFormula() throws IOException {
+		FormulaCreator creator = new FormulaCreator();
+		new SearchCheckpoint(file, 1000, creator.constant(true)).writeFinished(SearchLimit.unlimited());
+		SearchCheckpoint.read(file, creator.constant(false));
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Not a checkpoint file")
+	public void testNoCheckpoint() throws IOException {
+		Files.write(file.toPath(), Arrays.asList("Hello world"),
+				StandardCharsets.UTF_8);
+		SearchCheckpoint.read(file, new FormulaCreator().constant(true));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
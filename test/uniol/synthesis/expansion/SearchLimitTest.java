@@ -0,0 +1,102 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import uniol.synthesis.util.NonRecursive;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class SearchLimitTest {
+	@Test
+	public void testUnlimited() {
+		SearchLimit limit = SearchLimit.unlimited();
+		NonRecursive engine = mock(NonRecursive.class);
+		for (int i = 0; i < 100; i++)
+			limit.foundResult();
+
+		assertThat(limit.isReached(), is(false));
+		assertThat(limit.stopIfReached(engine), is(false));
+		assertThat(limit.wasTruncated(), is(false));
+		assertThat(limit.getResults(), equalTo(100));
+		verifyZeroInteractions(engine);
+	}
+
+	@Test
+	public void testMaxResults() {
+		SearchLimit limit = new SearchLimit(2, 0);
+		NonRecursive engine = mock(NonRecursive.class);
+
+		limit.foundResult();
+		assertThat(limit.stopIfReached(engine), is(false));
+		limit.foundResult();
+		assertThat(limit.hasEnoughResults(), is(true));
+		assertThat(limit.hasTimedOut(), is(false));
+		assertThat(limit.wasTruncated(), is(false));
+
+		assertThat(limit.stopIfReached(engine), is(true));
+		assertThat(limit.wasTruncated(), is(true));
+		verify(engine).reset();
+	}
+
+	@Test
+	public void testTimeout() throws InterruptedException {
+		SearchLimit limit = new SearchLimit(0, 1);
+		NonRecursive engine = mock(NonRecursive.class);
+		Thread.sleep(5);
+
+		assertThat(limit.hasTimedOut(), is(true));
+		assertThat(limit.hasEnoughResults(), is(false));
+		assertThat(limit.stopIfReached(engine), is(true));
+		assertThat(limit.wasTruncated(), is(true));
+		verify(engine).reset();
+	}
+
+	@Test
+	public void testStopEngine() {
+		final SearchLimit limit = new SearchLimit(1, 0);
+		final int[] walked = new int[1];
+		NonRecursive engine = new NonRecursive();
+		for (int i = 0; i < 3; i++) {
+			engine.enqueue(new NonRecursive.Walker() {
+				@Override
+				public void walk(NonRecursive engine) {
+					if (limit.stopIfReached(engine))
+						return;
+					walked[0]++;
+					limit.foundResult();
+				}
+			});
+		}
+		engine.run();
+
+		assertThat(walked[0], equalTo(1));
+		assertThat(limit.wasTruncated(), is(true));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNegativeResults() {
+		new SearchLimit(-1, 0);
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,128 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.expansion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uniol.apt.adt.ts.State;
+import uniol.apt.adt.ts.TransitionSystem;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.fail;
+
+import uniol.synthesis.tableau.Tableau;
+import uniol.synthesis.util.NonRecursive;
+
+public class SearchStrategyTest {
+	static private class RecordingState implements SearchState {
+		private final String name;
+		private final List<String> record;
+		private final TransitionSystem ts = new TransitionSystem();
+		private final int obligations;
+
+		private RecordingState(String name, List<String> record, int states, int obligations) {
+			this.name = name;
+			this.record = record;
+			this.obligations = obligations;
+			for (int i = 0; i < states; i++)
+				ts.createState();
+		}
+
+		@Override
+		public TransitionSystem getTransitionSystem() {
+			return ts;
+		}
+
+		@Override
+		public Tableau<State> getTableau() {
+			// Creating the tableau can be expensive, so the strategies must not need it
+			fail("The tableau should not be needed");
+			return null;
+		}
+
+		@Override
+		public int getStateCount() {
+			return ts.getNodes().size();
+		}
+
+		@Override
+		public int getPendingObligations() {
+			return obligations;
+		}
+
+		@Override
+		public void walk(NonRecursive engine) {
+			record.add(name);
+		}
+	}
+
+	static private List<String> run(SearchStrategy strategy, int[] states, int[] obligations) {
+		List<String> record = new ArrayList<>();
+		NonRecursive engine = strategy.createEngine();
+		for (int i = 0; i < states.length; i++)
+			engine.enqueue(new RecordingState("w" + i, record, states[i], obligations[i]));
+		engine.run();
+		return record;
+	}
+
+	@Test
+	public void testDepthFirst() {
+		assertThat(run(SearchStrategy.DEPTH_FIRST, new int[] { 3, 1, 2 }, new int[] { 0, 0, 0 }),
+				contains("w2", "w1", "w0"));
+	}
+
+	@Test
+	public void testSmallestTS() {
+		assertThat(run(SearchStrategy.SMALLEST_TS, new int[] { 3, 1, 2, 1 }, new int[] { 0, 0, 0, 0 }),
+				contains("w3", "w1", "w2", "w0"));
+	}
+
+	@Test
+	public void testFewestObligations() {
+		assertThat(run(SearchStrategy.FEWEST_OBLIGATIONS, new int[] { 1, 1, 1 }, new int[] { 2, 0, 1 }),
+				contains("w1", "w2", "w0"));
+	}
+
+	@Test
+	public void testSizeBounded() {
+		assertThat(run(SearchStrategy.SIZE_BOUNDED, new int[] { 1, 3, 1, 2 }, new int[] { 0, 0, 0, 0 }),
+				contains("w2", "w0", "w3", "w1"));
+	}
+
+	@Test
+	public void testOtherWalkersFirst() {
+		final List<String> record = new ArrayList<>();
+		NonRecursive engine = SearchStrategy.SMALLEST_TS.createEngine();
+		engine.enqueue(new RecordingState("state", record, 1, 0));
+		engine.enqueue(new NonRecursive.Walker() {
+			@Override
+			public void walk(NonRecursive engine) {
+				record.add("walker");
+			}
+		});
+		engine.run();
+		assertThat(record, contains("walker", "state"));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,182 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2017  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.modules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.CallFormula;
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+import uniol.synthesis.util.AlphabetFinder;
+
+import static uniol.synthesis.modules.CallExpansionModule.expandOneHide;
+import static uniol.synthesis.modules.CallExpansionModule.handleCalls;
+
+public class CallExpansionModuleTest {
+	// Expand each hide call on its own, without sharing anything between the calls
+	static private Formula expandHidesOneByOne(Formula formula, BitSet alphabet) {
+		FormulaCreator creator = formula.getCreator();
+		switch (formula.getKind()) {
+			case CALL:
+				CallFormula call = (CallFormula) formula;
+				assertThat(call.getFunction(), equalTo("hide"));
+				Formula argument = expandHidesOneByOne(call.getArguments().get(0), alphabet);
+				return expandOneHide(argument, alphabet);
+			case CONJUNCTION:
+				List<Formula> conjuncts = ((ConjunctionFormula) formula).getFormulas();
+				return creator.conjunction(expandHidesOneByOne(conjuncts, alphabet));
+			case DISJUNCTION:
+				List<Formula> disjuncts = ((DisjunctionFormula) formula).getFormulas();
+				return creator.disjunction(expandHidesOneByOne(disjuncts, alphabet));
+			case MODALITY:
+				ModalityFormula modality = (ModalityFormula) formula;
+				return creator.modality(modality.getModality(), modality.getEventId(),
+						expandHidesOneByOne(modality.getFormula(), alphabet));
+			default:
+				return formula;
+		}
+	}
+
+	static private List<Formula> expandHidesOneByOne(List<Formula> formulas, BitSet alphabet) {
+		List<Formula> result = new ArrayList<>();
+		for (Formula formula : formulas)
+			result.add(expandHidesOneByOne(formula, alphabet));
+		return result;
+	}
+
+	// Rename the variables of fixed points in the order in which they are visited. Afterwards, formulas that only
+	// differ in the names of their fresh variables are the same instance.
+	static private Formula renameFixedPoints(Formula formula) {
+		return renameFixedPoints(formula, new HashMap<VariableFormula, VariableFormula>(), new int[1]);
+	}
+
+	static private Formula renameFixedPoints(Formula formula, Map<VariableFormula, VariableFormula> renaming,
+			int[] counter) {
+		FormulaCreator creator = formula.getCreator();
+		switch (formula.getKind()) {
+			case VARIABLE:
+				VariableFormula renamed = renaming.get(formula);
+				return renamed == null ? formula : renamed;
+			case CONJUNCTION:
+				List<Formula> conjuncts = ((ConjunctionFormula) formula).getFormulas();
+				return creator.conjunction(renameFixedPoints(conjuncts, renaming, counter));
+			case DISJUNCTION:
+				List<Formula> disjuncts = ((DisjunctionFormula) formula).getFormulas();
+				return creator.disjunction(renameFixedPoints(disjuncts, renaming, counter));
+			case MODALITY:
+				ModalityFormula modality = (ModalityFormula) formula;
+				return creator.modality(modality.getModality(), modality.getEventId(),
+						renameFixedPoints(modality.getFormula(), renaming, counter));
+			case FIXED_POINT:
+				FixedPointFormula fixedPoint = (FixedPointFormula) formula;
+				VariableFormula var = creator.variable("fp" + counter[0]++);
+				Map<VariableFormula, VariableFormula> inner = new HashMap<>(renaming);
+				inner.put(fixedPoint.getVariable(), var);
+				return creator.fixedPoint(fixedPoint.getFixedPoint(), var,
+						renameFixedPoints(fixedPoint.getFormula(), inner, counter));
+			default:
+				return formula;
+		}
+	}
+
+	static private List<Formula> renameFixedPoints(List<Formula> formulas,
+			Map<VariableFormula, VariableFormula> renaming, int[] counter) {
+		List<Formula> result = new ArrayList<>();
+		for (Formula formula : formulas)
+			result.add(renameFixedPoints(formula, renaming, counter));
+		return result;
+	}
+
+	static private Formula assertSameAsExpandOneHide(Formula formula) {
+		Formula result = handleCalls(formula);
+		Formula expected = expandHidesOneByOne(formula, AlphabetFinder.getAlphabetIds(formula));
+		assertThat(renameFixedPoints(result), sameInstance(renameFixedPoints(expected)));
+		return result;
+	}
+
+	@Test
+	public void testNestedHide() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula inner = creator.call("hide",
+				creator.modality(Modality.EXISTENTIAL, "b", creator.variable("P")));
+		Formula formula = creator.conjunction(
+				creator.call("hide", creator.modality(Modality.UNIVERSAL, "a", inner)),
+				creator.modality(Modality.UNIVERSAL, "c", creator.constant(true)));
+		assertSameAsExpandOneHide(formula);
+	}
+
+	@Test
+	public void testNestedHideSameArgument() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula modality = creator.modality(Modality.EXISTENTIAL, "a", creator.variable("P"));
+		Formula formula = creator.conjunction(
+				creator.call("hide", creator.conjunction(modality, creator.call("hide", modality))),
+				creator.modality(Modality.UNIVERSAL, "b", creator.constant(true)));
+		assertSameAsExpandOneHide(formula);
+	}
+
+	@Test
+	public void testHideSameComplementAlphabet() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula modality = creator.modality(Modality.EXISTENTIAL, "a", creator.variable("P"));
+		Formula formula = creator.conjunction(
+				creator.call("hide", modality),
+				creator.call("hide", creator.disjunction(modality,
+						creator.modality(Modality.UNIVERSAL, "a", creator.variable("Q")))),
+				creator.modality(Modality.UNIVERSAL, "b", creator.constant(true)),
+				creator.modality(Modality.UNIVERSAL, "c", creator.constant(true)));
+		ConjunctionFormula result = (ConjunctionFormula) assertSameAsExpandOneHide(formula);
+
+		// Both hide calls hide b and c, so they expand <a>P to the same fixed point
+		assertThat(result.get(0), instanceOf(FixedPointFormula.class));
+		assertThat(((DisjunctionFormula) result.get(1)).get(0), sameInstance(result.get(0)));
+	}
+
+	@Test
+	public void testHideDifferentComplementAlphabet() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula modality = creator.modality(Modality.EXISTENTIAL, "a", creator.variable("P"));
+		Formula formula = creator.conjunction(
+				creator.call("hide", modality),
+				creator.call("hide", creator.disjunction(modality,
+						creator.modality(Modality.UNIVERSAL, "b", creator.variable("Q")))),
+				creator.modality(Modality.UNIVERSAL, "c", creator.constant(true)));
+		ConjunctionFormula result = (ConjunctionFormula) assertSameAsExpandOneHide(formula);
+
+		// The first hide call also hides b, the second one does not
+		assertThat(((DisjunctionFormula) result.get(1)).get(0), not(sameInstance(result.get(0))));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -21,6 +21,7 @@ package uniol.synthesis.mts;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -42,32 +43,6 @@ import static org.hamcrest.Matchers.*;
 import static org.mockito.Mockito.*;
 
 public class MTSToFormulaTest {
-	@Test
-	public void testConjunction() {
-		FormulaCreator creator = new FormulaCreator();
-		Formula True = creator.constant(true);
-		Formula False = creator.constant(false);
-
-		MTSToFormula m = new MTSToFormula(null);
-		assertThat(m.conjunction(True, True), is(True));
-		assertThat(m.conjunction(True, False), is(False));
-		assertThat(m.conjunction(False, True), is(False));
-		assertThat(m.conjunction(False, False), is((Formula) creator.conjunction(False, False)));
-	}
-
-	@Test
-	public void testDisjunction() {
-		FormulaCreator creator = new FormulaCreator();
-		Formula True = creator.constant(true);
-		Formula False = creator.constant(false);
-
-		MTSToFormula m = new MTSToFormula(null);
-		assertThat(m.disjunction(True, True), is((Formula) creator.disjunction(True, True)));
-		assertThat(m.disjunction(True, False), is(True));
-		assertThat(m.disjunction(False, True), is(True));
-		assertThat(m.disjunction(False, False), is(False));
-	}
-
 	@Test
 	public void testSimpleGetVariable() {
 		FormulaCreator creator = new FormulaCreator();
@@ -141,6 +116,9 @@ public class MTSToFormulaTest {
 		when(arcA1.getTarget()).thenReturn(target1);
 		when(arcA2.getTarget()).thenReturn(target2);
 		when(arcB.getTarget()).thenReturn(target1);
+		when(arcA1.getLabel()).thenReturn("a");
+		when(arcA2.getLabel()).thenReturn("a");
+		when(arcB.getLabel()).thenReturn("b");
 
 		when(target1.getId()).thenReturn("X1");
 		when(target2.getId()).thenReturn("X2");
@@ -149,10 +127,34 @@ public class MTSToFormulaTest {
 		Set<Arc> aPostset = new LinkedHashSet<>(Arrays.asList(arcA1, arcA2));
 		when(state.getPostsetEdgesByLabel("a")).thenReturn(aPostset);
 		when(state.getPostsetEdgesByLabel("b")).thenReturn(Collections.singleton(arcB));
+		when(state.getPostsetEdges()).thenReturn(new LinkedHashSet<>(Arrays.asList(arcA1, arcA2, arcB)));
 
 		return state;
 	}
 
+	@Test
+	public void testIndexArcs() {
+		State state = mock(State.class);
+		Arc mustA = mock(Arc.class);
+		Arc mayA = mock(Arc.class);
+		Arc mayB = mock(Arc.class);
+		when(mustA.getLabel()).thenReturn("a");
+		when(mayA.getLabel()).thenReturn("a");
+		when(mayA.hasExtension("may")).thenReturn(true);
+		when(mayB.getLabel()).thenReturn("b");
+		when(mayB.hasExtension("may")).thenReturn(true);
+		when(state.getPostsetEdges()).thenReturn(new LinkedHashSet<>(Arrays.asList(mustA, mayA, mayB)));
+
+		Map<String, MTSToFormula.LabelArcs> index = new MTSToFormula(null).indexArcs(state);
+		assertThat(index.keySet(), containsInAnyOrder("a", "b"));
+		assertThat(index.get("a").mayArcs, contains(mustA, mayA));
+		assertThat(index.get("a").mustArcs, contains(mustA));
+		assertThat(index.get("a").pureMayArcs, contains(mayA));
+		assertThat(index.get("b").mayArcs, contains(mayB));
+		assertThat(index.get("b").mustArcs, empty());
+		assertThat(index.get("b").pureMayArcs, contains(mayB));
+	}
+
 	@Test
 	public void testStateToFormulaThreeMustEdges_Generic() {
 		State state = getThreeMustEdges();
@@ -198,6 +200,47 @@ public class MTSToFormulaTest {
 		assertThat(new MTSToFormula(MTSToFormula.Mode.DETERMINISTIC).stateToFormula(creator, state), is(expected));
 	}
 
+	@Test
+	public void testStateToFormulaMissingLabel() {
+		State state = getThreeMustEdges();
+		when(state.getGraph().getAlphabet()).thenReturn(new LinkedHashSet<>(Arrays.asList("c", "a", "d", "b")));
+		Modality ex = Modality.EXISTENTIAL;
+		Modality un = Modality.UNIVERSAL;
+		FormulaCreator creator = new FormulaCreator();
+
+		VariableFormula x1 = creator.variable("X1");
+		VariableFormula x2 = creator.variable("X2");
+		Formula expected = creator.conjunction(
+				creator.modality(ex, "a", x1),
+				creator.modality(ex, "a", x2),
+				creator.modality(ex, "b", x1),
+				// The labels without arcs come last in the order of the alphabet
+				creator.modality(un, "c", creator.constant(false)),
+				creator.modality(un, "d", creator.constant(false)));
+		MTSToFormula m = new MTSToFormula(MTSToFormula.Mode.DETERMINISTIC);
+		assertThat(m.stateToFormula(creator, state), is(expected));
+	}
+
+	@Test
+	public void testMissingLabelsShared() {
+		FormulaCreator creator = spy(new FormulaCreator());
+		Set<String> alphabet = new LinkedHashSet<>(Arrays.asList("a", "b", "c"));
+		Map<Set<String>, Formula> missingLabels = new HashMap<>();
+		MTSToFormula m = new MTSToFormula(MTSToFormula.Mode.GENERIC);
+
+		Formula formula = m.missingLabelsToFormula(creator, alphabet,
+				new LinkedHashSet<>(Arrays.asList("b")), missingLabels);
+		Formula expected = creator.conjunction(
+				creator.modality(Modality.UNIVERSAL, "a", creator.constant(false)),
+				creator.modality(Modality.UNIVERSAL, "c", creator.constant(false)));
+		assertThat(formula, is(expected));
+		assertThat(m.missingLabelsToFormula(creator, alphabet, Collections.singleton("b"), missingLabels),
+				sameInstance(formula));
+		assertThat(missingLabels.keySet(), contains((Set<String>) Collections.singleton("b")));
+		// Once for the expected formula and once for the first call
+		verify(creator, times(2)).modality(eq(Modality.UNIVERSAL), eq("a"), (Formula) anyObject());
+	}
+
 	@Test
 	public void testMTSToEquationSystemSimple() {
 		FormulaCreator creator = new FormulaCreator();
@@ -241,8 +284,8 @@ public class MTSToFormulaTest {
 					creator.modality(un, "a", varS2),
 					creator.modality(un, "b", creator.constant(false))));
 		Formula expectedS1 = creator.conjunction(
-				creator.modality(un, "a", creator.constant(false)),
-				creator.modality(un, "b", varS2));
+				creator.modality(un, "b", varS2),
+				creator.modality(un, "a", creator.constant(false)));
 		Formula inner = null;
 		switch (mode) {
 			case GENERIC:
@@ -271,6 +314,37 @@ public class MTSToFormulaTest {
 	public void testMTSToFormula_Deterministic() {
 		doTestMTSToFormula(MTSToFormula.Mode.DETERMINISTIC);
 	}
+
+	@Test
+	public void testMTSToFormulaShared() {
+		Modality ex = Modality.EXISTENTIAL;
+		Modality un = Modality.UNIVERSAL;
+		FormulaCreator creator = new FormulaCreator();
+		TransitionSystem mts = new TransitionSystem();
+		mts.createStates("s0", "s1", "s2");
+		mts.setInitialState("s0");
+		mts.createArc("s0", "s1", "a");
+		mts.createArc("s1", "s2", "b").putExtension("may", "may");
+		mts.createArc("s2", "s2", "a").putExtension("may", "may");
+
+		VariableFormula varS1 = creator.variable("s1");
+		VariableFormula varS2 = creator.variable("s2");
+		Formula expectedS2 = creator.fixedPoint(FixedPoint.GREATEST, varS2,
+				creator.conjunction(
+					creator.modality(un, "a", varS2),
+					creator.modality(un, "b", creator.constant(false))));
+		Formula expectedS1 = creator.conjunction(
+				creator.modality(un, "b", varS2),
+				creator.modality(un, "a", creator.constant(false)));
+		Formula inner = creator.conjunction(creator.modality(ex, "a", varS1),
+				creator.modality(un, "b", creator.constant(false)));
+		Formula expected = creator.let(varS2, expectedS2, creator.let(varS1, expectedS1, inner));
+
+		MTSToFormula.Mode mode = MTSToFormula.Mode.DETERMINISTIC;
+		Formula formula = new MTSToFormula(mode, true).mtsToFormula(creator, mts);
+		assertThat(formula, is(expected));
+		assertThat(unLet(formula), is(new MTSToFormula(mode, false).mtsToFormula(creator, mts)));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -19,12 +19,19 @@
 
 package uniol.synthesis.parser;
 
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
 
 import uniol.apt.io.parser.ParseException;
 
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
@@ -221,6 +228,73 @@ public class FormulaParserTest {
 	public void testInvalidCall() throws ParseException {
 		FormulaParser.parse(creator, "X(X,)");
 	}
+
+	@Test
+	public void testFunctionCallNested() throws ParseException {
+		Formula x = creator.variable("X");
+		Formula expected = creator.call("f", creator.conjunction(x, x), creator.call("g"),
+				creator.call("h", x, creator.disjunction(x, x)));
+		assertThat(FormulaParser.parse(creator, "f(X&&X, g(), h(X, X||X))"), equalTo(expected));
+	}
+
+	@Test
+	public void testLongConjunction() throws ParseException {
+		StringBuilder input = new StringBuilder("X0");
+		for (int i = 1; i < 10000; i++)
+			input.append(" && X").append(i);
+		Formula formula = FormulaParser.parse(creator, input.toString());
+		assertThat(formula, instanceOf(ConjunctionFormula.class));
+		assertThat(((ConjunctionFormula) formula).getFormulas(), hasSize(10000));
+	}
+
+	@Test
+	public void testLongConjunctionBuiltOnce() throws ParseException {
+		FormulaCreator spied = spy(new FormulaCreator());
+		StringBuilder input = new StringBuilder("X0");
+		for (int i = 1; i < 1000; i++)
+			input.append(" && X").append(i);
+		Formula formula = FormulaParser.parse(spied, input.toString());
+		assertThat(((ConjunctionFormula) formula).size(), equalTo(1000));
+		verify(spied, times(1)).conjunction(anyListOf(Formula.class));
+	}
+
+	@Test
+	public void testMixedChains() throws ParseException {
+		Formula a = creator.variable("a");
+		Formula b = creator.variable("b");
+		Formula c = creator.variable("c");
+		Formula d = creator.variable("d");
+		Formula expected = creator.disjunction(creator.conjunction(a, b, c),
+				creator.call("f", creator.conjunction(c, d), creator.disjunction(a, b)),
+				creator.conjunction(d, creator.disjunction(a, c), b));
+		assertThat(FormulaParser.parse(creator, "a && b && c || f(c && d, a || b) || d && (a || c) && b"),
+				equalTo(expected));
+	}
+
+	@Test
+	public void testReader() throws Exception {
+		Formula expected = creator.fixedPoint(FixedPoint.LEAST, creator.variable("X"),
+				creator.conjunction(creator.variable("X"), creator.constant(true)));
+		assertThat(FormulaParser.parse(creator, new StringReader("mu X.X && true")), equalTo(expected));
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		Formula expected = creator.fixedPoint(FixedPoint.LEAST, creator.variable("X"),
+				creator.fixedPoint(FixedPoint.GREATEST, creator.variable("X"), creator.variable("X")));
+		File file = File.createTempFile("formula", ".txt");
+		try {
+			Files.write(file.toPath(), "// comment\nµX.νX.X".getBytes(StandardCharsets.UTF_8));
+			assertThat(FormulaParser.parse(creator, file), equalTo(expected));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expectedExceptions = ParseException.class)
+	public void testInvalidReader() throws Exception {
+		FormulaParser.parse(creator, new StringReader("X && (Y ||"));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
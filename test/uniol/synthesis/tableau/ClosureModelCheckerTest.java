@@ -0,0 +1,138 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.tableau;
+
+import java.util.BitSet;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.EventTable;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+public class ClosureModelCheckerTest {
+	private final FormulaCreator creator = new FormulaCreator();
+	private final VariableFormula x = creator.variable("X");
+	private final VariableFormula y = creator.variable("Y");
+
+	// Checks the formula on the LTS described by the given arcs. Each arc is a string "source event target".
+	private BitSet check(Formula formula, int states, String... arcs) {
+		FormulaClosure closure = new FormulaClosure(formula);
+		EventTable events = closure.getEventTable();
+		int[] sources = new int[arcs.length];
+		int[] labels = new int[arcs.length];
+		int[] targets = new int[arcs.length];
+		for (int i = 0; i < arcs.length; i++) {
+			String[] parts = arcs[i].split(" ");
+			sources[i] = Integer.parseInt(parts[0]);
+			labels[i] = events.getId(parts[1]);
+			targets[i] = Integer.parseInt(parts[2]);
+		}
+		return new ClosureModelChecker(closure, states, sources, labels, targets).getSatisfyingStates();
+	}
+
+	static private BitSet states(int... states) {
+		BitSet result = new BitSet();
+		for (int state : states)
+			result.set(state);
+		return result;
+	}
+
+	@Test
+	public void testConstants() {
+		assertThat(check(creator.constant(true), 2), equalTo(states(0, 1)));
+		assertThat(check(creator.constant(false), 2), equalTo(states()));
+	}
+
+	@Test
+	public void testModalities() {
+		Formula diamond = creator.modality(Modality.EXISTENTIAL, "a", creator.constant(true));
+		Formula box = creator.modality(Modality.UNIVERSAL, "a", creator.constant(false));
+		assertThat(check(diamond, 3, "0 a 1", "1 b 2"), equalTo(states(0)));
+		assertThat(check(box, 3, "0 a 1", "1 b 2"), equalTo(states(1, 2)));
+	}
+
+	@Test
+	public void testUniversalNeedsAllSuccessors() {
+		Formula diamond = creator.modality(Modality.EXISTENTIAL, "b", creator.constant(true));
+		Formula box = creator.modality(Modality.UNIVERSAL, "a", diamond);
+		assertThat(check(box, 3, "0 a 1", "0 a 2", "1 b 2"), equalTo(states(1, 2)));
+		assertThat(check(box, 3, "0 a 1", "0 a 1", "1 b 2"), equalTo(states(0, 1, 2)));
+	}
+
+	@Test
+	public void testAlwaysEventuallyDeadlock() {
+		// mu X.[a]X: all a-paths are finite
+		Formula formula = creator.fixedPoint(FixedPoint.LEAST, x, creator.modality(Modality.UNIVERSAL, "a", x));
+		assertThat(check(formula, 3, "0 a 1", "1 a 2"), equalTo(states(0, 1, 2)));
+		assertThat(check(formula, 3, "0 a 1", "1 a 2", "2 a 1"), equalTo(states()));
+	}
+
+	@Test
+	public void testGlobal() {
+		// nu X.(<a>true && [a]X): a is always possible
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(
+					creator.modality(Modality.EXISTENTIAL, "a", creator.constant(true)),
+					creator.modality(Modality.UNIVERSAL, "a", x)));
+		assertThat(check(formula, 2, "0 a 1", "1 a 0"), equalTo(states(0, 1)));
+		assertThat(check(formula, 3, "0 a 1", "1 a 0", "1 a 2"), equalTo(states()));
+	}
+
+	@Test
+	public void testAlternation() {
+		// nu X.mu Y.(<a>X || <b>Y): there is a path with infinitely many a
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.fixedPoint(FixedPoint.LEAST, y,
+					creator.disjunction(creator.modality(Modality.EXISTENTIAL, "a", x),
+						creator.modality(Modality.EXISTENTIAL, "b", y))));
+		assertThat(check(formula, 2, "0 a 1", "1 b 0"), equalTo(states(0, 1)));
+		assertThat(check(formula, 3, "0 a 1", "1 b 1", "2 b 0"), equalTo(states()));
+		assertThat(check(formula, 3, "0 b 1", "1 a 2", "2 a 2"), equalTo(states(0, 1, 2)));
+	}
+
+	@Test
+	public void testNestedClosedFixedPoint() {
+		// nu X.([a]X && mu Y.<b>Y || <c>true)
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.disjunction(
+					creator.modality(Modality.EXISTENTIAL, "b", y),
+					creator.modality(Modality.EXISTENTIAL, "c", creator.constant(true))));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.conjunction(creator.modality(Modality.UNIVERSAL, "a", x), inner));
+		assertThat(check(formula, 3, "0 a 1", "1 b 2", "2 c 2", "0 c 0"), equalTo(states(0, 1, 2)));
+		assertThat(check(formula, 3, "0 a 1", "1 b 1", "0 c 0"), equalTo(states()));
+	}
+
+	@Test
+	public void testHolds() {
+		Formula formula = creator.modality(Modality.EXISTENTIAL, "a", creator.constant(true));
+		FormulaClosure closure = new FormulaClosure(formula);
+		int a = closure.getEventTable().getId("a");
+		ClosureModelChecker checker = new ClosureModelChecker(closure, 2,
+				new int[] { 0 }, new int[] { a }, new int[] { 1 });
+		assertThat(checker.holds(0), equalTo(true));
+		assertThat(checker.holds(1), equalTo(false));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
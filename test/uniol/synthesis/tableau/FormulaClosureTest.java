@@ -0,0 +1,127 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.tableau;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.FormulaKind;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.GetFreeVariables.getFreeVariables;
+
+public class FormulaClosureTest {
+	@Test
+	public void testConstant() {
+		FormulaCreator creator = new FormulaCreator();
+		FormulaClosure closure = new FormulaClosure(creator.constant(true));
+		assertThat(closure.size(), equalTo(1));
+		assertThat(closure.getKind(0), equalTo(FormulaKind.CONSTANT));
+		assertThat(closure.getConstantValue(0), equalTo(true));
+		assertThat(closure.isClosed(0), equalTo(true));
+	}
+
+	@Test
+	public void testFixedPoint() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		Formula box = creator.modality(Modality.UNIVERSAL, "a", x);
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.conjunction(box, creator.modality(Modality.EXISTENTIAL, "b", box)));
+		FormulaClosure closure = new FormulaClosure(formula);
+
+		// The fixed point, the conjunction, <b>[a]X, [a]X and X
+		assertThat(closure.size(), equalTo(5));
+		assertThat(closure.getFormula(0), sameInstance(formula));
+		assertThat(closure.getKind(0), equalTo(FormulaKind.FIXED_POINT));
+		assertThat(closure.getFixedPoint(0), equalTo(FixedPoint.GREATEST));
+		assertThat(closure.getChildCount(0), equalTo(1));
+
+		int conjunction = closure.getChild(0, 0);
+		assertThat(closure.getKind(conjunction), equalTo(FormulaKind.CONJUNCTION));
+		assertThat(closure.getChildCount(conjunction), equalTo(2));
+
+		int boxEntry = closure.getChild(conjunction, 0);
+		int diamondEntry = closure.getChild(conjunction, 1);
+		assertThat(closure.getFormula(boxEntry), sameInstance(box));
+		assertThat(closure.getChild(diamondEntry, 0), equalTo(boxEntry));
+		assertThat(closure.getModality(diamondEntry), equalTo(Modality.EXISTENTIAL));
+		assertThat(closure.getEventTable().getEvent(closure.getEventId(diamondEntry)), equalTo("b"));
+
+		int var = closure.getChild(boxEntry, 0);
+		assertThat(closure.getKind(var), equalTo(FormulaKind.VARIABLE));
+		assertThat(closure.getBinder(var), equalTo(0));
+		assertThat(closure.isClosed(var), equalTo(false));
+		assertThat(closure.isClosed(0), equalTo(true));
+
+		// Parents come before their children
+		for (int entry = 0; entry < closure.size(); entry++)
+			for (int i = 0; i < closure.getChildCount(entry); i++)
+				assertThat(closure.getChild(entry, i), greaterThan(entry));
+	}
+
+	@Test
+	public void testClosedNestedFixedPoints() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.variable("Y");
+		VariableFormula z = creator.variable("Z");
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.disjunction(
+					creator.modality(Modality.EXISTENTIAL, "b", y),
+					creator.modality(Modality.UNIVERSAL, "c", x)));
+		Formula closedInner = creator.fixedPoint(FixedPoint.LEAST, z,
+				creator.modality(Modality.EXISTENTIAL, "d", z));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(
+					creator.modality(Modality.UNIVERSAL, "a", x), inner, closedInner));
+		FormulaClosure closure = new FormulaClosure(formula);
+
+		int closedEntries = 0;
+		for (int entry = 0; entry < closure.size(); entry++) {
+			boolean expected = getFreeVariables(closure.getFormula(entry)).isEmpty();
+			assertThat(closure.getFormula(entry).toString(), closure.isClosed(entry), equalTo(expected));
+			if (expected)
+				closedEntries++;
+		}
+		// Only the whole formula and the fixed point binding Z are closed
+		assertThat(closedEntries, equalTo(2));
+	}
+
+	@Test
+	public void testPositiveForm() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.negate(creator.modality(Modality.UNIVERSAL, "a", creator.constant(true)));
+		FormulaClosure closure = new FormulaClosure(formula);
+		assertThat(closure.getFormula(0), sameInstance((Formula)
+					creator.modality(Modality.EXISTENTIAL, "a", creator.constant(false))));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testFreeVariable() {
+		FormulaCreator creator = new FormulaCreator();
+		new FormulaClosure(creator.modality(Modality.UNIVERSAL, "a", creator.variable("X")));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
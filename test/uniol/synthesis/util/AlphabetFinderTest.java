@@ -19,13 +19,18 @@
 
 package uniol.synthesis.util;
 
+import java.util.BitSet;
+import java.util.Set;
+
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
+import uniol.synthesis.adt.mu_calculus.EventTable;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.Modality;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
@@ -99,6 +104,56 @@ public class AlphabetFinderTest {
 		// There are now 2^1000 occurrences of the modality in the formula
 		assertThat(AlphabetFinder.getAlphabet(formula), contains("a"));
 	}
+
+	@Test
+	public void testMemoTable() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.modality(Modality.EXISTENTIAL, "b", creator.variable("X"));
+		Set<String> alphabet = AlphabetFinder.getAlphabet(formula);
+		assertThat(alphabet, contains("b"));
+		assertThat(AlphabetFinder.getAlphabet(formula), sameInstance(alphabet));
+
+		MemoTable<Set<String>> memo = creator.getMemoTable("alphabet");
+		assertThat(memo.getHits(), equalTo(1L));
+		assertThat(memo.getMisses(), equalTo(1L));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testResultUnmodifiable() {
+		Formula formula = creator.modality(Modality.EXISTENTIAL, "c", creator.constant(true));
+		AlphabetFinder.getAlphabet(formula).add("d");
+	}
+
+	@Test
+	public void testAlphabetIds() {
+		FormulaCreator creator = new FormulaCreator();
+		EventTable events = creator.getEventTable();
+		Formula formula = creator.conjunction(
+				creator.modality(Modality.EXISTENTIAL, "b", creator.constant(true)),
+				creator.modality(Modality.UNIVERSAL, "a", creator.constant(false)));
+		BitSet ids = AlphabetFinder.getAlphabetIds(formula);
+		assertThat(ids.cardinality(), equalTo(2));
+		assertThat(events.toEvents(ids), contains("b", "a"));
+
+		// The result is a copy
+		ids.clear();
+		assertThat(AlphabetFinder.getAlphabetIds(formula).cardinality(), equalTo(2));
+	}
+
+	@Test
+	public void testAlphabetIdsOfSubformulasRemembered() {
+		FormulaCreator creator = new FormulaCreator();
+		EventTable events = creator.getEventTable();
+		Formula inner = creator.modality(Modality.EXISTENTIAL, "b", creator.variable("X"));
+		Formula formula = creator.call("hide", creator.disjunction(inner,
+					creator.modality(Modality.UNIVERSAL, "c", creator.constant(false))));
+		assertThat(events.toEvents(AlphabetFinder.getAlphabetIds(formula)), contains("b", "c"));
+
+		MemoTable<BitSet> memo = creator.getMemoTable("alphabetIds");
+		assertThat(memo.getHits(), equalTo(0L));
+		assertThat(events.toEvents(AlphabetFinder.getAlphabetIds(inner)), contains("b"));
+		assertThat(memo.getHits(), equalTo(1L));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,252 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2017  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.ConjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.DisjunctionFormula;
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.FixedPointFormula;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.LetFormula;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.ModalityFormula;
+import uniol.synthesis.adt.mu_calculus.NegationFormula;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.DominatorLetTransformer.let;
+import static uniol.synthesis.util.UnLetTransformer.unLet;
+
+public class DominatorLetTransformerTest {
+	@Test
+	public void testSimpleLet() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula var = creator.variable("var");
+		Formula formula = creator.negate(creator.let(var, var, var));
+		assertThat(let(formula), sameInstance((Formula) creator.negate(var)));
+	}
+
+	@Test
+	public void testRecursiveLet() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula var = creator.variable("var");
+		Formula formula = creator.let(var, creator.let(var, var, var), creator.let(var, var, var));
+		assertThat(let(formula), sameInstance((Formula) var));
+	}
+
+	@Test
+	public void testRecursiveLet2() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula base = creator.negate(creator.constant(true));
+		Formula formula = base;
+		formula = creator.conjunction(creator.negate(formula), creator.negate(formula));
+		formula = creator.conjunction(creator.negate(formula), creator.negate(formula));
+		formula = creator.conjunction(creator.negate(formula), creator.negate(formula));
+
+		Formula letted = let(formula);
+
+		Formula expected = creator.let(creator.variable("cse0"),
+				creator.negate(creator.let(creator.variable("cse1"),
+					creator.negate(creator.let(creator.variable("cse2"), creator.negate(base),
+					creator.conjunction(creator.variable("cse2"), creator.variable("cse2")))),
+					creator.conjunction(creator.variable("cse1"), creator.variable("cse1")))),
+				creator.conjunction(creator.variable("cse0"), creator.variable("cse0")));
+		assertThat(letted, sameInstance(expected));
+		assertThat(unLet(letted), sameInstance(formula));
+	}
+
+	@Test
+	public void testMixOfConjunctionsAndDisjunctions() {
+		FormulaCreator creator = new FormulaCreator();
+
+		// Construct (!(!(true&&true)&&(false||false)))&&(!((false||false)&&!(true&&true)))
+		Formula True = creator.constant(true);
+		Formula False = creator.constant(false);
+		Formula inner1 = creator.negate(creator.conjunction(True, True));
+		Formula inner2 = creator.disjunction(False, False);
+		Formula formula = creator.conjunction(
+				creator.negate(creator.conjunction(inner1, inner2)),
+				creator.negate(creator.conjunction(inner2, inner1)));
+
+		Formula letted = let(formula);
+
+		// The let-form of this is one of the following:
+		// let cse1 = (true&&true) in let cse0 = (false||false) in (cse1 && cse0) && (cse0 && cse1)
+		// let cse0 = (false||false) in let cse1 = (true&&true) in (cse1 && cse0) && (cse0 && cse1)
+		Formula inner = creator.conjunction(
+				creator.negate(creator.conjunction(creator.variable("cse0"), creator.variable("cse1"))),
+				creator.negate(creator.conjunction(creator.variable("cse1"), creator.variable("cse0"))));
+		Formula expected1 = creator.let(creator.variable("cse0"),
+					inner1,
+					creator.let(creator.variable("cse1"),
+						inner2,
+						inner));
+		Formula expected2 = creator.let(creator.variable("cse1"),
+					inner2,
+					creator.let(creator.variable("cse0"),
+						inner1,
+						inner));
+		assertThat(letted, anyOf(sameInstance(expected1), sameInstance(expected2)));
+	}
+
+	@Test
+	public void testError() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		Formula False = creator.constant(false);
+		Formula inner1 = creator.modality(Modality.UNIVERSAL, "a", False);
+		Formula inner2 = creator.modality(Modality.UNIVERSAL, "b", False);
+		Formula inner = creator.negate(creator.conjunction(inner1, inner2));
+		Formula formula = creator.conjunction(inner,
+				creator.negate(creator.conjunction(inner2,
+					creator.negate(creator.conjunction(inner1, inner)))));
+
+		Formula letted = let(formula);
+
+		VariableFormula cse0 = creator.variable("cse0");
+		VariableFormula cse1 = creator.variable("cse1");
+		VariableFormula cse2 = creator.variable("cse2");
+		Formula expected = creator.let(cse0,
+				creator.modality(Modality.UNIVERSAL, "a", False),
+			creator.let(cse1,
+				creator.modality(Modality.UNIVERSAL, "b", False),
+			creator.let(cse2,
+				creator.negate(creator.conjunction(cse0, cse1)),
+				creator.conjunction(cse2, creator.negate(creator.conjunction(cse1,
+					creator.negate(creator.conjunction(cse0, cse2))))))));
+		assertThat(letted, sameInstance(expected));
+	}
+
+	// Describe each let by the sub-formula that it binds and the sub-formula around which it is placed, both with
+	// all let variables expanded. This does not depend on the names of the variables and on the order in which
+	// lets around the same place are nested.
+	static private Set<List<Formula>> getLetStructure(Formula formula) {
+		Set<List<Formula>> result = new HashSet<>();
+		addLetStructure(result, formula, new ArrayList<LetFormula>());
+		return result;
+	}
+
+	static private void addLetStructure(Set<List<Formula>> result, Formula formula, List<LetFormula> scope) {
+		switch (formula.getKind()) {
+			case LET:
+				LetFormula let = (LetFormula) formula;
+				result.add(Arrays.asList(expand(let.getExpansion(), scope), expand(let, scope)));
+				addLetStructure(result, let.getExpansion(), scope);
+				List<LetFormula> inner = new ArrayList<>(scope);
+				inner.add(let);
+				addLetStructure(result, let.getFormula(), inner);
+				break;
+			case CONJUNCTION:
+				for (Formula child : ((ConjunctionFormula) formula).getFormulas())
+					addLetStructure(result, child, scope);
+				break;
+			case DISJUNCTION:
+				for (Formula child : ((DisjunctionFormula) formula).getFormulas())
+					addLetStructure(result, child, scope);
+				break;
+			case NEGATION:
+				addLetStructure(result, ((NegationFormula) formula).getFormula(), scope);
+				break;
+			case MODALITY:
+				addLetStructure(result, ((ModalityFormula) formula).getFormula(), scope);
+				break;
+			case FIXED_POINT:
+				addLetStructure(result, ((FixedPointFormula) formula).getFormula(), scope);
+				break;
+			default:
+				break;
+		}
+	}
+
+	static private Formula expand(Formula formula, List<LetFormula> scope) {
+		for (int i = scope.size() - 1; i >= 0; i--)
+			formula = formula.getCreator().let(scope.get(i).getVariable(), scope.get(i).getExpansion(),
+					formula);
+		return unLet(formula);
+	}
+
+	static private void assertSameAsLetTransformer(Formula formula) {
+		Formula letted = let(formula);
+		assertThat(unLet(letted), sameInstance(unLet(formula)));
+		// Only the order of lets around the same sub-formula may differ
+		assertThat(getLetStructure(letted), equalTo(getLetStructure(LetTransformer.let(formula))));
+	}
+
+	@Test
+	public void testSameAsLetTransformer() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		Formula formula = creator.constant(true);
+		Formula previous = x;
+		for (int i = 0; i < 50; i++) {
+			Formula next = creator.disjunction(creator.modality(Modality.EXISTENTIAL, "a" + i % 3, formula),
+					creator.modality(Modality.UNIVERSAL, "b", previous));
+			previous = formula;
+			formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(next, previous));
+		}
+		assertSameAsLetTransformer(formula);
+	}
+
+	@Test
+	public void testSameAsLetTransformerNested() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula False = creator.constant(false);
+		Formula inner1 = creator.modality(Modality.UNIVERSAL, "a", False);
+		Formula inner2 = creator.modality(Modality.UNIVERSAL, "b", False);
+		Formula inner = creator.negate(creator.conjunction(inner1, inner2));
+		assertSameAsLetTransformer(creator.conjunction(inner,
+				creator.negate(creator.conjunction(inner2,
+					creator.negate(creator.conjunction(inner1, inner))))));
+		assertSameAsLetTransformer(creator.disjunction(creator.negate(inner),
+				creator.modality(Modality.EXISTENTIAL, "c", creator.conjunction(inner, inner1))));
+	}
+
+	@Test
+	public void testError2() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		Formula False = creator.constant(false);
+		Formula inner1 = creator.modality(Modality.UNIVERSAL, "a", False);
+		Formula inner2 = creator.negate(creator.conjunction(inner1,
+				creator.modality(Modality.UNIVERSAL, "b", False)));
+		Formula formula = creator.conjunction(inner2, creator.negate(creator.conjunction(inner2, inner1)));
+
+		Formula letted = let(formula);
+
+		VariableFormula cse0 = creator.variable("cse0");
+		VariableFormula cse1 = creator.variable("cse1");
+		Formula expected = creator.let(cse0,
+				creator.modality(Modality.UNIVERSAL, "a", False),
+			creator.let(cse1,
+				creator.negate(creator.conjunction(cse0, creator.modality(Modality.UNIVERSAL, "b", False))),
+			creator.conjunction(cse1, creator.negate(creator.conjunction(cse1, cse0)))));
+		assertThat(letted, sameInstance(expected));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,119 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.parser.FormulaParser;
+
+public class FormulaWriterTest {
+	static private byte[] write(Formula formula) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FormulaWriter.write(formula, out);
+		return out.toByteArray();
+	}
+
+	static private Formula read(FormulaCreator creator, byte[] data) throws IOException {
+		return FormulaReader.read(creator, new ByteArrayInputStream(data));
+	}
+
+	private void test(String formula) throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		Formula expected = FormulaParser.parse(creator, formula);
+		assertThat(read(creator, write(expected)), sameInstance(expected));
+
+		// Reading with another creator gives an equal formula
+		FormulaCreator otherCreator = new FormulaCreator();
+		Formula other = read(otherCreator, write(expected));
+		assertThat(other, sameInstance(FormulaParser.parse(otherCreator, formula)));
+	}
+
+	@Test
+	public void testConstants() throws Exception {
+		test("true");
+		test("false");
+	}
+
+	@Test
+	public void testAllKinds() throws Exception {
+		test("let X = nu Y.[a]Y && <b>true || !Z in mu Z.X && Z || f(X, g(), Y)");
+	}
+
+	@Test
+	public void testSharing() throws Exception {
+		// Each conjunction uses the previous one twice, so the tree has 2^30 leaves
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.variable("X");
+		for (int i = 0; i < 30; i++)
+			formula = creator.modality(Modality.UNIVERSAL, "a",
+					creator.conjunction(formula, creator.negate(formula)));
+
+		byte[] data = write(formula);
+		assertThat(data.length, lessThan(2000));
+		assertThat(read(creator, data), sameInstance(formula));
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = FormulaParser.parse(creator, "nu X.<a>X && [b]false");
+		File file = File.createTempFile("formula", ".bin");
+		try {
+			FormulaWriter.write(formula, file);
+			assertThat(FormulaReader.read(creator, file), sameInstance(formula));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Not a formula file")
+	public void testNotAFormulaFile() throws Exception {
+		read(new FormulaCreator(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Unexpected data.*")
+	public void testTrailingData() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		byte[] data = write(creator.constant(true));
+		read(creator, Arrays.copyOf(data, data.length + 1));
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Invalid index.*")
+	public void testForwardReference() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		byte[] data = write(creator.negate(creator.constant(true)));
+		// The negation is the second formula and refers to the first one. Let it refer to itself instead.
+		data[data.length - 5] = 1;
+		read(creator, data);
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -165,6 +165,32 @@ public class GetFreeVariablesTest {
 		assertThat(GetFreeVariables.getFreeVariables(formula), contains(var));
 		assertThat(formula, freeVariables(variables("foo"), 0)); // FIXME: Integer overflow
 	}
+
+	@Test
+	public void testConjunctionSharesSet() {
+		VariableFormula var = creator.variable("foo");
+		Formula formula = creator.conjunction(var, creator.constant(true), var);
+		VariableSet free = GetFreeVariables.getFreeVariables(formula);
+		assertThat(free, contains(var));
+		assertThat(free.size(), equalTo(1));
+		assertThat(free.contains(creator.variable("bar")), is(false));
+		assertThat(free.getIndices().get(var.getIndex()), is(true));
+	}
+
+	@Test
+	public void testFreeVariablesDifferentCreator() {
+		FormulaCreator otherCreator = new FormulaCreator();
+		VariableFormula var = creator.variable("foo");
+		VariableFormula otherVar = otherCreator.variable("foo");
+		assertThat(GetFreeVariables.getFreeVariables(var).contains(otherVar), is(false));
+		assertThat(GetFreeVariables.getFreeVariables(otherVar), contains(otherVar));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testFreeVariablesUnmodifiable() {
+		VariableFormula var = creator.variable("foo");
+		GetFreeVariables.getFreeVariables(var).remove(var);
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,125 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.GuardedFormFormulaTransformer.guardedForm;
+
+public class GuardedFormFormulaTransformerTest {
+	private final FormulaCreator creator = new FormulaCreator();
+	private final VariableFormula x = creator.variable("X");
+	private final VariableFormula y = creator.variable("Y");
+	private final Formula boxX = creator.modality(Modality.UNIVERSAL, "a", x);
+	private final Formula diamondY = creator.modality(Modality.EXISTENTIAL, "b", y);
+
+	@Test
+	public void testGuardedUnchanged() {
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(boxX, diamondY));
+		assertThat(guardedForm(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testGreatestConjunction() {
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(x, boxX));
+		assertThat(guardedForm(formula), sameInstance(creator.fixedPoint(FixedPoint.GREATEST, x, boxX)));
+	}
+
+	@Test
+	public void testGreatestDisjunction() {
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.disjunction(x, boxX));
+		assertThat(guardedForm(formula), sameInstance(creator.constant(true)));
+	}
+
+	@Test
+	public void testLeastDisjunction() {
+		Formula formula = creator.fixedPoint(FixedPoint.LEAST, x, creator.disjunction(x, diamondY));
+		assertThat(guardedForm(formula), sameInstance(diamondY));
+	}
+
+	@Test
+	public void testLeastConjunction() {
+		Formula formula = creator.fixedPoint(FixedPoint.LEAST, x, creator.conjunction(x, boxX));
+		assertThat(guardedForm(formula), sameInstance(creator.constant(false)));
+	}
+
+	@Test
+	public void testOnlyVariable() {
+		assertThat(guardedForm(creator.fixedPoint(FixedPoint.GREATEST, x, x)),
+				sameInstance(creator.constant(true)));
+		assertThat(guardedForm(creator.fixedPoint(FixedPoint.LEAST, x, x)),
+				sameInstance(creator.constant(false)));
+	}
+
+	@Test
+	public void testNested() {
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.disjunction(x, diamondY));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(inner, boxX));
+		assertThat(guardedForm(formula), sameInstance(creator.fixedPoint(FixedPoint.GREATEST, x, boxX)));
+	}
+
+	@Test
+	public void testNestedUnfolded() {
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.conjunction(x, diamondY));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, inner);
+		Formula expected = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.modality(Modality.EXISTENTIAL, "b", inner));
+		assertThat(guardedForm(formula), sameInstance(expected));
+	}
+
+	@Test
+	public void testNestedGuardedUnchanged() {
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.disjunction(boxX, diamondY));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, inner);
+		assertThat(guardedForm(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testNestedRebindingNotUnfolded() {
+		Formula rebinding = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(diamondY, boxX));
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.conjunction(x, rebinding));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, inner);
+		assertThat(guardedForm(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testNestedUnguarded() {
+		Formula inner = creator.fixedPoint(FixedPoint.LEAST, y, creator.disjunction(y, boxX));
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(x, inner));
+		assertThat(guardedForm(formula), sameInstance(creator.fixedPoint(FixedPoint.GREATEST, x, boxX)));
+	}
+
+	@Test
+	public void testUnderNegation() {
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.conjunction(creator.negate(x), boxX));
+		assertThat(guardedForm(formula), sameInstance(formula));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
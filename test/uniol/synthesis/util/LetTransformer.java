@@ -43,6 +43,7 @@ import uniol.synthesis.adt.mu_calculus.ModalityFormula;
 import uniol.synthesis.adt.mu_calculus.NegationFormula;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
+// The original, slower let introduction. It is only kept as a reference for DominatorLetTransformerTest.
 public class LetTransformer implements NonRecursive.Walker {
 	private final Map<Formula, FormulaInfo> formulaInfo = new HashMap<>();
 	private final Deque<Formula> results = new ArrayDeque<>();
@@ -165,17 +166,17 @@ public class LetTransformer implements NonRecursive.Walker {
 		@Override
 		public void walk(NonRecursive engine, ConjunctionFormula formula) {
 			enqueueLets(engine);
-			engine.enqueue(new BuildConjunction(formula.getFormulas().size()));
-			for (Formula child : formula.getFormulas())
-				enqueueFormula(engine, child);
+			engine.enqueue(new BuildConjunction(formula.size()));
+			for (int i = 0; i < formula.size(); i++)
+				enqueueFormula(engine, formula.get(i));
 		}
 
 		@Override
 		public void walk(NonRecursive engine, DisjunctionFormula formula) {
 			enqueueLets(engine);
-			engine.enqueue(new BuildDisjunction(formula.getFormulas().size()));
-			for (Formula child : formula.getFormulas())
-				enqueueFormula(engine, child);
+			engine.enqueue(new BuildDisjunction(formula.size()));
+			for (int i = 0; i < formula.size(); i++)
+				enqueueFormula(engine, formula.get(i));
 		}
 
 		@Override
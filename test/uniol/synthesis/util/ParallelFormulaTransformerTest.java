@@ -0,0 +1,88 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.PositiveFormFormulaTransformer.positiveForm;
+
+public class ParallelFormulaTransformerTest {
+	// Create a conjunction of many modalities, each containing the given formula
+	private Formula wide(FormulaCreator creator, Formula inner, int width) {
+		List<Formula> children = new ArrayList<>();
+		for (int i = 0; i < width; i++)
+			children.add(creator.modality(Modality.UNIVERSAL, "e" + i, inner));
+		return creator.conjunction(children);
+	}
+
+	@Test
+	public void testWideAlphabet() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = wide(creator, creator.variable("X"), 1000);
+		assertThat(AlphabetFinder.getAlphabet(formula), hasSize(1000));
+		assertThat(AlphabetFinder.getAlphabet(formula), hasItems("e0", "e500", "e999"));
+	}
+
+	@Test
+	public void testWidePositiveForm() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		Formula formula = creator.negate(wide(creator, creator.negate(x), 1000));
+
+		List<Formula> children = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			children.add(creator.modality(Modality.EXISTENTIAL, "e" + i, x));
+		assertThat(positiveForm(formula), sameInstance((Formula) creator.disjunction(children)));
+	}
+
+	@Test
+	public void testPositiveFormBoundVariable() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		// The variable is bound by a fixed point that is not negated, so the negation stays
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.negate(x));
+		assertThat(positiveForm(formula), sameInstance(formula));
+		// Here the fixed point is negated together with the variable
+		Formula negated = creator.negate(creator.fixedPoint(FixedPoint.GREATEST, x, x));
+		assertThat(positiveForm(negated), sameInstance((Formula) creator.fixedPoint(FixedPoint.LEAST, x, x)));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class,
+			expectedExceptionsMessageRegExp = "Let formulas are not supported")
+	public void testExceptionInParallelPart() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		Formula let = creator.let(x, creator.constant(true), x);
+		AlphabetFinder.getAlphabet(wide(creator, let, 1000));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -26,6 +26,7 @@ import static org.hamcrest.Matchers.*;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
 import uniol.synthesis.adt.mu_calculus.Modality;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
@@ -187,6 +188,21 @@ public class PositiveFormFormulaTransformerTest {
 		}
 		assertThat(positiveForm(formula), sameInstance(formula));
 	}
+
+	@Test
+	public void testMemoPerNode() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula a = creator.modality(Modality.UNIVERSAL, "a", creator.variable("foo"));
+		Formula b = creator.modality(Modality.UNIVERSAL, "b", creator.variable("foo"));
+		Formula formula = creator.conjunction(a, creator.negate(b));
+		Formula result = positiveForm(formula);
+
+		MemoTable<Formula> memo = creator.getMemoTable("positiveForm");
+		assertThat(memo.get(formula), sameInstance(result));
+		assertThat(memo.get(a), sameInstance(a));
+		// b appears negated and thus its result depends on its context
+		assertThat(memo.get(b), nullValue());
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
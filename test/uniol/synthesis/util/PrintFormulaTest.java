@@ -205,6 +205,42 @@ public class PrintFormulaTest {
 			assertThat(e, sameInstance(ex));
 		}
 	}
+
+	@Test
+	public void testMaxLength() {
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.conjunction(creator.variable("foo"), creator.variable("bar"));
+		assertThat(PrintFormula.printFormula(formula, 100), equalTo("(foo&&bar)"));
+		assertThat(PrintFormula.printFormula(formula, 10), equalTo("(foo&&bar)"));
+		assertThat(PrintFormula.printFormula(formula, 9), equalTo("(foo&&bar..."));
+		assertThat(PrintFormula.printFormula(formula, 2), equalTo("(f..."));
+		assertThat(PrintFormula.printFormula(formula, 0), equalTo("..."));
+	}
+
+	@Test
+	public void testToStringLimited() {
+		// Each level doubles the size of the text representation
+		FormulaCreator creator = new FormulaCreator();
+		Formula formula = creator.variable("X");
+		for (int i = 0; i < 64; i++)
+			formula = creator.conjunction(formula, creator.negate(formula));
+
+		String string = formula.toString();
+		assertThat(string.length(), lessThan(200000));
+		assertThat(string, endsWith("..."));
+	}
+
+	@Test
+	public void testPrintWithLets() throws Exception {
+		FormulaCreator creator = new FormulaCreator();
+		Formula inner = creator.modality(Modality.UNIVERSAL, "a", creator.variable("X"));
+		Formula formula = creator.conjunction(inner, creator.negate(inner));
+
+		StringBuilder sb = new StringBuilder();
+		PrintFormula.printFormulaWithLets(sb, formula);
+		assertThat(sb.toString(), startsWith("(let "));
+		assertThat(UnLetTransformer.unLet(FormulaParser.parse(creator, sb.toString())), equalTo(formula));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -0,0 +1,165 @@
+/*-
+ * APT - Analysis of Petri Nets and labeled Transition systems
+ * Copyright (C) 2018  Uli Schlachter
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package uniol.synthesis.util;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import uniol.synthesis.adt.mu_calculus.FixedPoint;
+import uniol.synthesis.adt.mu_calculus.Formula;
+import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
+import uniol.synthesis.adt.mu_calculus.Modality;
+import uniol.synthesis.adt.mu_calculus.VariableFormula;
+
+import static uniol.synthesis.util.SimplifyFormulaTransformer.simplify;
+
+public class SimplifyFormulaTransformerTest {
+	private final FormulaCreator creator = new FormulaCreator();
+	private final Formula t = creator.constant(true);
+	private final Formula f = creator.constant(false);
+	private final VariableFormula x = creator.variable("X");
+	private final VariableFormula y = creator.variable("Y");
+
+	@Test
+	public void testUnchanged() {
+		Formula formula = creator.conjunction(x, creator.modality(Modality.EXISTENTIAL, "a", y));
+		assertThat(simplify(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testConjunctionConstants() {
+		assertThat(simplify(creator.conjunction(t, x, t)), sameInstance((Formula) x));
+		assertThat(simplify(creator.conjunction(x, f, y)), sameInstance(f));
+		assertThat(simplify(creator.conjunction(t, t)), sameInstance(t));
+	}
+
+	@Test
+	public void testDisjunctionConstants() {
+		assertThat(simplify(creator.disjunction(f, x, f)), sameInstance((Formula) x));
+		assertThat(simplify(creator.disjunction(x, t, y)), sameInstance(t));
+		assertThat(simplify(creator.disjunction(f, f)), sameInstance(f));
+	}
+
+	@Test
+	public void testNegation() {
+		assertThat(simplify(creator.negate(t)), sameInstance(f));
+		assertThat(simplify(creator.negate(creator.negate(x))), sameInstance((Formula) x));
+		Formula formula = creator.negate(x);
+		assertThat(simplify(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testModality() {
+		assertThat(simplify(creator.modality(Modality.UNIVERSAL, "a", t)), sameInstance(t));
+		assertThat(simplify(creator.modality(Modality.EXISTENTIAL, "a", f)), sameInstance(f));
+		Formula formula = creator.modality(Modality.UNIVERSAL, "a", f);
+		assertThat(simplify(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testDuplicates() {
+		assertThat(simplify(creator.conjunction(x, y, x)), sameInstance((Formula) creator.conjunction(x, y)));
+		assertThat(simplify(creator.disjunction(x, x)), sameInstance((Formula) x));
+	}
+
+	@Test
+	public void testAbsorption() {
+		assertThat(simplify(creator.conjunction(x, creator.disjunction(y, x))), sameInstance((Formula) x));
+		assertThat(simplify(creator.disjunction(creator.conjunction(x, y), x)), sameInstance((Formula) x));
+	}
+
+	@Test
+	public void testMergeUniversal() {
+		Formula formula = creator.conjunction(creator.modality(Modality.UNIVERSAL, "a", x), y,
+				creator.modality(Modality.UNIVERSAL, "a", y));
+		Formula expected = creator.conjunction(
+				creator.modality(Modality.UNIVERSAL, "a", creator.conjunction(x, y)), y);
+		assertThat(simplify(formula), sameInstance(expected));
+	}
+
+	@Test
+	public void testMergeExistential() {
+		Formula formula = creator.disjunction(creator.modality(Modality.EXISTENTIAL, "a", x),
+				creator.modality(Modality.EXISTENTIAL, "a", y));
+		Formula expected = creator.modality(Modality.EXISTENTIAL, "a", creator.disjunction(x, y));
+		assertThat(simplify(formula), sameInstance(expected));
+	}
+
+	@Test
+	public void testNoUnsoundMerge() {
+		// <a>X && <a>Y is not the same as <a>(X && Y)
+		Formula formula = creator.conjunction(creator.modality(Modality.EXISTENTIAL, "a", x),
+				creator.modality(Modality.EXISTENTIAL, "a", y));
+		assertThat(simplify(formula), sameInstance(formula));
+		// [a]X && [b]Y has different events
+		formula = creator.conjunction(creator.modality(Modality.UNIVERSAL, "a", x),
+				creator.modality(Modality.UNIVERSAL, "b", y));
+		assertThat(simplify(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testVacuousFixedPoint() {
+		Formula inner = creator.modality(Modality.UNIVERSAL, "a", y);
+		assertThat(simplify(creator.fixedPoint(FixedPoint.GREATEST, x, inner)), sameInstance(inner));
+		Formula formula = creator.fixedPoint(FixedPoint.LEAST, x, creator.modality(Modality.UNIVERSAL, "a", x));
+		assertThat(simplify(formula), sameInstance(formula));
+	}
+
+	@Test
+	public void testTrivialFixedPoint() {
+		assertThat(simplify(creator.fixedPoint(FixedPoint.GREATEST, x, x)), sameInstance(t));
+		assertThat(simplify(creator.fixedPoint(FixedPoint.LEAST, x, creator.conjunction(x, t))),
+				sameInstance(f));
+	}
+
+	@Test
+	public void testCallUntouched() {
+		Formula formula = creator.conjunction(t, creator.call("hide",
+					creator.conjunction(t, creator.modality(Modality.UNIVERSAL, "a", t))));
+		assertThat(simplify(formula), sameInstance((Formula) creator.call("hide",
+					creator.conjunction(t, creator.modality(Modality.UNIVERSAL, "a", t)))));
+	}
+
+	@Test
+	public void testNested() {
+		// The padding of the call expansion: nu X.(true && [a]X && [a]X)
+		Formula formula = creator.fixedPoint(FixedPoint.GREATEST, x, creator.conjunction(t,
+					creator.modality(Modality.UNIVERSAL, "a", x),
+					creator.disjunction(f, creator.modality(Modality.UNIVERSAL, "a", x))));
+		Formula expected = creator.fixedPoint(FixedPoint.GREATEST, x,
+				creator.modality(Modality.UNIVERSAL, "a", x));
+		assertThat(simplify(formula), sameInstance(expected));
+	}
+
+	@Test
+	public void testMemoPerNode() {
+		Formula inner = creator.disjunction(x, x, f);
+		Formula formula = creator.modality(Modality.EXISTENTIAL, "a", creator.conjunction(inner, y));
+		Formula result = simplify(formula);
+
+		MemoTable<Formula> memo = creator.getMemoTable("simplify");
+		assertThat(memo.get(formula), sameInstance(result));
+		assertThat(memo.get(inner), sameInstance((Formula) x));
+	}
+}
+
+// vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
@@ -19,9 +19,13 @@
 
 package uniol.synthesis.util;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
@@ -180,6 +184,94 @@ public class SolveEquationSystemTest {
 					allOf(hasEntry(x, solutionX2), hasEntry(y, solutionY2))));
 		assertThat(result.entrySet(), hasSize(2));
 	}
+
+	@Test
+	public void testComponentsOrder() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.variable("Y");
+		VariableFormula z = creator.variable("Z");
+		VariableFormula w = creator.variable("W");
+
+		// X -> Y <-> Z -> W
+		Map<VariableFormula, Set<VariableFormula>> dependencies = new HashMap<>();
+		dependencies.put(x, new HashSet<>(Arrays.asList(y)));
+		dependencies.put(y, new HashSet<>(Arrays.asList(z)));
+		dependencies.put(z, new HashSet<>(Arrays.asList(y, w)));
+		dependencies.put(w, Collections.<VariableFormula>emptySet());
+
+		List<List<VariableFormula>> components = SolveEquationSystem.findComponents(dependencies);
+		assertThat(components, contains(contains(w), containsInAnyOrder(y, z), contains(x)));
+	}
+
+	@Test
+	public void testChain() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.variable("Y");
+		VariableFormula z = creator.variable("Z");
+		Modality ex = Modality.EXISTENTIAL;
+		FixedPoint fp = FixedPoint.GREATEST;
+
+		Map<VariableFormula, Formula> input = new HashMap<>();
+		input.put(x, creator.modality(ex, "a", y));
+		input.put(y, creator.modality(ex, "b", z));
+		input.put(z, creator.modality(ex, "c", z));
+
+		Formula solutionZ = creator.fixedPoint(fp, z, creator.modality(ex, "c", z));
+		Formula solutionY = creator.modality(ex, "b", solutionZ);
+		Formula solutionX = creator.modality(ex, "a", solutionY);
+
+		Map<VariableFormula, Formula> result = new SolveEquationSystem().solve(fp, input);
+		assertThat(result, hasEntry(x, solutionX));
+		assertThat(result, hasEntry(y, solutionY));
+		assertThat(result, hasEntry(z, solutionZ));
+		assertThat(result.entrySet(), hasSize(3));
+	}
+
+	@Test
+	public void testSolveWithLets() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.variable("Y");
+		VariableFormula z = creator.variable("Z");
+		VariableFormula unused = creator.variable("U");
+		Modality ex = Modality.EXISTENTIAL;
+		FixedPoint fp = FixedPoint.GREATEST;
+
+		Map<VariableFormula, Formula> input = new HashMap<>();
+		input.put(x, creator.conjunction(creator.modality(ex, "a", y), creator.modality(ex, "b", y)));
+		input.put(y, creator.modality(ex, "c", z));
+		input.put(z, creator.modality(ex, "d", z));
+		input.put(unused, creator.modality(ex, "e", x));
+
+		Formula expected = creator.let(z, creator.fixedPoint(fp, z, creator.modality(ex, "d", z)),
+				creator.let(y, creator.modality(ex, "c", z),
+					creator.conjunction(creator.modality(ex, "a", y), creator.modality(ex, "b", y))));
+
+		SolveEquationSystem solver = new SolveEquationSystem();
+		Formula result = solver.solveWithLets(fp, input, x);
+		assertThat(result, equalTo(expected));
+		assertThat(unLet(result), equalTo(solver.solve(fp, input).get(x)));
+	}
+
+	@Test
+	public void testSolveWithLetsRecursive() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula x = creator.variable("X");
+		VariableFormula y = creator.variable("Y");
+		Modality ex = Modality.EXISTENTIAL;
+		FixedPoint fp = FixedPoint.GREATEST;
+
+		Map<VariableFormula, Formula> input = new HashMap<>();
+		input.put(x, creator.modality(ex, "a", y));
+		input.put(y, creator.modality(ex, "b", x));
+
+		// Variables of the root's own component are not bound with a let
+		SolveEquationSystem solver = new SolveEquationSystem();
+		Formula result = solver.solveWithLets(fp, input, x);
+		assertThat(result, equalTo(solver.solve(fp, input).get(x)));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
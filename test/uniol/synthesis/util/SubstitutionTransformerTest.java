@@ -19,6 +19,9 @@
 
 package uniol.synthesis.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -26,6 +29,7 @@ import static org.hamcrest.Matchers.*;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.Modality;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
 public class SubstitutionTransformerTest {
@@ -111,6 +115,29 @@ public class SubstitutionTransformerTest {
 		}
 		assertThat(SubstitutionTransformer.substitute(formula, variable, substitute), sameInstance(expected));
 	}
+
+	// Create a conjunction of many modalities, each containing the given formula
+	private Formula wide(Formula inner, int width) {
+		List<Formula> children = new ArrayList<>();
+		for (int i = 0; i < width; i++)
+			children.add(creator.modality(Modality.UNIVERSAL, "e" + i, inner));
+		return creator.conjunction(children);
+	}
+
+	@Test
+	public void testWide() {
+		Formula formula = wide(wide(variable, 100), 1000);
+		Formula expected = wide(wide(substitute, 100), 1000);
+		assertThat(SubstitutionTransformer.substitute(formula, variable, substitute), sameInstance(expected));
+	}
+
+	@Test
+	public void testWideBoundVariable() {
+		Formula fixedPoint = creator.fixedPoint(FixedPoint.GREATEST, variable, wide(variable, 500));
+		Formula formula = creator.conjunction(variable, fixedPoint);
+		assertThat(SubstitutionTransformer.substitute(formula, variable, substitute),
+				sameInstance(creator.conjunction(substitute, fixedPoint)));
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120
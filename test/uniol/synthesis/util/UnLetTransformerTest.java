@@ -26,6 +26,8 @@ import static org.hamcrest.Matchers.*;
 import uniol.synthesis.adt.mu_calculus.FixedPoint;
 import uniol.synthesis.adt.mu_calculus.Formula;
 import uniol.synthesis.adt.mu_calculus.FormulaCreator;
+import uniol.synthesis.adt.mu_calculus.MemoTable;
+import uniol.synthesis.adt.mu_calculus.Modality;
 import uniol.synthesis.adt.mu_calculus.VariableFormula;
 
 import static uniol.synthesis.util.UnLetTransformer.unLet;
@@ -102,6 +104,24 @@ public class UnLetTransformerTest {
 				creator.constant(true));
 		assertThat(unLet(formula), sameInstance(expected));
 	}
+
+	@Test
+	public void testMemoPerNode() {
+		FormulaCreator creator = new FormulaCreator();
+		VariableFormula var = creator.variable("var");
+		Formula a = creator.modality(Modality.UNIVERSAL, "a", creator.constant(true));
+		Formula body = creator.conjunction(var, creator.variable("foo"));
+		Formula inner = creator.let(var, a, body);
+		Formula formula = creator.disjunction(inner, var);
+		Formula result = unLet(formula);
+
+		MemoTable<Formula> memo = creator.getMemoTable("unLet");
+		assertThat(memo.get(formula), sameInstance(result));
+		assertThat(memo.get(inner), sameInstance(creator.conjunction(a, creator.variable("foo"))));
+		assertThat(memo.get(var), sameInstance((Formula) var));
+		// The result for the body of the let depends on the substitution and is not remembered
+		assertThat(memo.get(body), nullValue());
+	}
 }
 
 // vim: ft=java:noet:sw=8:sts=8:ts=8:tw=120